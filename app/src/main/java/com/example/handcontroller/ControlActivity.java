@@ -4,17 +4,27 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.view.View;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.handcontroller.control.Trajectory;
+import com.example.handcontroller.gesture.Gesture;
+import com.example.handcontroller.macro.Macro;
+import com.example.handcontroller.poses.PoseLibrary;
+import com.example.handcontroller.poses.SharedPoseLibrary;
 import com.example.handcontroller.services.BluetoothService;
+import com.example.handcontroller.services.ListenerSubscription;
+import com.example.handcontroller.utils.LatencyStats;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 
 import java.util.concurrent.TimeUnit;
 
@@ -32,15 +42,31 @@ public class ControlActivity extends AppCompatActivity {
     private MaterialButton openHandButton;
     private MaterialButton closeHandButton;
     private MaterialButton peaceButton;
+    private MaterialButton exerciseButton;
+    private SwitchMaterial liveTrackingSwitch;
+    private SwitchMaterial emgControlSwitch;
+    private TextView controlLatencyText;
     // Constants
     private static final int NUM_MOTORS = 3;
     private static final int MAX_ANGLE = 180;
     private static final String PREFS_NAME = "MotorPrefs";
     private static final int[] OPEN_POSITION = {180,0,0};
     private static final int[] CLOSED_POSITION = {30,110,150};
+    private static final int[] PEACE_POSITION = {30,0,150};
+    // Slider positions, so poses saved before hardware calibration changes stay valid
+    private PoseLibrary poseLibrary;
+    private static final int STREAM_RATE_HZ = 50;
+    private static final String KEY_LIVE_TRACKING = "liveTracking";
+    private static final long LATENCY_REFRESH_MS = 500;
+    private static final int EXERCISE_CYCLES = 10;
+    private static final long EXERCISE_HOLD_MS = 1500;
     // Bluetooth Service
     private BluetoothService bluetoothService;
     private boolean serviceBound = false;
+    private boolean resumed;
+    // Recognised gestures while EMG control runs on a trained classifier
+    private ListenerSubscription gestureSubscription;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
 
     // Service Connection
     private final ServiceConnection serviceConnection = new ServiceConnection() {
@@ -49,8 +75,10 @@ public class ControlActivity extends AppCompatActivity {
             BluetoothService.LocalBinder binder = (BluetoothService.LocalBinder) service;
             bluetoothService = binder.getService();
             serviceBound = true;
+            bluetoothService.setControlScreenActive(resumed);
             updateConnectionStatus();
             loadSavedPositions();
+            updateControlMode();
         }
 
         @Override
@@ -65,6 +93,7 @@ public class ControlActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_control);
+        poseLibrary = SharedPoseLibrary.get(this, NUM_MOTORS);
 
         initializeViews();
         setupBottomNavigation();
@@ -92,6 +121,13 @@ public class ControlActivity extends AppCompatActivity {
         saveButton = findViewById(R.id.saveButton);
         resetButton = findViewById(R.id.resetButton);
         emergencyStopButton = findViewById(R.id.emergencyStop);
+        openHandButton = findViewById(R.id.openHandButton);
+        closeHandButton = findViewById(R.id.closeHandButton);
+        peaceButton = findViewById(R.id.peaceButton);
+        exerciseButton = findViewById(R.id.exerciseButton);
+        liveTrackingSwitch = findViewById(R.id.liveTrackingSwitch);
+        emgControlSwitch = findViewById(R.id.emgControlSwitch);
+        controlLatencyText = findViewById(R.id.controlLatencyText);
 
         // Set max values for seek bars
         for (SeekBar seekBar : motorSeekBars) {
@@ -107,6 +143,12 @@ public class ControlActivity extends AppCompatActivity {
                     @Override
                     public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                         updateMotorValue(motorIndex, progress);
+                        if (fromUser && isStreaming()) {
+                            bluetoothService.streamMotorPosition(
+                                motorIndex + 1,
+                                toHardwarePosition(motorIndex, progress)
+                            );
+                        }
                     }
 
                     @Override
@@ -114,7 +156,10 @@ public class ControlActivity extends AppCompatActivity {
 
                     @Override
                     public void onStopTrackingTouch(SeekBar seekBar) {
-                        sendMotorValueToHardware(motorIndex, seekBar.getProgress());
+                        // While streaming the final value is already in its slot
+                        if (!isStreaming()) {
+                            sendMotorValueToHardware(motorIndex, seekBar.getProgress());
+                        }
                     }
                 }
             );
@@ -125,6 +170,120 @@ public class ControlActivity extends AppCompatActivity {
         saveButton.setOnClickListener(v -> saveMotorPositions());
         resetButton.setOnClickListener(v -> resetMotorPositions());
         emergencyStopButton.setOnClickListener(v -> handleEmergencyStop());
+        setupPresetButton(openHandButton, Gesture.OPEN);
+        setupPresetButton(closeHandButton, Gesture.CLOSED);
+        setupPresetButton(peaceButton, Gesture.PEACE);
+        exerciseButton.setOnClickListener(v -> toggleExercise());
+
+        liveTrackingSwitch.setChecked(
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                .getBoolean(KEY_LIVE_TRACKING, false)
+        );
+        liveTrackingSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_LIVE_TRACKING, isChecked)
+                .apply();
+            updateControlMode();
+        });
+        // Not persisted: muscle control is always switched on deliberately
+        emgControlSwitch.setOnCheckedChangeListener(
+            (buttonView, isChecked) -> updateControlMode()
+        );
+    }
+
+    /**
+     * EMG control takes over the motors; otherwise the sliders drive them.
+     * Once the user has trained gestures in calibration, each recognised
+     * gesture glides the hand to its preset; before that, grip strength
+     * closes the hand proportionally.
+     */
+    private void updateControlMode() {
+        if (bluetoothService == null) {
+            return;
+        }
+        boolean emgControl = emgControlSwitch.isChecked();
+        for (SeekBar seekBar : motorSeekBars) {
+            seekBar.setEnabled(!emgControl);
+        }
+        uiHandler.removeCallbacks(latencyRefresh);
+        stopGestureControl();
+        if (emgControl && bluetoothService.hasGestureClassifier()) {
+            exerciseButton.setText(R.string.exercise_cycle);
+            bluetoothService.stopProportionalControl();
+            bluetoothService.stopStreaming();
+            controlLatencyText.setVisibility(View.GONE);
+            gestureSubscription = bluetoothService.addOnGestureListener(
+                (gesture, sampleTimeNanos) -> uiHandler.post(() -> onGesture(gesture))
+            );
+        } else if (emgControl) {
+            exerciseButton.setText(R.string.exercise_cycle);
+            bluetoothService.startProportionalControl(
+                toHardwarePose(presetPose(Gesture.OPEN)),
+                toHardwarePose(presetPose(Gesture.CLOSED)),
+                STREAM_RATE_HZ
+            );
+            controlLatencyText.setVisibility(View.VISIBLE);
+            latencyRefresh.run();
+        } else {
+            bluetoothService.stopProportionalControl();
+            controlLatencyText.setVisibility(View.GONE);
+            updateStreaming();
+        }
+    }
+
+    // Main thread; ignores gestures that arrive after control was switched off
+    private void onGesture(Gesture gesture) {
+        if (
+            gestureSubscription != null &&
+            emgControlSwitch.isChecked() &&
+            bluetoothService != null &&
+            bluetoothService.isConnected()
+        ) {
+            moveToPose(presetPose(gesture));
+        }
+    }
+
+    private void stopGestureControl() {
+        if (gestureSubscription != null) {
+            gestureSubscription.remove();
+            gestureSubscription = null;
+        }
+    }
+
+    private final Runnable latencyRefresh = new Runnable() {
+        @Override
+        public void run() {
+            LatencyStats latency = bluetoothService.getControlLatency();
+            controlLatencyText.setText(
+                getString(
+                    R.string.control_latency,
+                    latency.getMeanMillis(),
+                    latency.getMaxMillis()
+                )
+            );
+            uiHandler.postDelayed(this, LATENCY_REFRESH_MS);
+        }
+    };
+
+    // Live tracking sends positions while the slider is dragged, at a fixed rate
+    private void updateStreaming() {
+        if (bluetoothService == null) {
+            return;
+        }
+        if (liveTrackingSwitch.isChecked()) {
+            int[] pose = new int[NUM_MOTORS];
+            for (int i = 0; i < NUM_MOTORS; i++) {
+                pose[i] = toHardwarePosition(i, motorSeekBars[i].getProgress());
+            }
+            bluetoothService.startStreaming(pose, STREAM_RATE_HZ);
+        } else {
+            bluetoothService.stopStreaming();
+        }
+    }
+
+    private boolean isStreaming() {
+        return bluetoothService != null && bluetoothService.isStreaming();
     }
 
     private void setupBottomNavigation() {
@@ -157,47 +316,155 @@ public class ControlActivity extends AppCompatActivity {
         motorValues[motorIndex].setText(String.format("%d°", value));
     }
 
+    // Motor 1 is mounted mirrored, so its angle is inverted on the wire
+    private int toHardwarePosition(int motorIndex, int value) {
+        return motorIndex == 0 ? MAX_ANGLE - value : value;
+    }
+
     private void sendMotorValueToHardware(int motorIndex, int value) {
         if (bluetoothService != null && bluetoothService.isConnected()) {
-            if (motorIndex==0){
-                value = 180-value;
+            bluetoothService.sendMotorCommand(
+                motorIndex + 1,
+                toHardwarePosition(motorIndex, value)
+            );
+        } else {
+            showError("Not connected to device");
+        }
+    }
+
+    // Sends all motor targets in one frame so the hand moves to the pose atomically
+    private void sendPoseToHardware(int[] pose) {
+        if (bluetoothService != null && bluetoothService.isConnected()) {
+            int[] hardwarePose = new int[NUM_MOTORS];
+            for (int i = 0; i < NUM_MOTORS; i++) {
+                hardwarePose[i] = toHardwarePosition(i, pose[i]);
             }
-            bluetoothService.sendMotorCommand(motorIndex + 1, value);
+            bluetoothService.sendPose(hardwarePose);
         } else {
             showError("Not connected to device");
         }
     }
 
-    private void saveMotorPositions() {
-        SharedPreferences.Editor editor = getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit();
+    private void applyPose(int[] pose) {
+        showPose(pose);
+        sendPoseToHardware(pose);
+    }
+
+    private void showPose(int[] pose) {
         for (int i = 0; i < motorSeekBars.length; i++) {
-            editor.putInt("motor" + i, motorSeekBars[i].getProgress());
+            motorSeekBars[i].setProgress(pose[i]);
+            updateMotorValue(i, pose[i]);
         }
-        editor.apply();
+    }
+
+    // Glides from the current slider positions instead of jumping, to spare the servos
+    private void moveToPose(int[] pose) {
+        if (bluetoothService != null && bluetoothService.isConnected()) {
+            exerciseButton.setText(R.string.exercise_cycle);
+            bluetoothService.moveToPose(
+                toHardwarePose(currentPose()),
+                toHardwarePose(pose),
+                Trajectory.Profile.MINIMUM_JERK
+            );
+        } else {
+            showError("Not connected to device");
+        }
+        showPose(pose);
+    }
+
+    // Tap applies the preset, long press stores the current sliders as it
+    private void setupPresetButton(MaterialButton button, Gesture gesture) {
+        button.setOnClickListener(v -> applyPose(presetPose(gesture)));
+        button.setOnLongClickListener(v -> {
+            poseLibrary.put(PoseLibrary.nameOf(gesture), currentPose());
+            Toast.makeText(this, "Preset saved", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+    }
+
+    private int[] presetPose(Gesture gesture) {
+        int[] pose = poseLibrary.get(PoseLibrary.nameOf(gesture));
+        if (pose != null) {
+            return pose;
+        }
+        switch (gesture) {
+            case CLOSED:
+                return CLOSED_POSITION;
+            case PEACE:
+                return PEACE_POSITION;
+            default:
+                return OPEN_POSITION;
+        }
+    }
+
+    // Open/close cycles from the presets, timed by the service's macro player
+    private void toggleExercise() {
+        if (bluetoothService != null && bluetoothService.isMacroPlaying()) {
+            bluetoothService.stopMacro();
+            exerciseButton.setText(R.string.exercise_cycle);
+            return;
+        }
+        if (checkConnection()) {
+            return;
+        }
+        // The macro takes over the motors, as EMG control would
+        emgControlSwitch.setChecked(false);
+        Macro exercise = new Macro("exercise", NUM_MOTORS, EXERCISE_CYCLES)
+            .addStep(toHardwarePose(presetPose(Gesture.OPEN)), EXERCISE_HOLD_MS)
+            .addStep(toHardwarePose(presetPose(Gesture.CLOSED)), EXERCISE_HOLD_MS);
+        boolean started = bluetoothService.playMacro(exercise, (name, completed) -> {
+            // A newer macro may already be playing
+            if (bluetoothService != null && !bluetoothService.isMacroPlaying()) {
+                exerciseButton.setText(R.string.exercise_cycle);
+            }
+        });
+        if (started) {
+            exerciseButton.setText(R.string.stop_exercise);
+        }
+    }
+
+    private int[] toHardwarePose(int[] pose) {
+        int[] hardware = new int[NUM_MOTORS];
+        for (int i = 0; i < NUM_MOTORS; i++) {
+            hardware[i] = toHardwarePosition(i, pose[i]);
+        }
+        return hardware;
+    }
+
+    private int[] currentPose() {
+        int[] pose = new int[NUM_MOTORS];
+        for (int i = 0; i < NUM_MOTORS; i++) {
+            pose[i] = motorSeekBars[i].getProgress();
+        }
+        return pose;
+    }
+
+    private void saveMotorPositions() {
+        poseLibrary.put(SharedPoseLibrary.SAVED_POSE, currentPose());
         Toast.makeText(this, "Positions saved", Toast.LENGTH_SHORT).show();
     }
 
     private void loadSavedPositions() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        for (int i = 0; i < motorSeekBars.length; i++) {
-            int savedPosition = prefs.getInt("motor" + i, 0);
-            motorSeekBars[i].setProgress(savedPosition);
-            updateMotorValue(i, savedPosition);
-        }
+        int[] saved = poseLibrary.get(SharedPoseLibrary.SAVED_POSE);
+        showPose(saved != null ? saved : new int[NUM_MOTORS]);
     }
 
     private void resetMotorPositions() {
-        for (int i = 0; i < motorSeekBars.length; i++) {
-            motorSeekBars[i].setProgress(OPEN_POSITION[i]);
-            updateMotorValue(i, OPEN_POSITION[i]);
-            sendMotorValueToHardware(i, OPEN_POSITION[i]);
-        }
+        moveToPose(OPEN_POSITION);
     }
 
     private void handleEmergencyStop() {
         if (bluetoothService != null) {
             bluetoothService.sendEmergencyStop();
-            resetMotorPositions();
+            // The service has already dropped EMG control; bring the UI in line
+            emgControlSwitch.setChecked(false);
+            exerciseButton.setText(R.string.exercise_cycle);
+            // The hand freezes where it is, so show the last pose it was sent;
+            // the mapping to hardware positions is its own inverse
+            int[] commanded = bluetoothService.getLastCommandedPose();
+            if (commanded != null && commanded.length >= NUM_MOTORS) {
+                showPose(toHardwarePose(commanded));
+            }
             Toast.makeText(this, "Emergency Stop Activated", Toast.LENGTH_SHORT).show();
         }
     }
@@ -226,11 +493,36 @@ public class ControlActivity extends AppCompatActivity {
         runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_SHORT).show());
     }
 
+    // The service keeps the link at its lowest latency while this screen is in front
+    @Override
+    protected void onResume() {
+        super.onResume();
+        resumed = true;
+        if (bluetoothService != null) {
+            bluetoothService.setControlScreenActive(true);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        resumed = false;
+        if (bluetoothService != null) {
+            bluetoothService.setControlScreenActive(false);
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        uiHandler.removeCallbacks(latencyRefresh);
+        stopGestureControl();
         if (serviceBound) {
-            saveMotorPositions();
+            bluetoothService.stopProportionalControl();
+            bluetoothService.stopMacro();
+            bluetoothService.stopStreaming();
+            // Only marks the library dirty; the write happens in the background
+            poseLibrary.put(SharedPoseLibrary.SAVED_POSE, currentPose());
             unbindService(serviceConnection);
             serviceBound = false;
         }
@@ -23,6 +23,8 @@ import androidx.cardview.widget.CardView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import com.example.handcontroller.services.BluetoothService;
+import com.example.handcontroller.services.ListenerSubscription;
+import com.example.handcontroller.transport.LinkQualityMonitor;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
 import java.util.ArrayList;
@@ -40,9 +42,18 @@ public class MainActivity extends AppCompatActivity {
     private BluetoothService bluetoothService;
     private boolean serviceBound = false;
     private static final long SCAN_PERIOD = 10000; // 10 seconds
+    private static final long SCAN_REFRESH_MS = 500;
+    // Dialog rows, in the order the service reported each device once
     private ArrayList<BluetoothDevice> scannedDevices;
+    private ArrayAdapter<String> deviceListAdapter;
+    private AlertDialog deviceDialog;
+    private ListenerSubscription deviceFoundSubscription;
     private static final int PERMISSION_REQUEST_CODE = 100;
 
+    // Live link quality while connected
+    private static final long LINK_QUALITY_REFRESH_MS = 1000;
+    private final Handler uiHandler = new Handler();
+
     // Bluetooth Enable Launcher
     private final ActivityResultLauncher<Intent> bluetoothEnableLauncher =
         registerForActivityResult(
@@ -73,11 +84,8 @@ public class MainActivity extends AppCompatActivity {
                 bluetoothService = binder.getService();
                 serviceBound = true;
                 setupBluetoothCallbacks();
-                updateConnectionState(
-                    bluetoothService.isConnected()
-                        ? BluetoothService.STATE_CONNECTED
-                        : BluetoothService.STATE_NONE
-                );
+                // The service may already be connecting to the last used hand
+                updateConnectionState(bluetoothService.getConnectionState());
             }
 
             @Override
@@ -137,19 +145,22 @@ public class MainActivity extends AppCompatActivity {
 
     private void setupBluetoothCallbacks() {
         if (bluetoothService != null) {
-            bluetoothService.setOnConnectionStateChangeListener(
-                new BluetoothService.OnConnectionStateChangeListener() {
-                    @Override
-                    public void onStateChanged(int state) {
-                        updateConnectionState(state);
-                    }
+            bluetoothService
+                .addOnConnectionStateChangeListener(
+                    new BluetoothService.OnConnectionStateChangeListener() {
+                        @Override
+                        public void onStateChanged(int state) {
+                            updateConnectionState(state);
+                        }
 
-                    @Override
-                    public void onConnectionError(String message) {
-                        showError(message);
-                    }
-                }
-            );
+                        @Override
+                        public void onConnectionError(String message) {
+                            showError(message);
+                        }
+                    },
+                    BluetoothService.Delivery.MAIN
+                )
+                .removeOnDestroy(this);
         }
     }
 
@@ -253,6 +264,7 @@ public class MainActivity extends AppCompatActivity {
             this,
             android.R.layout.simple_list_item_1
         );
+        this.deviceListAdapter = deviceListAdapter;
 
         builder.setAdapter(deviceListAdapter, (dialog, which) -> {
             BluetoothDevice device = scannedDevices.get(which);
@@ -266,20 +278,24 @@ public class MainActivity extends AppCompatActivity {
         });
 
         AlertDialog dialog = builder.create();
+        dialog.setOnDismissListener(d -> {
+            removeDeviceFoundListener();
+            uiHandler.removeCallbacks(scanRefresh);
+            if (bluetoothService != null) {
+                bluetoothService.stopScan();
+            }
+            deviceDialog = null;
+        });
         dialog.show();
+        deviceDialog = dialog;
 
         if (bluetoothService != null) {
-            bluetoothService.setOnDeviceFoundListener(device -> {
+            removeDeviceFoundListener();
+            // The service reports each device once, so no duplicate check is needed
+            deviceFoundSubscription = bluetoothService.addOnDeviceFoundListener(device -> {
                 try {
-                    if (!scannedDevices.contains(device)) {
-                        scannedDevices.add(device);
-                        String deviceName = device.getName();
-                        if (deviceName == null) deviceName = "Unknown Device";
-                        String deviceInfo =
-                            deviceName + " (" + device.getAddress() + ")";
-
-                        runOnUiThread(() -> deviceListAdapter.add(deviceInfo));
-                    }
+                    scannedDevices.add(device);
+                    deviceListAdapter.add(describeDevice(device));
                 } catch (SecurityException e) {
                     Log.e(
                         TAG,
@@ -290,10 +306,13 @@ public class MainActivity extends AppCompatActivity {
                         "Permission denied: Unable to access device information"
                     );
                 }
-            });
+            }, BluetoothService.Delivery.MAIN);
+            deviceFoundSubscription.removeOnDestroy(this);
 
             try {
+                // Unfiltered, so the user can pick a hand other than the last one
                 bluetoothService.startScan();
+                uiHandler.postDelayed(scanRefresh, SCAN_REFRESH_MS);
             } catch (SecurityException e) {
                 Log.e(
                     TAG,
@@ -304,12 +323,12 @@ public class MainActivity extends AppCompatActivity {
                 return;
             }
 
-            new Handler()
+            uiHandler
                 .postDelayed(
                     () -> {
                         try {
                             bluetoothService.stopScan();
-                            if (deviceListAdapter.getCount() == 0) {
+                            if (dialog.isShowing() && deviceListAdapter.getCount() == 0) {
                                 runOnUiThread(() -> {
                                     dialog.dismiss();
                                     showError("No devices found");
@@ -331,20 +350,64 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Name, address and smoothed signal strength of a scanned device
+    private String describeDevice(BluetoothDevice device) {
+        String deviceName = device.getName();
+        if (deviceName == null) deviceName = "Unknown Device";
+        Integer rssi = bluetoothService.getScanRssi(device.getAddress());
+        return rssi == null
+            ? deviceName + " (" + device.getAddress() + ")"
+            : deviceName + " (" + device.getAddress() + ", " + rssi + " dBm)";
+    }
+
+    // Keeps the signal strengths in the device dialog current while scanning
+    private final Runnable scanRefresh = new Runnable() {
+        @Override
+        public void run() {
+            if (
+                deviceDialog == null ||
+                bluetoothService == null ||
+                !bluetoothService.isScanning()
+            ) {
+                return;
+            }
+            try {
+                deviceListAdapter.setNotifyOnChange(false);
+                deviceListAdapter.clear();
+                for (BluetoothDevice device : scannedDevices) {
+                    deviceListAdapter.add(describeDevice(device));
+                }
+                deviceListAdapter.notifyDataSetChanged();
+            } catch (SecurityException e) {
+                Log.e(TAG, "Security Exception while refreshing devices: " + e.getMessage());
+            }
+            uiHandler.postDelayed(this, SCAN_REFRESH_MS);
+        }
+    };
+
+    private void removeDeviceFoundListener() {
+        if (deviceFoundSubscription != null) {
+            deviceFoundSubscription.remove();
+            deviceFoundSubscription = null;
+        }
+    }
+
     private void updateConnectionState(int state) {
         runOnUiThread(() -> {
             switch (state) {
                 case BluetoothService.STATE_CONNECTED:
                     connectionStatusText.setText(R.string.connected);
                     connectionStatusText.setTextColor(Color.GREEN);
+                    dismissDeviceDialog();
                     connectButton.setText(R.string.disconnect);
-                    signalStrengthText.setText(
-                        getString(R.string.signal_strength, "Strong")
-                    );
+                    uiHandler.removeCallbacks(linkQualityRefresh);
+                    linkQualityRefresh.run();
                     break;
                 case BluetoothService.STATE_CONNECTING:
                     connectionStatusText.setText(R.string.connecting);
                     connectionStatusText.setTextColor(Color.YELLOW);
+                    dismissDeviceDialog();
+                    uiHandler.removeCallbacks(linkQualityRefresh);
                     signalStrengthText.setText(
                         getString(R.string.signal_strength, "Connecting...")
                     );
@@ -353,6 +416,7 @@ public class MainActivity extends AppCompatActivity {
                     connectionStatusText.setText(R.string.disconnected);
                     connectionStatusText.setTextColor(Color.RED);
                     connectButton.setText(R.string.connect_to_bluetooth);
+                    uiHandler.removeCallbacks(linkQualityRefresh);
                     signalStrengthText.setText(
                         getString(R.string.signal_strength, "None")
                     );
@@ -361,6 +425,44 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    // A connection was started, possibly by the scan finding the last used hand
+    private void dismissDeviceDialog() {
+        if (deviceDialog != null) {
+            deviceDialog.dismiss();
+        }
+    }
+
+    private final Runnable linkQualityRefresh = new Runnable() {
+        @Override
+        public void run() {
+            if (bluetoothService == null || !bluetoothService.isConnected()) {
+                return;
+            }
+            signalStrengthText.setText(
+                getString(R.string.signal_strength, describeLinkQuality())
+            );
+            uiHandler.postDelayed(this, LINK_QUALITY_REFRESH_MS);
+        }
+    };
+
+    // RSSI, p95 ping round trip and loss, once the first probes are back
+    private String describeLinkQuality() {
+        LinkQualityMonitor quality = bluetoothService.getLinkQuality();
+        if (quality.getRssi() == LinkQualityMonitor.NO_RSSI) {
+            return getString(R.string.link_quality_measuring);
+        }
+        if (!quality.hasEcho()) {
+            // Firmware without ping echo: only the signal strength is known
+            return getString(R.string.link_quality_rssi, quality.getRssi());
+        }
+        return getString(
+            R.string.link_quality,
+            quality.getRssi(),
+            quality.getRoundTrip().getPercentile(95) / 1000,
+            Math.round(quality.getLossRatio() * 100)
+        );
+    }
+
     private void showError(String message) {
         runOnUiThread(() -> {
             Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
@@ -398,6 +500,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        uiHandler.removeCallbacksAndMessages(null);
         if (serviceBound) {
             unbindService(serviceConnection);
             serviceBound = false;
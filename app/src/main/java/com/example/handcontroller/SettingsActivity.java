@@ -17,10 +17,13 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.handcontroller.gesture.Gesture;
+import com.example.handcontroller.protocol.ProtocolMode;
 import com.example.handcontroller.services.BluetoothService;
 import com.example.handcontroller.utils.InstructionManager;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.switchmaterial.SwitchMaterial;
 import java.util.Locale;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -34,6 +37,7 @@ public class SettingsActivity extends AppCompatActivity {
     private TextView selectLanguage;
     private MaterialButton autoCalibrateButton;
     private TextView calibrationInstructions;
+    private SwitchMaterial binaryProtocolSwitch;
 
     // Managers and Services
     private InstructionManager instructionManager;
@@ -54,6 +58,7 @@ public class SettingsActivity extends AppCompatActivity {
                 bluetoothService = binder.getService();
                 serviceBound = true;
                 setupBluetoothCallbacks();
+                setupProtocolSwitch();
             }
 
             @Override
@@ -79,6 +84,7 @@ public class SettingsActivity extends AppCompatActivity {
         selectLanguage = findViewById(R.id.selectLanguage);
         autoCalibrateButton = findViewById(R.id.autocalibrate);
         calibrationInstructions = findViewById(R.id.calibrationInstructions);
+        binaryProtocolSwitch = findViewById(R.id.binaryProtocolSwitch);
     }
 
     private void setupListeners() {
@@ -117,22 +123,40 @@ public class SettingsActivity extends AppCompatActivity {
 
     private void setupBluetoothCallbacks() {
         if (bluetoothService != null) {
-            bluetoothService.setOnConnectionStateChangeListener(
-                new BluetoothService.OnConnectionStateChangeListener() {
-                    @Override
-                    public void onStateChanged(int state) {
-                        updateConnectionState(state);
-                    }
-
-                    @Override
-                    public void onConnectionError(String message) {
-                        showError(message);
-                    }
-                }
-            );
+            bluetoothService
+                .addOnConnectionStateChangeListener(
+                    new BluetoothService.OnConnectionStateChangeListener() {
+                        @Override
+                        public void onStateChanged(int state) {
+                            updateConnectionState(state);
+                        }
+
+                        @Override
+                        public void onConnectionError(String message) {
+                            showError(message);
+                        }
+                    },
+                    BluetoothService.Delivery.MAIN
+                )
+                .removeOnDestroy(this);
         }
     }
 
+    // The service owns the saved choice; the switch stays disabled until it is bound
+    private void setupProtocolSwitch() {
+        binaryProtocolSwitch.setChecked(
+            bluetoothService.getSavedProtocolMode() == ProtocolMode.BINARY
+        );
+        binaryProtocolSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (bluetoothService != null) {
+                bluetoothService.setProtocolMode(
+                    isChecked ? ProtocolMode.BINARY : ProtocolMode.ASCII
+                );
+            }
+        });
+        binaryProtocolSwitch.setEnabled(true);
+    }
+
     private void startCalibration() {
         if (bluetoothService == null || !bluetoothService.isConnected()) {
             showError("Please connect to device first");
@@ -140,6 +164,8 @@ public class SettingsActivity extends AppCompatActivity {
         }
 
         autoCalibrateButton.setVisibility(View.GONE);
+        bluetoothService.clearGestureTraining();
+        bluetoothService.startEmgCalibration();
         try {
             JSONObject initialResponse = new JSONObject();
             initialResponse.put("calibration_state", "INITIAL");
@@ -148,6 +174,7 @@ public class SettingsActivity extends AppCompatActivity {
             );
             updateCalibrationInstructions();
             bluetoothService.sendCalibrationCommand("START");
+            recordCurrentStep();
         } catch (JSONException e) {
             Log.e(TAG, "Error creating calibration JSON: " + e.getMessage());
             showError("Error starting calibration");
@@ -166,12 +193,65 @@ public class SettingsActivity extends AppCompatActivity {
                     instructionManager.getCurrentInstruction();
                 calibrationInstructions.setText(nextInstruction);
                 sendCalibrationStep();
+                recordCurrentStep();
             } else {
-                finishCalibration();
+                String nextStage = nextCalibrationStage(
+                    instructionManager.getCurrentCalibrationState()
+                );
+                if (nextStage != null) {
+                    startCalibrationStage(nextStage);
+                } else {
+                    finishCalibration();
+                }
             }
         });
     }
 
+    // Relaxed baseline, then per-sensor contractions, then gestures for the classifier
+    private static String nextCalibrationStage(String state) {
+        if ("INITIAL".equals(state)) {
+            return "GRIP_CALIBRATION";
+        }
+        if ("GRIP_CALIBRATION".equals(state)) {
+            return "GESTURE_TRAINING";
+        }
+        return null;
+    }
+
+    private void startCalibrationStage(String state) {
+        try {
+            JSONObject stageResponse = new JSONObject();
+            stageResponse.put("calibration_state", state);
+            instructionManager.updateInstructionsFromApiResponse(
+                stageResponse
+            );
+            calibrationInstructions.setText(
+                instructionManager.getCurrentInstruction()
+            );
+            sendCalibrationStep();
+            recordCurrentStep();
+        } catch (JSONException e) {
+            Log.e(TAG, "Error creating calibration JSON: " + e.getMessage());
+            showError("Error continuing calibration");
+        }
+    }
+
+    // Tells the service what the user is doing during the instruction now shown
+    private void recordCurrentStep() {
+        if (bluetoothService == null) {
+            return;
+        }
+        bluetoothService.setCalibrationPhase(
+            instructionManager.getCurrentPhase()
+        );
+        Gesture gesture = instructionManager.getCurrentGesture();
+        if (gesture != null) {
+            bluetoothService.startGestureRecording(gesture);
+        } else {
+            bluetoothService.stopGestureRecording();
+        }
+    }
+
     private void sendCalibrationStep() {
         if (bluetoothService != null && bluetoothService.isConnected()) {
             bluetoothService.sendCalibrationCommand("STEP");
@@ -179,6 +259,14 @@ public class SettingsActivity extends AppCompatActivity {
     }
 
     private void finishCalibration() {
+        if (bluetoothService != null) {
+            bluetoothService.stopGestureRecording();
+            // Reports its own error through the connection listener
+            bluetoothService.finishEmgCalibration();
+            if (!bluetoothService.trainGestureClassifier()) {
+                showError("Not enough gesture data, please calibrate again");
+            }
+        }
         try {
             JSONObject completedResponse = new JSONObject();
             completedResponse.put("calibration_state", "COMPLETED");
@@ -320,6 +408,8 @@ public class SettingsActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         if (serviceBound) {
+            bluetoothService.stopGestureRecording();
+            bluetoothService.setCalibrationPhase(null);
             unbindService(serviceConnection);
             serviceBound = false;
         }
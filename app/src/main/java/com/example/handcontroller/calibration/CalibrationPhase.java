@@ -0,0 +1,21 @@
+package com.example.handcontroller.calibration;
+
+// What the user is doing during a calibration step, and so what is measured
+public enum CalibrationPhase {
+    // Hand relaxed: baseline noise on every channel
+    REST(-1),
+    // Maximum voluntary contraction of the muscle under one sensor
+    FLEX_SENSOR_0(0),
+    FLEX_SENSOR_1(1);
+
+    private final int channel;
+
+    CalibrationPhase(int channel) {
+        this.channel = channel;
+    }
+
+    // Channel being contracted, or -1 for REST
+    public int channel() {
+        return channel;
+    }
+}
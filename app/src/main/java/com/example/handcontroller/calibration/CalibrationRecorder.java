@@ -0,0 +1,119 @@
+package com.example.handcontroller.calibration;
+
+import com.example.handcontroller.utils.RunningStats;
+
+/**
+ * Accumulates envelope statistics for each calibration phase and turns
+ * them into an EmgProfile. Resting noise comes from every REST step on
+ * every channel; a channel's MVC comes only from the steps that flex it.
+ * Not thread safe.
+ */
+public class CalibrationRecorder {
+
+    // About half a second of samples at the device rate
+    public static final int MIN_SAMPLES = 500;
+    // Contraction must clear the activation threshold by this factor
+    private static final float MIN_CONTRAST = 1.5f;
+
+    private final int channels;
+    private final int settleFrames;
+    private final RunningStats[] rest;
+    private final RunningStats[] flex;
+    private CalibrationPhase phase;
+    private int settleRemaining;
+
+    /**
+     * @param settleFrames frames ignored after each phase change, so the
+     *     envelope's memory of the previous phase does not leak into this one
+     */
+    public CalibrationRecorder(int channels, int settleFrames) {
+        this.channels = channels;
+        this.settleFrames = settleFrames;
+        rest = new RunningStats[channels];
+        flex = new RunningStats[channels];
+        for (int ch = 0; ch < channels; ch++) {
+            rest[ch] = new RunningStats();
+            flex[ch] = new RunningStats();
+        }
+    }
+
+    // Phase the following samples belong to, or null to ignore them
+    public void setPhase(CalibrationPhase phase) {
+        if (phase != null && phase.channel() >= channels) {
+            throw new IllegalArgumentException("No channel for " + phase);
+        }
+        this.phase = phase;
+        settleRemaining = settleFrames;
+    }
+
+    public CalibrationPhase getPhase() {
+        return phase;
+    }
+
+    /** Adds frames of interleaved envelope values for the current phase. */
+    public void add(float[] envelope, int frames) {
+        CalibrationPhase current = phase;
+        if (current == null) {
+            return;
+        }
+        int channel = current.channel();
+        int frame = Math.min(settleRemaining, frames);
+        settleRemaining -= frame;
+        for (; frame < frames; frame++) {
+            int base = frame * channels;
+            if (channel < 0) {
+                for (int ch = 0; ch < channels; ch++) {
+                    rest[ch].add(envelope[base + ch]);
+                }
+            } else {
+                flex[channel].add(envelope[base + channel]);
+            }
+        }
+    }
+
+    public long getRestSampleCount(int channel) {
+        return rest[channel].getCount();
+    }
+
+    public long getFlexSampleCount(int channel) {
+        return flex[channel].getCount();
+    }
+
+    /**
+     * Builds the profile from everything recorded. Throws
+     * IllegalStateException naming the first channel whose data is missing
+     * or whose contraction is indistinguishable from rest.
+     */
+    public EmgProfile buildProfile() {
+        float[] restMean = new float[channels];
+        float[] restStdDev = new float[channels];
+        float[] mvc = new float[channels];
+        for (int ch = 0; ch < channels; ch++) {
+            if (rest[ch].getCount() < MIN_SAMPLES) {
+                throw new IllegalStateException("Too little rest data on sensor " + ch);
+            }
+            if (flex[ch].getCount() < MIN_SAMPLES) {
+                throw new IllegalStateException("Too little contraction data on sensor " + ch);
+            }
+            restMean[ch] = (float) rest[ch].getMean();
+            restStdDev[ch] = (float) rest[ch].getStdDev();
+            // The envelope is already smoothed, so its peak is a usable MVC
+            mvc[ch] = (float) flex[ch].getMax();
+            float threshold = restMean[ch] + EmgProfile.THRESHOLD_STD_DEVS * restStdDev[ch];
+            if (mvc[ch] < threshold * MIN_CONTRAST) {
+                throw new IllegalStateException(
+                    "Contraction on sensor " + ch + " is too weak to tell from rest"
+                );
+            }
+        }
+        return new EmgProfile(restMean, restStdDev, mvc);
+    }
+
+    public void reset() {
+        phase = null;
+        for (int ch = 0; ch < channels; ch++) {
+            rest[ch].reset();
+            flex[ch].reset();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.handcontroller.calibration;
+
+/**
+ * Per-user, per-channel EMG calibration result: the envelope's resting
+ * mean and noise, the activation threshold above it and the maximum
+ * voluntary contraction (MVC). Immutable.
+ */
+public class EmgProfile {
+
+    // Activation threshold sits this many standard deviations above rest
+    public static final float THRESHOLD_STD_DEVS = 3f;
+    // Full proportional output at this fraction of MVC, which users can sustain
+    public static final float CONTROL_MVC_FRACTION = 0.7f;
+
+    private final float[] restMean;
+    private final float[] restStdDev;
+    private final float[] mvc;
+
+    public EmgProfile(float[] restMean, float[] restStdDev, float[] mvc) {
+        if (restMean.length != restStdDev.length || restMean.length != mvc.length) {
+            throw new IllegalArgumentException("Channel counts differ");
+        }
+        this.restMean = restMean.clone();
+        this.restStdDev = restStdDev.clone();
+        this.mvc = mvc.clone();
+    }
+
+    public int getChannelCount() {
+        return restMean.length;
+    }
+
+    public float getRestMean(int channel) {
+        return restMean[channel];
+    }
+
+    public float getRestStdDev(int channel) {
+        return restStdDev[channel];
+    }
+
+    public float getMvc(int channel) {
+        return mvc[channel];
+    }
+
+    // Envelope level above which the muscle counts as active
+    public float getThreshold(int channel) {
+        return restMean[channel] + THRESHOLD_STD_DEVS * restStdDev[channel];
+    }
+
+    // Envelope level mapped to full proportional output
+    public float getControlMax(int channel) {
+        float threshold = getThreshold(channel);
+        return threshold + (mvc[channel] - threshold) * CONTROL_MVC_FRACTION;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.handcontroller.control;
+
+import java.util.Arrays;
+
+/**
+ * Maps EMG envelope levels onto a hand pose between an open and a closed
+ * preset. Each channel is normalised against the user's rest and maximum
+ * contraction levels. The grip channel closes the hand and the optional
+ * extend channel opens it again. A deadband ignores low-level
+ * activity and hysteresis keeps the output still while the level jitters.
+ */
+public class ProportionalMapper {
+
+    public static final float DEFAULT_DEADBAND = 0.05f;
+    public static final float DEFAULT_HYSTERESIS = 0.02f;
+
+    private final int[] openPose;
+    private final int[] closedPose;
+    private final int closeChannel;
+    private final int openChannel;
+    private final float[] rest;
+    private final float[] max;
+    private float deadband = DEFAULT_DEADBAND;
+    private float hysteresis = DEFAULT_HYSTERESIS;
+    private float level;
+
+    /**
+     * @param closeChannel envelope channel that closes the hand
+     * @param openChannel envelope channel that opens it, or -1 for none
+     */
+    public ProportionalMapper(
+        int[] openPose,
+        int[] closedPose,
+        int channelCount,
+        int closeChannel,
+        int openChannel
+    ) {
+        if (openPose.length != closedPose.length) {
+            throw new IllegalArgumentException("Pose lengths differ");
+        }
+        if (closeChannel < 0 || closeChannel >= channelCount) {
+            throw new IllegalArgumentException("Invalid close channel: " + closeChannel);
+        }
+        if (openChannel >= channelCount || openChannel == closeChannel) {
+            throw new IllegalArgumentException("Invalid open channel: " + openChannel);
+        }
+        this.openPose = openPose.clone();
+        this.closedPose = closedPose.clone();
+        this.closeChannel = closeChannel;
+        this.openChannel = openChannel;
+        rest = new float[channelCount];
+        max = new float[channelCount];
+        Arrays.fill(max, 1f);
+    }
+
+    // Envelope at rest and at maximum voluntary contraction for one channel
+    public void setChannelRange(int channel, float restLevel, float maxLevel) {
+        if (maxLevel <= restLevel) {
+            throw new IllegalArgumentException(
+                "Max must exceed rest: " + restLevel + ".." + maxLevel
+            );
+        }
+        rest[channel] = restLevel;
+        max[channel] = maxLevel;
+    }
+
+    // Normalised drive below which the hand stays open
+    public void setDeadband(float deadband) {
+        if (deadband < 0 || deadband >= 1) {
+            throw new IllegalArgumentException("Invalid deadband: " + deadband);
+        }
+        this.deadband = deadband;
+    }
+
+    // Smallest level change that moves the hand
+    public void setHysteresis(float hysteresis) {
+        if (hysteresis < 0 || hysteresis >= 1) {
+            throw new IllegalArgumentException("Invalid hysteresis: " + hysteresis);
+        }
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Feeds the latest envelope of every channel. Returns true when the
+     * closure level moved, i.e. when a new pose should be sent.
+     */
+    public boolean update(float[] envelope) {
+        float drive = normalise(envelope, closeChannel);
+        if (openChannel >= 0) {
+            drive -= normalise(envelope, openChannel);
+        }
+
+        float target;
+        if (drive <= deadband) {
+            target = 0;
+        } else {
+            target = Math.min(1f, (drive - deadband) / (1 - deadband));
+        }
+
+        // The end stops are always reachable, whatever the hysteresis
+        boolean endStop = (target == 0 || target == 1) && target != level;
+        if (!endStop && Math.abs(target - level) < hysteresis) {
+            return false;
+        }
+        level = target;
+        return true;
+    }
+
+    // 0 is fully open, 1 fully closed
+    public float getLevel() {
+        return level;
+    }
+
+    // Pose for the current level, interpolated motor by motor
+    public void getPose(int[] out) {
+        for (int i = 0; i < openPose.length; i++) {
+            out[i] = Math.round(openPose[i] + (closedPose[i] - openPose[i]) * level);
+        }
+    }
+
+    public int getMotorCount() {
+        return openPose.length;
+    }
+
+    public void reset() {
+        level = 0;
+    }
+
+    private float normalise(float[] envelope, int channel) {
+        float value = (envelope[channel] - rest[channel]) / (max[channel] - rest[channel]);
+        return Math.max(0f, Math.min(1f, value));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.handcontroller.control;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * One "latest value wins" slot per motor. Writers overwrite the slot and mark
+ * the motor dirty; the flusher drains whatever is newest at its own rate, so
+ * intermediate values are dropped instead of queued.
+ */
+public class SetpointCoalescer {
+
+    private final AtomicIntegerArray positions;
+    private final AtomicInteger dirtyMask = new AtomicInteger();
+
+    public SetpointCoalescer(int motorCount) {
+        if (motorCount <= 0 || motorCount > Integer.SIZE) {
+            throw new IllegalArgumentException(
+                "Invalid motor count: " + motorCount
+            );
+        }
+        positions = new AtomicIntegerArray(motorCount);
+    }
+
+    public int getMotorCount() {
+        return positions.length();
+    }
+
+    // Sets every slot without marking anything dirty
+    public void seed(int[] pose) {
+        for (int i = 0; i < positions.length(); i++) {
+            positions.set(i, pose[i]);
+        }
+        dirtyMask.set(0);
+    }
+
+    public void update(int motorIndex, int position) {
+        positions.set(motorIndex, position);
+        int bit = 1 << motorIndex;
+        int mask;
+        do {
+            mask = dirtyMask.get();
+        } while ((mask & bit) == 0 && !dirtyMask.compareAndSet(mask, mask | bit));
+    }
+
+    // Forgets pending changes, e.g. after an emergency stop
+    public void discard() {
+        dirtyMask.set(0);
+    }
+
+    public boolean isDirty() {
+        return dirtyMask.get() != 0;
+    }
+
+    /**
+     * Copies the full latest pose into out and clears the dirty flags.
+     * Returns the bit mask of motors that changed since the last drain,
+     * or 0 if nothing changed (out is left untouched then).
+     */
+    public int drain(int[] out) {
+        int mask = dirtyMask.getAndSet(0);
+        if (mask == 0) {
+            return 0;
+        }
+        for (int i = 0; i < positions.length(); i++) {
+            out[i] = positions.get(i);
+        }
+        return mask;
+    }
+}
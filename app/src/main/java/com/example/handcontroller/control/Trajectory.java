@@ -0,0 +1,166 @@
+package com.example.handcontroller.control;
+
+/**
+ * Precomputed pose-to-pose move, sampled at a fixed tick rate. Every motor
+ * follows the same time-scaled profile, so all of them start and arrive
+ * together. The duration is the shortest one that keeps every motor within
+ * the velocity and acceleration limits. Immutable once planned.
+ */
+public class Trajectory {
+
+    public enum Profile {
+        // Constant acceleration, cruise, constant deceleration
+        TRAPEZOIDAL,
+        // Fifth-order polynomial with zero velocity and acceleration at both ends
+        MINIMUM_JERK,
+    }
+
+    // Peak velocity and acceleration of the minimum-jerk curve, per unit distance and time
+    private static final double MIN_JERK_PEAK_VELOCITY = 1.875;
+    private static final double MIN_JERK_PEAK_ACCELERATION = 5.7735;
+
+    private final int motorCount;
+    private final int tickRateHz;
+    // [tick * motorCount + motor], tick 0 is the first setpoint after the start pose
+    private final int[] table;
+
+    private Trajectory(int motorCount, int tickRateHz, int[] table) {
+        this.motorCount = motorCount;
+        this.tickRateHz = tickRateHz;
+        this.table = table;
+    }
+
+    /**
+     * @param maxVelocity position units per second
+     * @param maxAcceleration position units per second squared
+     */
+    public static Trajectory plan(
+        int[] from,
+        int[] to,
+        Profile profile,
+        double maxVelocity,
+        double maxAcceleration,
+        int tickRateHz
+    ) {
+        if (from.length != to.length) {
+            throw new IllegalArgumentException("Pose lengths differ");
+        }
+        if (maxVelocity <= 0 || maxAcceleration <= 0 || tickRateHz <= 0) {
+            throw new IllegalArgumentException("Limits and tick rate must be positive");
+        }
+        int motors = from.length;
+        int longest = 0;
+        for (int i = 0; i < motors; i++) {
+            longest = Math.max(longest, Math.abs(to[i] - from[i]));
+        }
+
+        // The longest move sets the pace; shorter ones are slowed to match
+        double duration = minimumDuration(profile, longest, maxVelocity, maxAcceleration);
+        int ticks = Math.max(1, (int) Math.ceil(duration * tickRateHz));
+        duration = ticks / (double) tickRateHz;
+        double cruise = profile == Profile.TRAPEZOIDAL
+            ? trapezoidCruiseFraction(longest, duration, maxAcceleration)
+            : 0;
+
+        int[] table = new int[ticks * motors];
+        for (int tick = 0; tick < ticks; tick++) {
+            double progress = tick == ticks - 1
+                ? 1
+                : progress(profile, (tick + 1) / (double) ticks, cruise);
+            for (int i = 0; i < motors; i++) {
+                table[tick * motors + i] = (int) Math.round(
+                    from[i] + (to[i] - from[i]) * progress
+                );
+            }
+        }
+        return new Trajectory(motors, tickRateHz, table);
+    }
+
+    public int getTickCount() {
+        return table.length / motorCount;
+    }
+
+    public int getTickRateHz() {
+        return tickRateHz;
+    }
+
+    public int getMotorCount() {
+        return motorCount;
+    }
+
+    public long getDurationMillis() {
+        return getTickCount() * 1000L / tickRateHz;
+    }
+
+    public int position(int tick, int motor) {
+        return table[tick * motorCount + motor];
+    }
+
+    // Copies the setpoint of every motor at tick into pose
+    public void pose(int tick, int[] pose) {
+        System.arraycopy(table, tick * motorCount, pose, 0, motorCount);
+    }
+
+    private static double minimumDuration(
+        Profile profile,
+        double distance,
+        double maxVelocity,
+        double maxAcceleration
+    ) {
+        if (distance == 0) {
+            return 0;
+        }
+        if (profile == Profile.MINIMUM_JERK) {
+            return Math.max(
+                MIN_JERK_PEAK_VELOCITY * distance / maxVelocity,
+                Math.sqrt(MIN_JERK_PEAK_ACCELERATION * distance / maxAcceleration)
+            );
+        }
+        if (distance <= maxVelocity * maxVelocity / maxAcceleration) {
+            // Triangle: never reaches cruise speed
+            return 2 * Math.sqrt(distance / maxAcceleration);
+        }
+        return distance / maxVelocity + maxVelocity / maxAcceleration;
+    }
+
+    /**
+     * Fraction of the move spent at cruise speed when covering distance in
+     * exactly duration, accelerating at no more than maxAcceleration.
+     */
+    private static double trapezoidCruiseFraction(
+        double distance,
+        double duration,
+        double maxAcceleration
+    ) {
+        if (distance == 0) {
+            return 1;
+        }
+        // Cruise speed v solves distance = v * (duration - v / a)
+        double a = maxAcceleration;
+        double discriminant = a * a * duration * duration - 4 * a * distance;
+        double v = (a * duration - Math.sqrt(Math.max(0, discriminant))) / 2;
+        double rampTime = v / a;
+        return Math.max(0, 1 - 2 * rampTime / duration);
+    }
+
+    // Normalised position (0..1) at normalised time t (0..1)
+    private static double progress(Profile profile, double t, double cruise) {
+        if (profile == Profile.MINIMUM_JERK) {
+            return t * t * t * (10 - 15 * t + 6 * t * t);
+        }
+        double ramp = (1 - cruise) / 2;
+        if (ramp == 0) {
+            return t;
+        }
+        // Peak normalised speed, so that the area under the speed curve is 1
+        double peak = 1 / (1 - ramp);
+        if (t < ramp) {
+            return peak * t * t / (2 * ramp);
+        }
+        if (t <= 1 - ramp) {
+            return peak * (ramp / 2 + (t - ramp));
+        }
+        double remaining = 1 - t;
+        return 1 - peak * remaining * remaining / (2 * ramp);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.handcontroller.dsp;
+
+/**
+ * Second-order IIR section (transposed direct form II) with coefficients
+ * from the RBJ audio EQ cookbook. Holds its own state, so use one instance
+ * per channel.
+ */
+public class Biquad {
+
+    private final double b0;
+    private final double b1;
+    private final double b2;
+    private final double a1;
+    private final double a2;
+    private double z1;
+    private double z2;
+
+    private Biquad(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = b0 / a0;
+        this.b1 = b1 / a0;
+        this.b2 = b2 / a0;
+        this.a1 = a1 / a0;
+        this.a2 = a2 / a0;
+    }
+
+    public static Biquad highPass(double sampleRateHz, double cutoffHz, double q) {
+        checkFrequency(sampleRateHz, cutoffHz);
+        double w0 = 2 * Math.PI * cutoffHz / sampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        return new Biquad(
+            (1 + cos) / 2,
+            -(1 + cos),
+            (1 + cos) / 2,
+            1 + alpha,
+            -2 * cos,
+            1 - alpha
+        );
+    }
+
+    // Rejects a narrow band around centerHz, e.g. mains hum
+    public static Biquad notch(double sampleRateHz, double centerHz, double q) {
+        checkFrequency(sampleRateHz, centerHz);
+        double w0 = 2 * Math.PI * centerHz / sampleRateHz;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        return new Biquad(1, -2 * cos, 1, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    public double process(double x) {
+        double y = b0 * x + z1;
+        z1 = b1 * x - a1 * y + z2;
+        z2 = b2 * x - a2 * y;
+        return y;
+    }
+
+    public void reset() {
+        z1 = 0;
+        z2 = 0;
+    }
+
+    private static void checkFrequency(double sampleRateHz, double frequencyHz) {
+        if (frequencyHz <= 0 || frequencyHz >= sampleRateHz / 2) {
+            throw new IllegalArgumentException(
+                "Frequency must be between 0 and Nyquist: " + frequencyHz
+            );
+        }
+    }
+}
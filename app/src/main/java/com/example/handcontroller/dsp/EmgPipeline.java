@@ -0,0 +1,130 @@
+package com.example.handcontroller.dsp;
+
+/**
+ * Streaming EMG conditioning for every channel of the sensor stream:
+ * high-pass (removes DC offset and motion artefacts), optional notch
+ * (mains hum), full-wave rectification and a sliding envelope.
+ * All state is allocated up front; process() does not allocate.
+ */
+public class EmgPipeline {
+
+    public static final float DEFAULT_HIGH_PASS_HZ = 20f;
+    public static final float DEFAULT_NOTCH_HZ = 50f;
+    public static final int DEFAULT_ENVELOPE_WINDOW_MS = 100;
+
+    private static final double HIGH_PASS_Q = 0.7071;
+    private static final double NOTCH_Q = 30;
+
+    private final int channels;
+    private final float sampleRateHz;
+    private final Biquad[] highPass;
+    private final Biquad[] notch;
+    private final EnvelopeDetector[] envelope;
+    private final float[] latestEnvelope;
+    private final int envelopeWindow;
+
+    /**
+     * @param notchHz 0 disables the notch stage
+     * @param envelopeWindow envelope length in samples
+     */
+    public EmgPipeline(
+        int channels,
+        float sampleRateHz,
+        float highPassHz,
+        float notchHz,
+        int envelopeWindow,
+        EnvelopeDetector.Mode envelopeMode
+    ) {
+        if (channels <= 0) {
+            throw new IllegalArgumentException("Invalid channel count: " + channels);
+        }
+        this.channels = channels;
+        this.sampleRateHz = sampleRateHz;
+        this.envelopeWindow = envelopeWindow;
+        highPass = new Biquad[channels];
+        notch = notchHz > 0 ? new Biquad[channels] : null;
+        envelope = new EnvelopeDetector[channels];
+        latestEnvelope = new float[channels];
+        for (int ch = 0; ch < channels; ch++) {
+            highPass[ch] = Biquad.highPass(sampleRateHz, highPassHz, HIGH_PASS_Q);
+            if (notch != null) {
+                notch[ch] = Biquad.notch(sampleRateHz, notchHz, NOTCH_Q);
+            }
+            envelope[ch] = new EnvelopeDetector(envelopeWindow, envelopeMode);
+        }
+    }
+
+    // Default filter settings with an RMS envelope over DEFAULT_ENVELOPE_WINDOW_MS
+    public static EmgPipeline withDefaults(int channels, float sampleRateHz) {
+        return new EmgPipeline(
+            channels,
+            sampleRateHz,
+            DEFAULT_HIGH_PASS_HZ,
+            DEFAULT_NOTCH_HZ,
+            Math.max(1, Math.round(sampleRateHz * DEFAULT_ENVELOPE_WINDOW_MS / 1000f)),
+            EnvelopeDetector.Mode.RMS
+        );
+    }
+
+    public int getChannelCount() {
+        return channels;
+    }
+
+    public float getSampleRateHz() {
+        return sampleRateHz;
+    }
+
+    public int getEnvelopeWindow() {
+        return envelopeWindow;
+    }
+
+    /**
+     * Runs frames of interleaved raw samples through every stage.
+     * filteredOut and envelopeOut receive one interleaved value per input
+     * sample and may be null when the caller only needs the latest envelope.
+     */
+    public void process(
+        short[] samples,
+        int frames,
+        float[] filteredOut,
+        float[] envelopeOut
+    ) {
+        int i = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            for (int ch = 0; ch < channels; ch++, i++) {
+                double x = highPass[ch].process(samples[i]);
+                if (notch != null) {
+                    x = notch[ch].process(x);
+                }
+                double env = envelope[ch].process(x);
+                if (filteredOut != null) {
+                    filteredOut[i] = (float) x;
+                }
+                if (envelopeOut != null) {
+                    envelopeOut[i] = (float) env;
+                }
+                latestEnvelope[ch] = (float) env;
+            }
+        }
+    }
+
+    public float getEnvelope(int channel) {
+        return latestEnvelope[channel];
+    }
+
+    // Copies the most recent envelope value of every channel into out
+    public void getEnvelope(float[] out) {
+        System.arraycopy(latestEnvelope, 0, out, 0, channels);
+    }
+
+    public void reset() {
+        for (int ch = 0; ch < channels; ch++) {
+            highPass[ch].reset();
+            if (notch != null) {
+                notch[ch].reset();
+            }
+            envelope[ch].reset();
+            latestEnvelope[ch] = 0;
+        }
+    }
+}
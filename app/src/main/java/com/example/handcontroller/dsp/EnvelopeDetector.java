@@ -0,0 +1,71 @@
+package com.example.handcontroller.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window envelope of a rectified signal: either RMS or the mean
+ * absolute value over the last window samples. Keeps a running sum over a
+ * preallocated ring, so each sample costs O(1) regardless of window size.
+ */
+public class EnvelopeDetector {
+
+    public enum Mode {
+        RMS,
+        MEAN_ABSOLUTE,
+    }
+
+    // Recompute the running sum now and then to shed floating point drift
+    private static final int RESUM_INTERVAL = 1 << 16;
+
+    private final Mode mode;
+    private final double[] window;
+    private int index;
+    private int filled;
+    private double sum;
+    private int sinceResum;
+
+    public EnvelopeDetector(int windowSize, Mode mode) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        this.window = new double[windowSize];
+        this.mode = mode;
+    }
+
+    public double process(double x) {
+        double value = mode == Mode.RMS ? x * x : Math.abs(x);
+        sum += value - window[index];
+        window[index] = value;
+        index = index + 1 == window.length ? 0 : index + 1;
+        if (filled < window.length) {
+            filled++;
+        }
+        if (++sinceResum == RESUM_INTERVAL) {
+            resum();
+        }
+
+        double mean = Math.max(0, sum) / filled;
+        return mode == Mode.RMS ? Math.sqrt(mean) : mean;
+    }
+
+    public int getWindowSize() {
+        return window.length;
+    }
+
+    public void reset() {
+        Arrays.fill(window, 0);
+        index = 0;
+        filled = 0;
+        sum = 0;
+        sinceResum = 0;
+    }
+
+    private void resum() {
+        sinceResum = 0;
+        double total = 0;
+        for (double value : window) {
+            total += value;
+        }
+        sum = total;
+    }
+}
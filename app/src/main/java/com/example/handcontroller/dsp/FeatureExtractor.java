@@ -0,0 +1,187 @@
+package com.example.handcontroller.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window time-domain EMG features, updated one frame at a time.
+ * Per channel: mean absolute value, RMS, waveform length, zero crossings
+ * and slope sign changes. Each sample's contribution to every feature is
+ * kept in a preallocated ring with a running sum, so a frame costs O(1)
+ * and a feature vector is ready every hop frames once the window is full.
+ */
+public class FeatureExtractor {
+
+    public static final int FEATURES_PER_CHANNEL = 5;
+    public static final int MAV = 0;
+    public static final int RMS = 1;
+    public static final int WAVEFORM_LENGTH = 2;
+    public static final int ZERO_CROSSINGS = 3;
+    public static final int SLOPE_SIGN_CHANGES = 4;
+
+    // Recompute the running sums now and then to shed floating point drift
+    private static final int RESUM_INTERVAL = 1 << 16;
+
+    private final int channels;
+    private final int windowSize;
+    private final int hop;
+    private final float threshold;
+
+    // Contribution of each sample in the window, [channel][feature][position]
+    private final double[] contributions;
+    private final double[] sums;
+    private final float[] previous;
+    private final float[] beforePrevious;
+    private final float[] features;
+    private int position;
+    private int filled;
+    private int sinceEmit;
+    private int sinceResum;
+    private long framesSeen;
+
+    /**
+     * @param threshold minimum amplitude step for a zero crossing or slope
+     *     sign change to count, which keeps noise from inflating both
+     */
+    public FeatureExtractor(int channels, int windowSize, int hop, float threshold) {
+        if (channels <= 0) {
+            throw new IllegalArgumentException("Invalid channel count: " + channels);
+        }
+        if (windowSize <= 0 || hop <= 0 || hop > windowSize) {
+            throw new IllegalArgumentException(
+                "Invalid window/hop: " + windowSize + "/" + hop
+            );
+        }
+        this.channels = channels;
+        this.windowSize = windowSize;
+        this.hop = hop;
+        this.threshold = threshold;
+        contributions = new double[channels * FEATURES_PER_CHANNEL * windowSize];
+        sums = new double[channels * FEATURES_PER_CHANNEL];
+        previous = new float[channels];
+        beforePrevious = new float[channels];
+        features = new float[channels * FEATURES_PER_CHANNEL];
+        reset();
+    }
+
+    public int getFeatureCount() {
+        return features.length;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    /**
+     * Adds one frame, read from samples[offset .. offset + channels).
+     * Returns true when a new feature vector is available from getFeatures().
+     */
+    public boolean addFrame(float[] samples, int offset) {
+        for (int ch = 0; ch < channels; ch++) {
+            float x = samples[offset + ch];
+            float x1 = previous[ch];
+            float x2 = beforePrevious[ch];
+
+            double waveform = 0;
+            double zeroCrossing = 0;
+            double slopeChange = 0;
+            if (framesSeen >= 1) {
+                float step = Math.abs(x - x1);
+                waveform = step;
+                if (x * x1 < 0 && step >= threshold) {
+                    zeroCrossing = 1;
+                }
+            }
+            if (framesSeen >= 2) {
+                // Slope changes sign at the previous sample
+                float rise = x1 - x2;
+                float fall = x1 - x;
+                if (
+                    rise * fall > 0 &&
+                    Math.max(Math.abs(rise), Math.abs(fall)) >= threshold
+                ) {
+                    slopeChange = 1;
+                }
+            }
+
+            int base = ch * FEATURES_PER_CHANNEL;
+            store(base + MAV, Math.abs(x));
+            store(base + RMS, (double) x * x);
+            store(base + WAVEFORM_LENGTH, waveform);
+            store(base + ZERO_CROSSINGS, zeroCrossing);
+            store(base + SLOPE_SIGN_CHANGES, slopeChange);
+
+            beforePrevious[ch] = x1;
+            previous[ch] = x;
+        }
+
+        position = position + 1 == windowSize ? 0 : position + 1;
+        framesSeen++;
+        if (filled < windowSize) {
+            filled++;
+        }
+        if (++sinceResum == RESUM_INTERVAL) {
+            resum();
+        }
+
+        if (filled < windowSize || ++sinceEmit < hop) {
+            return false;
+        }
+        sinceEmit = 0;
+        for (int ch = 0; ch < channels; ch++) {
+            int base = ch * FEATURES_PER_CHANNEL;
+            features[base + MAV] = (float) (Math.max(0, sums[base + MAV]) / windowSize);
+            features[base + RMS] = (float) Math.sqrt(
+                Math.max(0, sums[base + RMS]) / windowSize
+            );
+            features[base + WAVEFORM_LENGTH] = (float) Math.max(
+                0,
+                sums[base + WAVEFORM_LENGTH]
+            );
+            features[base + ZERO_CROSSINGS] = (float) Math.round(sums[base + ZERO_CROSSINGS]);
+            features[base + SLOPE_SIGN_CHANGES] = (float) Math.round(
+                sums[base + SLOPE_SIGN_CHANGES]
+            );
+        }
+        return true;
+    }
+
+    // Latest feature vector, [channel * FEATURES_PER_CHANNEL + feature]; overwritten by addFrame
+    public float[] getFeatures() {
+        return features;
+    }
+
+    public void reset() {
+        Arrays.fill(contributions, 0);
+        Arrays.fill(sums, 0);
+        Arrays.fill(previous, 0);
+        Arrays.fill(beforePrevious, 0);
+        position = 0;
+        filled = 0;
+        // The first vector is ready as soon as the window fills
+        sinceEmit = hop - 1;
+        sinceResum = 0;
+        framesSeen = 0;
+    }
+
+    private void store(int feature, double value) {
+        int index = feature * windowSize + position;
+        sums[feature] += value - contributions[index];
+        contributions[index] = value;
+    }
+
+    private void resum() {
+        sinceResum = 0;
+        for (int feature = 0; feature < sums.length; feature++) {
+            double total = 0;
+            int base = feature * windowSize;
+            for (int i = 0; i < windowSize; i++) {
+                total += contributions[base + i];
+            }
+            sums[feature] = total;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.handcontroller.gesture;
+
+// Hand poses the classifier can recognise; the ordinal is the class label
+public enum Gesture {
+    OPEN,
+    CLOSED,
+    PEACE;
+
+    private static final Gesture[] VALUES = values();
+
+    public int label() {
+        return ordinal();
+    }
+
+    public static Gesture fromLabel(int label) {
+        return VALUES[label];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.handcontroller.gesture;
+
+/**
+ * Trained linear discriminant model: features are standardised, then
+ * scored against one weight vector per class. Immutable and held entirely
+ * in primitive arrays, so classify() is allocation free and safe to share.
+ */
+public class GestureClassifier {
+
+    private final int featureCount;
+    private final int classCount;
+    private final float[] offset;
+    private final float[] scale;
+    // [class * featureCount + feature]
+    private final float[] weights;
+    private final float[] bias;
+
+    GestureClassifier(float[] offset, float[] scale, float[] weights, float[] bias) {
+        this.featureCount = offset.length;
+        this.classCount = bias.length;
+        if (
+            scale.length != featureCount ||
+            weights.length != featureCount * classCount
+        ) {
+            throw new IllegalArgumentException("Inconsistent model dimensions");
+        }
+        this.offset = offset;
+        this.scale = scale;
+        this.weights = weights;
+        this.bias = bias;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    // Label of the best scoring class
+    public int classify(float[] features) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < classCount; c++) {
+            float score = score(features, c);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    public float score(float[] features, int label) {
+        float score = bias[label];
+        int base = label * featureCount;
+        for (int f = 0; f < featureCount; f++) {
+            score += weights[base + f] * (features[f] - offset[f]) * scale[f];
+        }
+        return score;
+    }
+}
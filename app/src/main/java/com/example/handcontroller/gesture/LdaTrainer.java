@@ -0,0 +1,207 @@
+package com.example.handcontroller.gesture;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates labelled feature vectors and fits a linear discriminant
+ * (LDA) classifier with a shared, ridge-regularised covariance. Only
+ * per-class sums and cross products are kept, so memory does not grow
+ * with the amount of training data.
+ */
+public class LdaTrainer {
+
+    public static final double DEFAULT_REGULARIZATION = 0.1;
+    private static final int MIN_SAMPLES_PER_CLASS = 2;
+
+    private final int featureCount;
+    private final int classCount;
+    private final long[] counts;
+    // [class * featureCount + feature]
+    private final double[] sums;
+    // [class * featureCount * featureCount + row * featureCount + column]
+    private final double[] crossProducts;
+
+    public LdaTrainer(int featureCount, int classCount) {
+        if (featureCount <= 0 || classCount < 2) {
+            throw new IllegalArgumentException(
+                "Invalid model size: " + featureCount + "x" + classCount
+            );
+        }
+        this.featureCount = featureCount;
+        this.classCount = classCount;
+        counts = new long[classCount];
+        sums = new double[classCount * featureCount];
+        crossProducts = new double[classCount * featureCount * featureCount];
+    }
+
+    public void addSample(int label, float[] features) {
+        if (label < 0 || label >= classCount) {
+            throw new IllegalArgumentException("Invalid label: " + label);
+        }
+        counts[label]++;
+        int sumBase = label * featureCount;
+        int crossBase = label * featureCount * featureCount;
+        for (int i = 0; i < featureCount; i++) {
+            double xi = features[i];
+            sums[sumBase + i] += xi;
+            int row = crossBase + i * featureCount;
+            for (int j = i; j < featureCount; j++) {
+                crossProducts[row + j] += xi * features[j];
+            }
+        }
+    }
+
+    public long getSampleCount(int label) {
+        return counts[label];
+    }
+
+    public boolean canTrain() {
+        for (long count : counts) {
+            if (count < MIN_SAMPLES_PER_CLASS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(sums, 0);
+        Arrays.fill(crossProducts, 0);
+    }
+
+    /**
+     * Fits the model. regularization shrinks the pooled covariance towards
+     * the identity (0 = plain LDA, 1 = nearest centroid on standardised
+     * features).
+     */
+    public GestureClassifier train(double regularization) {
+        if (!canTrain()) {
+            throw new IllegalStateException("Not enough samples for every class");
+        }
+        if (regularization < 0 || regularization > 1) {
+            throw new IllegalArgumentException(
+                "Invalid regularization: " + regularization
+            );
+        }
+        int n = featureCount;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+
+        // Class means, then the overall mean and spread used for standardising
+        double[] means = new double[classCount * n];
+        double[] overallMean = new double[n];
+        for (int c = 0; c < classCount; c++) {
+            for (int i = 0; i < n; i++) {
+                means[c * n + i] = sums[c * n + i] / counts[c];
+                overallMean[i] += sums[c * n + i];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            overallMean[i] /= total;
+        }
+
+        // Pooled within-class covariance
+        double[] covariance = new double[n * n];
+        for (int c = 0; c < classCount; c++) {
+            int crossBase = c * n * n;
+            for (int i = 0; i < n; i++) {
+                for (int j = i; j < n; j++) {
+                    double scatter =
+                        crossProducts[crossBase + i * n + j] -
+                        counts[c] * means[c * n + i] * means[c * n + j];
+                    covariance[i * n + j] += scatter;
+                }
+            }
+        }
+        double dof = Math.max(1, total - classCount);
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                covariance[i * n + j] /= dof;
+                covariance[j * n + i] = covariance[i * n + j];
+            }
+        }
+
+        // Standardise by the within-class spread so no feature dominates by its units
+        float[] offset = new float[n];
+        float[] scale = new float[n];
+        for (int i = 0; i < n; i++) {
+            double variance = covariance[i * n + i];
+            double s = variance > 1e-12 ? 1 / Math.sqrt(variance) : 1;
+            offset[i] = (float) overallMean[i];
+            scale[i] = (float) s;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double correlation = covariance[i * n + j] * scale[i] * scale[j];
+                if (i == j) {
+                    // Degenerate features get unit variance
+                    correlation = 1;
+                }
+                covariance[i * n + j] = (1 - regularization) * correlation +
+                    (i == j ? regularization : 0);
+            }
+        }
+        choleskyDecompose(covariance, n);
+
+        float[] weights = new float[classCount * n];
+        float[] bias = new float[classCount];
+        double[] mean = new double[n];
+        double[] w = new double[n];
+        for (int c = 0; c < classCount; c++) {
+            for (int i = 0; i < n; i++) {
+                mean[i] = (means[c * n + i] - overallMean[i]) * scale[i];
+            }
+            choleskySolve(covariance, n, mean, w);
+            double b = 0;
+            for (int i = 0; i < n; i++) {
+                weights[c * n + i] = (float) w[i];
+                b -= 0.5 * mean[i] * w[i];
+            }
+            bias[c] = (float) b;
+        }
+        return new GestureClassifier(offset, scale, weights, bias);
+    }
+
+    // In-place lower triangular factor L with A = L * L^T
+    private static void choleskyDecompose(double[] a, int n) {
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[j * n + k] * a[j * n + k];
+            }
+            if (diagonal <= 0) {
+                throw new IllegalStateException("Covariance is not positive definite");
+            }
+            double root = Math.sqrt(diagonal);
+            a[j * n + j] = root;
+            for (int i = j + 1; i < n; i++) {
+                double value = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    value -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = value / root;
+            }
+        }
+    }
+
+    private static void choleskySolve(double[] l, int n, double[] b, double[] x) {
+        // Forward substitution with L, then back substitution with L^T
+        for (int i = 0; i < n; i++) {
+            double value = b[i];
+            for (int k = 0; k < i; k++) {
+                value -= l[i * n + k] * x[k];
+            }
+            x[i] = value / l[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double value = x[i];
+            for (int k = i + 1; k < n; k++) {
+                value -= l[k * n + i] * x[k];
+            }
+            x[i] = value / l[i * n + i];
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.handcontroller.macro;
+
+import com.example.handcontroller.protocol.ProtocolMode;
+
+/**
+ * A macro flattened for playback: every frame of one cycle back to back in
+ * a single array, with its offset, length and send time from the start of
+ * the cycle. Immutable; playing it needs no formatting or allocation.
+ */
+public final class CompiledMacro {
+
+    private final String name;
+    private final ProtocolMode mode;
+    private final byte[] frames;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final long[] timesNanos;
+    private final long cycleNanos;
+    private final int repeatCount;
+
+    CompiledMacro(
+        String name,
+        ProtocolMode mode,
+        byte[] frames,
+        int[] offsets,
+        int[] lengths,
+        long[] timesNanos,
+        long cycleNanos,
+        int repeatCount
+    ) {
+        this.name = name;
+        this.mode = mode;
+        this.frames = frames;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.timesNanos = timesNanos;
+        this.cycleNanos = cycleNanos;
+        this.repeatCount = repeatCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Protocol the frames were encoded for
+    public ProtocolMode getMode() {
+        return mode;
+    }
+
+    public int getFrameCount() {
+        return offsets.length;
+    }
+
+    // Macro.REPEAT_FOREVER or the number of cycles
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    public long getCycleNanos() {
+        return cycleNanos;
+    }
+
+    long getTimeNanos(int frame) {
+        return timesNanos[frame];
+    }
+
+    byte[] getFrames() {
+        return frames;
+    }
+
+    int getOffset(int frame) {
+        return offsets[frame];
+    }
+
+    int getLength(int frame) {
+        return lengths[frame];
+    }
+}
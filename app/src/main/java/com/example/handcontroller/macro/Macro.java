@@ -0,0 +1,109 @@
+package com.example.handcontroller.macro;
+
+import com.example.handcontroller.protocol.MotorCommandCodec;
+import com.example.handcontroller.protocol.ProtocolMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A named sequence of poses, each held for a time before the next one is
+ * sent, optionally repeated. Poses are hardware positions for motor ids
+ * 1..n. Compile it once into a CompiledMacro before playing.
+ */
+public final class Macro {
+
+    public static final int REPEAT_FOREVER = -1;
+
+    private final String name;
+    private final int motorCount;
+    private final int repeatCount;
+    private final List<int[]> poses = new ArrayList<>();
+    private final List<Long> holdMillis = new ArrayList<>();
+
+    // repeatCount is the number of cycles to play, or REPEAT_FOREVER
+    public Macro(String name, int motorCount, int repeatCount) {
+        if (motorCount <= 0 || motorCount > MotorCommandCodec.MAX_POSE_MOTORS) {
+            throw new IllegalArgumentException("Invalid motor count: " + motorCount);
+        }
+        if (repeatCount <= 0 && repeatCount != REPEAT_FOREVER) {
+            throw new IllegalArgumentException("Invalid repeat count: " + repeatCount);
+        }
+        this.name = name;
+        this.motorCount = motorCount;
+        this.repeatCount = repeatCount;
+    }
+
+    // Sends pose, then waits holdMs before the next step or cycle
+    public Macro addStep(int[] pose, long holdMs) {
+        if (pose.length != motorCount) {
+            throw new IllegalArgumentException(
+                "Expected " + motorCount + " positions, got " + pose.length
+            );
+        }
+        if (holdMs < 0) {
+            throw new IllegalArgumentException("Negative hold time: " + holdMs);
+        }
+        poses.add(pose.clone());
+        holdMillis.add(holdMs);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMotorCount() {
+        return motorCount;
+    }
+
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    public int getStepCount() {
+        return poses.size();
+    }
+
+    /**
+     * Encodes every step into one flat frame array for the given protocol.
+     * Binary mode sends one pose frame per step; the legacy ASCII protocol
+     * has no pose frame and sends one command per motor at the same time.
+     */
+    public CompiledMacro compile(ProtocolMode mode) {
+        if (poses.isEmpty()) {
+            throw new IllegalStateException("Macro " + name + " has no steps");
+        }
+        MotorCommandCodec codec = new MotorCommandCodec(mode);
+        boolean binary = mode == ProtocolMode.BINARY;
+        int framesPerStep = binary ? 1 : motorCount;
+        int frameCount = poses.size() * framesPerStep;
+        int maxFrameLength = binary
+            ? MotorCommandCodec.poseFrameLength(motorCount)
+            : MotorCommandCodec.MAX_MOTOR_COMMAND_LENGTH;
+
+        byte[] scratch = new byte[frameCount * maxFrameLength];
+        int[] offsets = new int[frameCount];
+        int[] lengths = new int[frameCount];
+        long[] timesNanos = new long[frameCount];
+        int length = 0;
+        int frame = 0;
+        long stepNanos = 0;
+        for (int s = 0; s < poses.size(); s++) {
+            int[] pose = poses.get(s);
+            for (int m = 0; m < framesPerStep; m++) {
+                int written = binary
+                    ? codec.encodePose(pose, scratch, length)
+                    : codec.encodeMotor(m + 1, pose[m], scratch, length);
+                offsets[frame] = length;
+                lengths[frame] = written;
+                timesNanos[frame] = stepNanos;
+                length += written;
+                frame++;
+            }
+            stepNanos += holdMillis.get(s) * 1_000_000L;
+        }
+        byte[] frames = new byte[length];
+        System.arraycopy(scratch, 0, frames, 0, length);
+        return new CompiledMacro(name, mode, frames, offsets, lengths, timesNanos, stepNanos, repeatCount);
+    }
+}
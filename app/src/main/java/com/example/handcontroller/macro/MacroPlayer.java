@@ -0,0 +1,116 @@
+package com.example.handcontroller.macro;
+
+import com.example.handcontroller.utils.LatencyStats;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a CompiledMacro on its own thread against absolute deadlines, so
+ * late steps never push the rest of the macro back. The thread parks until
+ * shortly before each deadline and yields through the last stretch, which
+ * keeps timing jitter well under 10 ms without burning a core. Lateness of
+ * every frame is recorded in getJitter().
+ */
+public class MacroPlayer {
+
+    public interface FrameSink {
+        // Called on the player thread; the frame must be copied if kept
+        void sendFrame(byte[] frames, int offset, int length);
+    }
+
+    public interface Listener {
+        // Called on the player thread once playback ends
+        void onMacroFinished(MacroPlayer player, boolean completed);
+    }
+
+    public interface Clock {
+        long nanos();
+    }
+
+    public static final Clock SYSTEM_CLOCK = System::nanoTime;
+
+    // Parking overshoots by up to a scheduler tick; the rest is spent yielding
+    private static final long SPIN_NANOS = 2_000_000L;
+
+    private final CompiledMacro macro;
+    private final FrameSink sink;
+    private final Listener listener;
+    private final Clock clock;
+    private final LatencyStats jitter = new LatencyStats();
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    public MacroPlayer(CompiledMacro macro, FrameSink sink, Listener listener, Clock clock) {
+        this.macro = macro;
+        this.sink = sink;
+        this.listener = listener;
+        this.clock = clock;
+        thread = new Thread(this::run, "MacroPlayer");
+        thread.setPriority(Thread.MAX_PRIORITY);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    // Stops before the next frame; does not wait for the thread
+    public void cancel() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public void join() throws InterruptedException {
+        thread.join();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public CompiledMacro getMacro() {
+        return macro;
+    }
+
+    // Lateness of each frame against its deadline
+    public LatencyStats getJitter() {
+        return jitter;
+    }
+
+    private void run() {
+        long start = clock.nanos();
+        int frames = macro.getFrameCount();
+        int repeats = macro.getRepeatCount();
+        byte[] data = macro.getFrames();
+        boolean completed = true;
+        play:
+        for (int cycle = 0; repeats == Macro.REPEAT_FOREVER || cycle < repeats; cycle++) {
+            long cycleStart = start + cycle * macro.getCycleNanos();
+            for (int i = 0; i < frames; i++) {
+                long deadline = cycleStart + macro.getTimeNanos(i);
+                if (!waitUntil(deadline)) {
+                    completed = false;
+                    break play;
+                }
+                sink.sendFrame(data, macro.getOffset(i), macro.getLength(i));
+                jitter.record(clock.nanos() - deadline);
+            }
+        }
+        running = false;
+        if (listener != null) {
+            listener.onMacroFinished(this, completed);
+        }
+    }
+
+    // False if cancelled while waiting
+    private boolean waitUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - clock.nanos()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+        return running;
+    }
+}
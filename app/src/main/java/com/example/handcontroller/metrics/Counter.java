@@ -0,0 +1,41 @@
+package com.example.handcontroller.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic count updated from hot paths. Increments are spread over a
+ * few cache-line-padded cells chosen by thread, so threads counting the
+ * same event rarely contend; reads sum the cells. A stand-in for
+ * LongAdder, which needs API 24.
+ */
+public final class Counter {
+
+    private static final int STRIPES = 8;
+    // Longs per 64-byte cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long amount) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.getAndAdd(stripe * PADDING, amount);
+    }
+
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+}
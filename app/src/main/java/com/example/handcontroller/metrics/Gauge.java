@@ -0,0 +1,6 @@
+package com.example.handcontroller.metrics;
+
+// Current value of something the owner already tracks, read at snapshot time
+public interface Gauge {
+    long get();
+}
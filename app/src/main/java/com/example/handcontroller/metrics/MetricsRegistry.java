@@ -0,0 +1,135 @@
+package com.example.handcontroller.metrics;
+
+import com.example.handcontroller.utils.Histogram;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Named counters, gauges and histograms for the send and receive paths.
+ * Metrics are created once, up front, and the returned objects are kept
+ * by their owners; updating them never allocates or touches the
+ * registry. Snapshots list every metric by name, as JSON for export or as
+ * text for logs.
+ */
+public class MetricsRegistry {
+
+    // About 3 % precision per histogram bucket
+    private static final int HISTOGRAM_SUB_BUCKET_BITS = 5;
+    private static final double[] PERCENTILES = { 50, 95, 99 };
+
+    private final Map<String, Counter> counters = new TreeMap<>();
+    private final Map<String, Gauge> gauges = new TreeMap<>();
+    private final Map<String, Histogram> histograms = new TreeMap<>();
+
+    // Returns the counter registered under name, creating it on first use
+    public synchronized Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            checkName(name, counters);
+            counter = new Counter();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    // Values above maxValue are counted as maxValue
+    public synchronized Histogram histogram(String name, long maxValue) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            checkName(name, histograms);
+            histogram = new Histogram(maxValue, HISTOGRAM_SUB_BUCKET_BITS);
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    public synchronized void gauge(String name, Gauge gauge) {
+        if (gauge == null) {
+            throw new IllegalArgumentException("Gauge is required");
+        }
+        checkName(name, gauges);
+        gauges.put(name, gauge);
+    }
+
+    // Zeroes counters and histograms; gauges belong to their owners
+    public synchronized void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * {"counters":{name:value,...},"gauges":{name:value,...},
+     * "histograms":{name:{"count":..,"min":..,"mean":..,"p50":..,"p95":..,
+     * "p99":..,"max":..},...}}
+     */
+    public synchronized String toJson() {
+        StringBuilder out = new StringBuilder(256);
+        out.append("{\"counters\":{");
+        int i = 0;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            appendKey(out, i++, entry.getKey()).append(entry.getValue().get());
+        }
+        out.append("},\"gauges\":{");
+        i = 0;
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            appendKey(out, i++, entry.getKey()).append(entry.getValue().get());
+        }
+        out.append("},\"histograms\":{");
+        i = 0;
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            appendKey(out, i++, entry.getKey());
+            out.append("{\"count\":").append(histogram.getCount());
+            out.append(",\"min\":").append(histogram.getMin());
+            out.append(",\"mean\":").append(Math.round(histogram.getMean()));
+            for (double percentile : PERCENTILES) {
+                out.append(",\"p").append((int) percentile).append("\":");
+                out.append(histogram.getPercentile(percentile));
+            }
+            out.append(",\"max\":").append(histogram.getMax()).append('}');
+        }
+        return out.append("}}").toString();
+    }
+
+    // One "name value" or "name count=.. p50=.." line per metric
+    public synchronized String toText() {
+        StringBuilder out = new StringBuilder(256);
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            out.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            out.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            out.append(entry.getKey()).append(" count=").append(histogram.getCount());
+            for (double percentile : PERCENTILES) {
+                out.append(" p").append((int) percentile).append('=');
+                out.append(histogram.getPercentile(percentile));
+            }
+            out.append(" max=").append(histogram.getMax()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Names end up unquoted in text dumps and unescaped in JSON
+    private static void checkName(String name, Map<String, ?> kind) {
+        if (name == null || !name.matches("[A-Za-z0-9_.]+")) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        if (kind.containsKey(name)) {
+            throw new IllegalStateException("Metric already registered: " + name);
+        }
+    }
+
+    private static StringBuilder appendKey(StringBuilder out, int index, String name) {
+        if (index > 0) {
+            out.append(',');
+        }
+        return out.append('"').append(name).append("\":");
+    }
+}
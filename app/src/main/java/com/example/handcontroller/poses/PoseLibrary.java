@@ -0,0 +1,277 @@
+package com.example.handcontroller.poses;
+
+import com.example.handcontroller.gesture.Gesture;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named hand poses kept in one small binary file. The file is read into a
+ * HashMap on first use, so lookups never touch the disk. Changes only mark
+ * the library dirty; a background thread writes the whole file at most
+ * once per save delay, through a temporary file renamed over the old one,
+ * so callers never wait on I/O and a crash never leaves half a library.
+ *
+ * File:  MAGIC(4) | VERSION(2) | COUNT(2) | ENTRY * COUNT, big-endian
+ * Entry: NAME_LENGTH(1) | NAME (UTF-8) | MOTORS(1) | POSITION(2) * MOTORS
+ */
+public class PoseLibrary {
+
+    public interface ErrorListener {
+        // Called on the thread that hit the error; the cache is unaffected
+        void onLibraryError(IOException error);
+    }
+
+    public static final int MAGIC = 0x4843504C; // "HCPL"
+    public static final short VERSION = 1;
+    public static final int MAX_NAME_BYTES = 0xFF;
+    public static final int MAX_POSITION = 0xFFFF;
+    public static final int MAX_POSES = 0xFFFF;
+
+    private final File file;
+    private final int motorCount;
+    private final long saveDelayMs;
+    private final ErrorListener errorListener;
+
+    // Guarded by this; null until first use
+    private HashMap<String, int[]> poses;
+    private boolean dirty;
+    private boolean saving;
+    private boolean closed;
+    private Thread saver;
+
+    public PoseLibrary(File file, int motorCount, long saveDelayMs, ErrorListener errorListener) {
+        if (motorCount <= 0 || motorCount > 0xFF) {
+            throw new IllegalArgumentException("Invalid motor count: " + motorCount);
+        }
+        this.file = file;
+        this.motorCount = motorCount;
+        this.saveDelayMs = saveDelayMs;
+        this.errorListener = errorListener;
+    }
+
+    // Library name of a gesture's preset pose
+    public static String nameOf(Gesture gesture) {
+        return gesture.name().toLowerCase(Locale.US);
+    }
+
+    public int getMotorCount() {
+        return motorCount;
+    }
+
+    // Copy of the named pose, or null if there is none
+    public synchronized int[] get(String name) {
+        int[] pose = loaded().get(name);
+        return pose == null ? null : pose.clone();
+    }
+
+    public synchronized boolean contains(String name) {
+        return loaded().containsKey(name);
+    }
+
+    public synchronized List<String> getNames() {
+        List<String> names = new ArrayList<>(loaded().keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    public synchronized void put(String name, int[] pose) {
+        if (name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Pose name too long: " + name);
+        }
+        if (pose.length != motorCount) {
+            throw new IllegalArgumentException(
+                "Expected " + motorCount + " positions, got " + pose.length
+            );
+        }
+        for (int position : pose) {
+            if (position < 0 || position > MAX_POSITION) {
+                throw new IllegalArgumentException("Position out of range: " + position);
+            }
+        }
+        HashMap<String, int[]> all = loaded();
+        if (all.size() == MAX_POSES && !all.containsKey(name)) {
+            throw new IllegalStateException("Pose library is full");
+        }
+        all.put(name, pose.clone());
+        changed();
+    }
+
+    public synchronized void remove(String name) {
+        if (loaded().remove(name) != null) {
+            changed();
+        }
+    }
+
+    /**
+     * Stops accepting changes. A pending save still runs in the background;
+     * this never waits for it.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    // Waits until pending changes are on disk; false on timeout
+    public synchronized boolean awaitSaved(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (dirty || saving) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private HashMap<String, int[]> loaded() {
+        if (poses == null) {
+            poses = new HashMap<>();
+            if (file.exists()) {
+                try {
+                    read(poses);
+                } catch (IOException e) {
+                    // Start empty; the next save replaces the unreadable file
+                    poses.clear();
+                    reportError(e);
+                }
+            }
+        }
+        return poses;
+    }
+
+    private void changed() {
+        if (closed) {
+            throw new IllegalStateException("Pose library is closed");
+        }
+        dirty = true;
+        if (saver == null) {
+            saver = new Thread(this::runSaver, "PoseLibrarySaver");
+            saver.setPriority(Thread.MIN_PRIORITY);
+            // Saves go through a rename, so dying mid-write only loses the edit
+            saver.setDaemon(true);
+            saver.start();
+        }
+        notifyAll();
+    }
+
+    private void runSaver() {
+        while (true) {
+            byte[] encoded;
+            synchronized (this) {
+                try {
+                    while (!dirty && !closed) {
+                        wait();
+                    }
+                    if (!dirty) {
+                        saver = null;
+                        return;
+                    }
+                    // Let a burst of edits pile up into one write
+                    long deadline = System.currentTimeMillis() + saveDelayMs;
+                    long remaining = saveDelayMs;
+                    while (!closed && remaining > 0) {
+                        wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    saver = null;
+                    return;
+                }
+                encoded = encode(poses);
+                dirty = false;
+                saving = true;
+            }
+            try {
+                write(encoded);
+            } catch (IOException e) {
+                reportError(e);
+            } finally {
+                synchronized (this) {
+                    saving = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private static byte[] encode(Map<String, int[]> poses) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(poses.size());
+            for (Map.Entry<String, int[]> entry : poses.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(name.length);
+                out.write(name);
+                int[] pose = entry.getValue();
+                out.writeByte(pose.length);
+                for (int position : pose) {
+                    out.writeShort(position);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(byte[] encoded) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(encoded);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private void read(Map<String, int[]> into) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a pose library: " + file);
+            }
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported pose library version " + version);
+            }
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.readUnsignedByte()];
+                in.readFully(name);
+                int motors = in.readUnsignedByte();
+                int[] pose = new int[motors];
+                for (int m = 0; m < motors; m++) {
+                    pose[m] = in.readUnsignedShort();
+                }
+                // Poses for another hand layout cannot be sent; skip them
+                if (motors == motorCount) {
+                    into.put(new String(name, StandardCharsets.UTF_8), pose);
+                }
+            }
+        }
+    }
+
+    private void reportError(IOException error) {
+        if (errorListener != null) {
+            errorListener.onLibraryError(error);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.handcontroller.poses;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.io.File;
+
+/**
+ * The process-wide pose library in the app's files directory. On first use
+ * it copies the pose that older versions kept as motor0..motorN in the
+ * MotorPrefs SharedPreferences into the library as SAVED_POSE, and drops
+ * those keys once the copy has reached the disk.
+ */
+public final class SharedPoseLibrary {
+
+    private static final String TAG = "SharedPoseLibrary";
+
+    public static final String SAVED_POSE = "saved";
+
+    private static final String FILE_NAME = "poses.bin";
+    private static final long SAVE_DELAY_MS = 500;
+    private static final String LEGACY_PREFS = "MotorPrefs";
+    private static final String LEGACY_KEY_PREFIX = "motor";
+
+    private static PoseLibrary instance;
+
+    private SharedPoseLibrary() {}
+
+    public static synchronized PoseLibrary get(Context context, int motorCount) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new PoseLibrary(
+                new File(app.getFilesDir(), FILE_NAME),
+                motorCount,
+                SAVE_DELAY_MS,
+                error -> Log.e(TAG, "Pose library I/O failed: " + error.getMessage())
+            );
+            migrateLegacyPose(app, instance);
+        } else if (instance.getMotorCount() != motorCount) {
+            throw new IllegalArgumentException(
+                "Pose library holds " + instance.getMotorCount() + " motors, not " + motorCount
+            );
+        }
+        return instance;
+    }
+
+    private static void migrateLegacyPose(Context context, PoseLibrary library) {
+        SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+        if (!prefs.contains(LEGACY_KEY_PREFIX + 0)) {
+            return;
+        }
+        if (library.contains(SAVED_POSE)) {
+            removeLegacyPose(prefs);
+            return;
+        }
+        int[] pose = new int[library.getMotorCount()];
+        for (int i = 0; i < pose.length; i++) {
+            pose[i] = prefs.getInt(LEGACY_KEY_PREFIX + i, 0);
+        }
+        // The legacy keys stay until a later start finds the pose on disk
+        library.put(SAVED_POSE, pose);
+    }
+
+    // Other MotorPrefs settings, such as live tracking, stay where they are
+    private static void removeLegacyPose(SharedPreferences prefs) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int i = 0; prefs.contains(LEGACY_KEY_PREFIX + i); i++) {
+            editor.remove(LEGACY_KEY_PREFIX + i);
+        }
+        editor.apply();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.handcontroller.protocol;
+
+/**
+ * Layout shared by every binary frame exchanged with the hand:
+ * SYNC | OPCODE | LENGTH | PAYLOAD[LENGTH] | SEQ | CRC8.
+ * The CRC covers everything from OPCODE up to and including SEQ.
+ */
+public final class FrameFormat {
+
+    public static final byte SYNC = (byte) 0xA5;
+    public static final int HEADER_LENGTH = 3;
+    public static final int TRAILER_LENGTH = 2;
+    public static final int OVERHEAD = HEADER_LENGTH + TRAILER_LENGTH;
+    public static final int MAX_PAYLOAD_LENGTH = 0xFF;
+
+    // Opcodes
+    public static final int OP_MOTOR = 0x01;
+    public static final int OP_POSE = 0x02;
+    // Link probe; the hand echoes the payload back as OP_PONG
+    public static final int OP_PING = 0x03;
+    public static final int OP_SENSOR = 0x10;
+    public static final int OP_PONG = 0x11;
+
+    private static final int CRC_POLYNOMIAL = 0x07;
+    private static final byte[] CRC_TABLE = buildCrcTable();
+
+    private FrameFormat() {}
+
+    public static int frameLength(int payloadLength) {
+        return OVERHEAD + payloadLength;
+    }
+
+    // Writes SYNC, opcode and payload length; returns the payload offset
+    public static int writeHeader(
+        byte[] out,
+        int offset,
+        int opcode,
+        int payloadLength
+    ) {
+        if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException(
+                "Invalid payload length: " + payloadLength
+            );
+        }
+        out[offset] = SYNC;
+        out[offset + 1] = (byte) opcode;
+        out[offset + 2] = (byte) payloadLength;
+        return offset + HEADER_LENGTH;
+    }
+
+    // Appends sequence number and CRC after the payload; returns the frame length
+    public static int writeTrailer(
+        byte[] out,
+        int offset,
+        int payloadLength,
+        int sequence
+    ) {
+        int seqIndex = offset + HEADER_LENGTH + payloadLength;
+        out[seqIndex] = (byte) sequence;
+        out[seqIndex + 1] = (byte) crc8(out, offset + 1, seqIndex - offset);
+        return frameLength(payloadLength);
+    }
+
+    // Checks sync byte, declared length and CRC of a frame starting at offset
+    public static boolean isValid(byte[] buffer, int offset, int available) {
+        if (available < OVERHEAD || buffer[offset] != SYNC) {
+            return false;
+        }
+        int length = frameLength(payloadLength(buffer, offset));
+        if (available < length) {
+            return false;
+        }
+        int crc = crc8(buffer, offset + 1, length - 2);
+        return crc == (buffer[offset + length - 1] & 0xFF);
+    }
+
+    public static int opcode(byte[] frame, int offset) {
+        return frame[offset + 1] & 0xFF;
+    }
+
+    public static int payloadLength(byte[] frame, int offset) {
+        return frame[offset + 2] & 0xFF;
+    }
+
+    public static int sequence(byte[] frame, int offset) {
+        return frame[offset + HEADER_LENGTH + payloadLength(frame, offset)] &
+        0xFF;
+    }
+
+    public static int crc8(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc = CRC_TABLE[(crc ^ data[i]) & 0xFF] & 0xFF;
+        }
+        return crc;
+    }
+
+    private static byte[] buildCrcTable() {
+        byte[] table = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0
+                    ? (crc << 1) ^ CRC_POLYNOMIAL
+                    : crc << 1;
+            }
+            table[i] = (byte) crc;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.handcontroller.protocol;
+
+/**
+ * Encodes motor commands into caller-supplied buffers without allocating.
+ * In BINARY mode a command is a single FrameFormat frame whose payload is
+ * MOTOR_ID | POS_HI | POS_LO; in ASCII mode it is the legacy "M<id>:<pos>".
+ * A pose frame carries COUNT | (POS_HI | POS_LO) * COUNT for motors 1..COUNT
+ * and only exists in BINARY mode, as does the ping frame carrying
+ * ID_HI | ID_LO.
+ */
+public final class MotorCommandCodec {
+
+    public static final int MAX_MOTOR_ID = 0xFF;
+    public static final int MAX_POSITION = 0xFFFF;
+
+    public static final int MOTOR_PAYLOAD_LENGTH = 3;
+    public static final int MOTOR_FRAME_LENGTH = FrameFormat.frameLength(
+        MOTOR_PAYLOAD_LENGTH
+    );
+    // "M255:65535"
+    public static final int MAX_ASCII_MOTOR_LENGTH = 10;
+    public static final int MAX_MOTOR_COMMAND_LENGTH = Math.max(
+        MOTOR_FRAME_LENGTH,
+        MAX_ASCII_MOTOR_LENGTH
+    );
+
+    public static final int MAX_PING_ID = 0xFFFF;
+    public static final int PING_PAYLOAD_LENGTH = 2;
+    public static final int PING_FRAME_LENGTH = FrameFormat.frameLength(
+        PING_PAYLOAD_LENGTH
+    );
+
+    public static final int MAX_POSE_MOTORS = 16;
+    public static final int MAX_COMMAND_LENGTH = Math.max(
+        MAX_MOTOR_COMMAND_LENGTH,
+        poseFrameLength(MAX_POSE_MOTORS)
+    );
+
+    private static final byte ASCII_MOTOR = 'M';
+    private static final byte ASCII_SEPARATOR = ':';
+
+    private ProtocolMode mode;
+    private int sequence;
+
+    // Legacy ASCII, which every firmware understands
+    public MotorCommandCodec() {
+        this(ProtocolMode.ASCII);
+    }
+
+    public MotorCommandCodec(ProtocolMode mode) {
+        setMode(mode);
+    }
+
+    public ProtocolMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ProtocolMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Protocol mode is required");
+        }
+        this.mode = mode;
+    }
+
+    // Encodes a single motor command at offset; returns the number of bytes written
+    public int encodeMotor(int motorId, int position, byte[] out, int offset) {
+        checkMotor(motorId, position);
+        if (mode == ProtocolMode.ASCII) {
+            return encodeMotorAscii(motorId, position, out, offset);
+        }
+
+        int p = FrameFormat.writeHeader(
+            out,
+            offset,
+            FrameFormat.OP_MOTOR,
+            MOTOR_PAYLOAD_LENGTH
+        );
+        out[p] = (byte) motorId;
+        out[p + 1] = (byte) (position >>> 8);
+        out[p + 2] = (byte) position;
+        return FrameFormat.writeTrailer(
+            out,
+            offset,
+            MOTOR_PAYLOAD_LENGTH,
+            nextSequence()
+        );
+    }
+
+    // Encodes every motor target into one frame; returns the number of bytes written
+    public int encodePose(int[] positions, byte[] out, int offset) {
+        if (mode != ProtocolMode.BINARY) {
+            throw new IllegalStateException(
+                "Pose frames require the binary protocol"
+            );
+        }
+        int count = positions.length;
+        if (count == 0 || count > MAX_POSE_MOTORS) {
+            throw new IllegalArgumentException("Invalid motor count: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            checkMotor(i + 1, positions[i]);
+        }
+
+        int payloadLength = posePayloadLength(count);
+        int p = FrameFormat.writeHeader(
+            out,
+            offset,
+            FrameFormat.OP_POSE,
+            payloadLength
+        );
+        out[p++] = (byte) count;
+        for (int position : positions) {
+            out[p++] = (byte) (position >>> 8);
+            out[p++] = (byte) position;
+        }
+        return FrameFormat.writeTrailer(
+            out,
+            offset,
+            payloadLength,
+            nextSequence()
+        );
+    }
+
+    // Encodes a link probe at offset; returns the number of bytes written
+    public int encodePing(int id, byte[] out, int offset) {
+        if (mode != ProtocolMode.BINARY) {
+            throw new IllegalStateException(
+                "Ping frames require the binary protocol"
+            );
+        }
+        if (id < 0 || id > MAX_PING_ID) {
+            throw new IllegalArgumentException("Invalid ping id: " + id);
+        }
+        int p = FrameFormat.writeHeader(
+            out,
+            offset,
+            FrameFormat.OP_PING,
+            PING_PAYLOAD_LENGTH
+        );
+        out[p] = (byte) (id >>> 8);
+        out[p + 1] = (byte) id;
+        return FrameFormat.writeTrailer(
+            out,
+            offset,
+            PING_PAYLOAD_LENGTH,
+            nextSequence()
+        );
+    }
+
+    // Id carried by a ping or pong frame
+    public static int pingId(byte[] frame, int offset) {
+        int p = offset + FrameFormat.HEADER_LENGTH;
+        return ((frame[p] & 0xFF) << 8) | (frame[p + 1] & 0xFF);
+    }
+
+    /**
+     * Gives a binary frame encoded earlier, possibly by another codec, this
+     * codec's next sequence number and a fresh CRC, in place. ASCII
+     * commands carry no sequence and are left alone.
+     */
+    public void restamp(byte[] frame, int offset) {
+        if (frame[offset] != FrameFormat.SYNC) {
+            return;
+        }
+        FrameFormat.writeTrailer(
+            frame,
+            offset,
+            FrameFormat.payloadLength(frame, offset),
+            nextSequence()
+        );
+    }
+
+    /**
+     * Reads back the targets of one motor or pose command at offset, in
+     * either mode, into positions indexed by motor id - 1; ids beyond the
+     * array are skipped. Returns the highest motor id the command sets, or
+     * 0 if it is not a motor or pose command.
+     */
+    public static int decodePositions(
+        byte[] command,
+        int offset,
+        int length,
+        int[] positions
+    ) {
+        if (length >= FrameFormat.OVERHEAD && command[offset] == FrameFormat.SYNC) {
+            int opcode = FrameFormat.opcode(command, offset);
+            if (opcode == FrameFormat.OP_POSE) {
+                int count = poseMotorCount(command, offset);
+                for (int i = 0; i < count && i < positions.length; i++) {
+                    positions[i] = posePosition(command, offset, i);
+                }
+                return count;
+            }
+            if (opcode == FrameFormat.OP_MOTOR) {
+                return decodeMotor(
+                    motorId(command, offset),
+                    position(command, offset),
+                    positions
+                );
+            }
+            return 0;
+        }
+        if (length < 4 || command[offset] != ASCII_MOTOR) {
+            return 0;
+        }
+        int end = offset + length;
+        int motorId = 0;
+        int p = offset + 1;
+        for (; p < end && command[p] != ASCII_SEPARATOR; p++) {
+            if (command[p] < '0' || command[p] > '9') {
+                return 0;
+            }
+            motorId = motorId * 10 + (command[p] - '0');
+        }
+        int position = 0;
+        for (p++; p < end; p++) {
+            if (command[p] < '0' || command[p] > '9') {
+                return 0;
+            }
+            position = position * 10 + (command[p] - '0');
+        }
+        return decodeMotor(motorId, position, positions);
+    }
+
+    private static int decodeMotor(int motorId, int position, int[] positions) {
+        if (motorId >= 1 && motorId <= positions.length) {
+            positions[motorId - 1] = position;
+        }
+        return motorId;
+    }
+
+    public static int poseFrameLength(int motorCount) {
+        return FrameFormat.frameLength(posePayloadLength(motorCount));
+    }
+
+    public static int poseMotorCount(byte[] frame, int offset) {
+        return frame[offset + FrameFormat.HEADER_LENGTH] & 0xFF;
+    }
+
+    // Position of the motor at index (0-based) inside a pose frame
+    public static int posePosition(byte[] frame, int offset, int index) {
+        int p = offset + FrameFormat.HEADER_LENGTH + 1 + index * 2;
+        return ((frame[p] & 0xFF) << 8) | (frame[p + 1] & 0xFF);
+    }
+
+    private static int posePayloadLength(int motorCount) {
+        return 1 + motorCount * 2;
+    }
+
+    public static int motorId(byte[] frame, int offset) {
+        return frame[offset + FrameFormat.HEADER_LENGTH] & 0xFF;
+    }
+
+    public static int position(byte[] frame, int offset) {
+        int p = offset + FrameFormat.HEADER_LENGTH + 1;
+        return ((frame[p] & 0xFF) << 8) | (frame[p + 1] & 0xFF);
+    }
+
+    private int encodeMotorAscii(
+        int motorId,
+        int position,
+        byte[] out,
+        int offset
+    ) {
+        int p = offset;
+        out[p++] = ASCII_MOTOR;
+        p = writeDecimal(out, p, motorId);
+        out[p++] = ASCII_SEPARATOR;
+        p = writeDecimal(out, p, position);
+        return p - offset;
+    }
+
+    private int nextSequence() {
+        int current = sequence;
+        sequence = (sequence + 1) & 0xFF;
+        return current;
+    }
+
+    private static void checkMotor(int motorId, int position) {
+        if (motorId < 0 || motorId > MAX_MOTOR_ID) {
+            throw new IllegalArgumentException("Invalid motor id: " + motorId);
+        }
+        if (position < 0 || position > MAX_POSITION) {
+            throw new IllegalArgumentException(
+                "Invalid motor position: " + position
+            );
+        }
+    }
+
+    // Writes a non-negative int as ASCII digits; returns the offset after the last digit
+    static int writeDecimal(byte[] out, int offset, int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
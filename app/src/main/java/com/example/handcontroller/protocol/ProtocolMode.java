@@ -0,0 +1,9 @@
+package com.example.handcontroller.protocol;
+
+// Wire format used for commands sent to the hand
+public enum ProtocolMode {
+    // Compact CRC-checked frames, see FrameFormat
+    BINARY,
+    // Legacy text commands such as "M1:90" for older firmware
+    ASCII,
+}
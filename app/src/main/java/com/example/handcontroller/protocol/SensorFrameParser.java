@@ -0,0 +1,253 @@
+package com.example.handcontroller.protocol;
+
+/**
+ * Reassembles the inbound notification stream and decodes sensor samples.
+ * Two encodings are recognised and may be mixed on the same stream:
+ * binary OP_SENSOR frames whose payload is
+ * CHANNELS | FRAMES | (SAMPLE_HI | SAMPLE_LO) * CHANNELS * FRAMES,
+ * and legacy text lines "S:<v0>,<v1>,...\n" carrying one sample per channel.
+ * OP_PONG echoes of link probes go to an optional PongListener.
+ * Notifications holding only whole frames are decoded in place; only a
+ * trailing partial frame is copied aside until the rest arrives.
+ * Not thread-safe: feed it from a single thread (the GATT callback thread).
+ */
+public class SensorFrameParser {
+
+    public interface Listener {
+        // samples are interleaved by channel and only valid during the call
+        void onSensorSamples(short[] samples, int frameCount, int channelCount);
+    }
+
+    public interface PongListener {
+        void onPong(int pingId);
+    }
+
+    public static final int MAX_SAMPLES_PER_FRAME =
+        (FrameFormat.MAX_PAYLOAD_LENGTH - 2) / 2;
+    public static final int MAX_ASCII_LINE_LENGTH = 128;
+
+    private static final byte ASCII_SENSOR = 'S';
+    private static final byte ASCII_SEPARATOR = ':';
+    private static final byte ASCII_DELIMITER = ',';
+    private static final byte ASCII_END = '\n';
+
+    private final Listener listener;
+    private PongListener pongListener;
+    private final short[] samples = new short[MAX_SAMPLES_PER_FRAME];
+    // Holds the unfinished tail of the stream between notifications
+    private final byte[] pending = new byte[2 * FrameFormat.frameLength(
+        FrameFormat.MAX_PAYLOAD_LENGTH
+    )];
+    private int pendingLength;
+
+    // Stream health
+    private long frameCount;
+    private long pongCount;
+    private long checksumErrors;
+    private long malformedFrames;
+    private long skippedBytes;
+
+    public SensorFrameParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void feed(byte[] data, int offset, int length) {
+        if (pendingLength == 0) {
+            int consumed = parse(data, offset, length);
+            keep(data, offset + consumed, length - consumed);
+            return;
+        }
+
+        int copied = Math.min(length, pending.length - pendingLength);
+        System.arraycopy(data, offset, pending, pendingLength, copied);
+        pendingLength += copied;
+        int consumed = parse(pending, 0, pendingLength);
+        int left = pendingLength - consumed;
+        pendingLength = 0;
+        keep(pending, consumed, left);
+        if (copied < length) {
+            feed(data, offset + copied, length - copied);
+        }
+    }
+
+    public void setPongListener(PongListener pongListener) {
+        this.pongListener = pongListener;
+    }
+
+    // Drops any partially received frame, e.g. after a reconnect
+    public void reset() {
+        pendingLength = 0;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getPongCount() {
+        return pongCount;
+    }
+
+    public long getChecksumErrors() {
+        return checksumErrors;
+    }
+
+    public long getMalformedFrames() {
+        return malformedFrames;
+    }
+
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    private void keep(byte[] data, int offset, int length) {
+        if (length > pending.length) {
+            // Cannot be a frame in progress; keep only the newest bytes
+            skippedBytes += length - pending.length;
+            offset += length - pending.length;
+            length = pending.length;
+        }
+        System.arraycopy(data, offset, pending, 0, length);
+        pendingLength = length;
+    }
+
+    // Decodes every complete frame in range; returns the number of bytes consumed
+    private int parse(byte[] buffer, int offset, int length) {
+        int p = offset;
+        int end = offset + length;
+        while (p < end) {
+            byte b = buffer[p];
+            if (b == FrameFormat.SYNC) {
+                int available = end - p;
+                if (available < FrameFormat.HEADER_LENGTH) {
+                    break;
+                }
+                int frameLength = FrameFormat.frameLength(
+                    FrameFormat.payloadLength(buffer, p)
+                );
+                if (available < frameLength) {
+                    break;
+                }
+                if (FrameFormat.isValid(buffer, p, available)) {
+                    dispatchFrame(buffer, p);
+                    p += frameLength;
+                } else {
+                    // Not a real frame start; resync on the next byte
+                    checksumErrors++;
+                    p++;
+                }
+            } else if (b == ASCII_SENSOR) {
+                int lineEnd = indexOf(buffer, ASCII_END, p, end);
+                if (lineEnd < 0) {
+                    if (end - p <= MAX_ASCII_LINE_LENGTH) {
+                        break;
+                    }
+                    malformedFrames++;
+                    p++;
+                } else {
+                    parseAsciiLine(buffer, p + 1, lineEnd);
+                    p = lineEnd + 1;
+                }
+            } else {
+                skippedBytes++;
+                p++;
+            }
+        }
+        return p - offset;
+    }
+
+    private void dispatchFrame(byte[] frame, int offset) {
+        int opcode = FrameFormat.opcode(frame, offset);
+        int payloadLength = FrameFormat.payloadLength(frame, offset);
+        if (opcode == FrameFormat.OP_PONG) {
+            dispatchPong(frame, offset, payloadLength);
+            return;
+        }
+        if (opcode != FrameFormat.OP_SENSOR) {
+            return;
+        }
+        int p = offset + FrameFormat.HEADER_LENGTH;
+        if (payloadLength < 2) {
+            malformedFrames++;
+            return;
+        }
+        int channels = frame[p] & 0xFF;
+        int frames = frame[p + 1] & 0xFF;
+        int count = channels * frames;
+        if (channels == 0 || payloadLength != 2 + count * 2) {
+            malformedFrames++;
+            return;
+        }
+
+        p += 2;
+        for (int i = 0; i < count; i++, p += 2) {
+            samples[i] = (short) (((frame[p] & 0xFF) << 8) | (frame[p + 1] & 0xFF));
+        }
+        frameCount++;
+        listener.onSensorSamples(samples, frames, channels);
+    }
+
+    private void dispatchPong(byte[] frame, int offset, int payloadLength) {
+        if (payloadLength != MotorCommandCodec.PING_PAYLOAD_LENGTH) {
+            malformedFrames++;
+            return;
+        }
+        pongCount++;
+        if (pongListener != null) {
+            pongListener.onPong(MotorCommandCodec.pingId(frame, offset));
+        }
+    }
+
+    // Parses ":<v0>,<v1>,..." between start and end (exclusive) without creating Strings
+    private void parseAsciiLine(byte[] line, int start, int end) {
+        if (end > start && line[end - 1] == '\r') {
+            end--;
+        }
+        if (start >= end || line[start] != ASCII_SEPARATOR) {
+            malformedFrames++;
+            return;
+        }
+
+        int channels = 0;
+        int p = start + 1;
+        while (p < end) {
+            boolean negative = line[p] == '-';
+            if (negative) {
+                p++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (p < end && line[p] >= '0' && line[p] <= '9') {
+                value = value * 10 + (line[p] - '0');
+                digits++;
+                p++;
+            }
+            if (
+                digits == 0 ||
+                digits > 5 ||
+                value > Short.MAX_VALUE ||
+                channels == samples.length ||
+                (p < end && line[p] != ASCII_DELIMITER)
+            ) {
+                malformedFrames++;
+                return;
+            }
+            samples[channels++] = (short) (negative ? -value : value);
+            p++;
+        }
+        if (channels == 0) {
+            malformedFrames++;
+            return;
+        }
+        frameCount++;
+        listener.onSensorSamples(samples, 1, channels);
+    }
+
+    private static int indexOf(byte[] buffer, byte value, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
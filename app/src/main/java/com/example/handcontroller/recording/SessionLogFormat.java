@@ -0,0 +1,69 @@
+package com.example.handcontroller.recording;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * On-disk layout of a recorded session. A session is a directory of
+ * numbered segment files, each starting with a segment header and followed
+ * by back to back records. All fields are big-endian.
+ *
+ * Segment header: MAGIC(4) | VERSION(2) | SEGMENT_INDEX(4) |
+ *                 START_NANOS(8) | START_WALL_MILLIS(8)
+ * Record:         TYPE(1) | LENGTH(2) | TIMESTAMP_NANOS(8) | PAYLOAD
+ *
+ * Timestamps are monotonic (elapsedRealtimeNanos); START_WALL_MILLIS ties
+ * START_NANOS to wall-clock time. A record never spans two segments.
+ */
+public final class SessionLogFormat {
+
+    public static final int MAGIC = 0x4843534C; // "HCSL"
+    public static final short VERSION = 1;
+    public static final int SEGMENT_HEADER_LENGTH = 26;
+    public static final int RECORD_HEADER_LENGTH = 11;
+    public static final int MAX_PAYLOAD_LENGTH = 0xFFFF;
+    public static final String SEGMENT_SUFFIX = ".hcsl";
+
+    // Raw inbound notification bytes
+    public static final byte TYPE_SENSOR_DATA = 1;
+    // Outbound command bytes as queued for the characteristic
+    public static final byte TYPE_COMMAND = 2;
+    // Connection state change; payload is the state as one byte
+    public static final byte TYPE_CONNECTION_STATE = 3;
+
+    private SessionLogFormat() {}
+
+    public static String segmentName(int index) {
+        return String.format(Locale.US, "segment-%05d%s", index, SEGMENT_SUFFIX);
+    }
+
+    static void writeSegmentHeader(
+        ByteBuffer out,
+        int segmentIndex,
+        long startNanos,
+        long startWallMillis
+    ) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putInt(segmentIndex);
+        out.putLong(startNanos);
+        out.putLong(startWallMillis);
+    }
+
+    // Writes a record header into out at offset; returns the payload offset
+    static int writeRecordHeader(
+        byte[] out,
+        int offset,
+        byte type,
+        int payloadLength,
+        long timestampNanos
+    ) {
+        out[offset] = type;
+        out[offset + 1] = (byte) (payloadLength >>> 8);
+        out[offset + 2] = (byte) payloadLength;
+        for (int i = 0; i < 8; i++) {
+            out[offset + 3 + i] = (byte) (timestampNanos >>> (56 - 8 * i));
+        }
+        return offset + RECORD_HEADER_LENGTH;
+    }
+}
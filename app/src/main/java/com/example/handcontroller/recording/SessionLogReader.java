@@ -0,0 +1,118 @@
+package com.example.handcontroller.recording;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Iterates the records of a session directory in order, across segments.
+ * A truncated record at the end of a segment, as left by a crash, ends
+ * that segment. Not thread safe.
+ */
+public class SessionLogReader {
+
+    private final File[] segments;
+    private int nextSegment;
+    private ByteBuffer segment;
+    private long startNanos;
+    private long startWallMillis;
+
+    private byte type;
+    private long timestampNanos;
+    private byte[] payload = new byte[256];
+    private int payloadLength;
+
+    public SessionLogReader(File directory) throws IOException {
+        File[] files = directory.listFiles(
+            (dir, name) -> name.endsWith(SessionLogFormat.SEGMENT_SUFFIX)
+        );
+        if (files == null || files.length == 0) {
+            throw new IOException("No session segments in " + directory);
+        }
+        // Zero-padded names sort in segment order
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        segments = files;
+        openNextSegment();
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getStartWallMillis() {
+        return startWallMillis;
+    }
+
+    // Advances to the next record; false at the end of the session
+    public boolean next() throws IOException {
+        while (true) {
+            if (segment.remaining() >= SessionLogFormat.RECORD_HEADER_LENGTH) {
+                int start = segment.position();
+                byte recordType = segment.get();
+                int length = segment.getShort() & 0xFFFF;
+                long timestamp = segment.getLong();
+                if (segment.remaining() >= length) {
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    segment.get(payload, 0, length);
+                    type = recordType;
+                    timestampNanos = timestamp;
+                    payloadLength = length;
+                    return true;
+                }
+                segment.position(start);
+            }
+            if (nextSegment == segments.length) {
+                return false;
+            }
+            openNextSegment();
+        }
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    // Valid until the next call to next()
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    private void openNextSegment() throws IOException {
+        File file = segments[nextSegment++];
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until full
+            }
+            buffer.flip();
+            segment = buffer;
+        }
+        if (
+            segment.remaining() < SessionLogFormat.SEGMENT_HEADER_LENGTH ||
+            segment.getInt() != SessionLogFormat.MAGIC
+        ) {
+            throw new IOException("Not a session segment: " + file.getName());
+        }
+        short version = segment.getShort();
+        if (version != SessionLogFormat.VERSION) {
+            throw new IOException("Unsupported session log version " + version);
+        }
+        segment.getInt(); // segment index
+        startNanos = segment.getLong();
+        startWallMillis = segment.getLong();
+    }
+}
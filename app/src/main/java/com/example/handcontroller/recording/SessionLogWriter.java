@@ -0,0 +1,124 @@
+package com.example.handcontroller.recording;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends whole records to the segment files of one session directory,
+ * through a FileChannel and a reused direct buffer. Starts a new segment
+ * whenever the next chunk would push the current one past segmentBytes.
+ * Single threaded.
+ */
+public class SessionLogWriter {
+
+    private final File directory;
+    private final long segmentBytes;
+    private final long startNanos;
+    private final long startWallMillis;
+    private final ByteBuffer buffer;
+
+    private FileOutputStream stream;
+    private FileChannel channel;
+    private int segmentIndex = -1;
+    private long segmentLength;
+    private long bytesWritten;
+
+    /**
+     * @param bufferBytes largest chunk passed to write(); also the size of
+     *     the direct buffer used for channel writes
+     */
+    public SessionLogWriter(
+        File directory,
+        long segmentBytes,
+        int bufferBytes,
+        long startNanos,
+        long startWallMillis
+    ) throws IOException {
+        if (segmentBytes < SessionLogFormat.SEGMENT_HEADER_LENGTH + bufferBytes) {
+            throw new IllegalArgumentException(
+                "Segment too small for the buffer: " + segmentBytes
+            );
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.startNanos = startNanos;
+        this.startWallMillis = startWallMillis;
+        buffer = ByteBuffer.allocateDirect(bufferBytes);
+        openSegment();
+    }
+
+    // data must hold whole records only
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (length > buffer.capacity()) {
+            throw new IllegalArgumentException("Chunk too large: " + length);
+        }
+        if (length == 0) {
+            return;
+        }
+        if (segmentLength + length > segmentBytes) {
+            closeSegment();
+            openSegment();
+        }
+        buffer.clear();
+        buffer.put(data, offset, length);
+        buffer.flip();
+        drain();
+        segmentLength += length;
+        bytesWritten += length;
+    }
+
+    public int getSegmentCount() {
+        return segmentIndex + 1;
+    }
+
+    // Record bytes written, excluding segment headers
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    private void openSegment() throws IOException {
+        segmentIndex++;
+        File file = new File(directory, SessionLogFormat.segmentName(segmentIndex));
+        stream = new FileOutputStream(file);
+        channel = stream.getChannel();
+        buffer.clear();
+        SessionLogFormat.writeSegmentHeader(
+            buffer,
+            segmentIndex,
+            startNanos,
+            startWallMillis
+        );
+        buffer.flip();
+        drain();
+        segmentLength = SessionLogFormat.SEGMENT_HEADER_LENGTH;
+    }
+
+    private void closeSegment() throws IOException {
+        if (stream != null) {
+            channel.force(false);
+            stream.close();
+            stream = null;
+            channel = null;
+        }
+    }
+
+    private void drain() throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.handcontroller.recording;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records a session from any number of threads without doing I/O on them.
+ * Producers encode each record into a shared staging buffer under a short
+ * lock (a header plus one copy); a background thread swaps the buffer out
+ * every flush interval, or sooner once it is half full, and writes it
+ * through a SessionLogWriter. Records that do not fit in the staging
+ * buffer are dropped and counted rather than blocking the producer.
+ */
+public class SessionRecorder {
+
+    public interface ErrorListener {
+        // Called on the writer thread; recording has stopped
+        void onRecordingError(IOException error);
+    }
+
+    private final SessionLogWriter writer;
+    private final long flushIntervalNanos;
+    private final ErrorListener errorListener;
+    private final Thread thread;
+    private final byte[] stateScratch = new byte[1];
+
+    // Guarded by this
+    private byte[] back;
+    private byte[] front;
+    private int backLength;
+    private long recordCount;
+    private long droppedCount;
+
+    private volatile boolean running = true;
+
+    public SessionRecorder(
+        SessionLogWriter writer,
+        int stagingBytes,
+        long flushIntervalMs,
+        ErrorListener errorListener
+    ) {
+        this.writer = writer;
+        this.flushIntervalNanos = flushIntervalMs * 1_000_000L;
+        this.errorListener = errorListener;
+        back = new byte[stagingBytes];
+        front = new byte[stagingBytes];
+        thread = new Thread(this::run, "SessionRecorder");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    public void recordSensorData(byte[] data, int offset, int length, long timestampNanos) {
+        append(SessionLogFormat.TYPE_SENSOR_DATA, data, offset, length, timestampNanos);
+    }
+
+    public void recordCommand(byte[] data, int offset, int length, long timestampNanos) {
+        append(SessionLogFormat.TYPE_COMMAND, data, offset, length, timestampNanos);
+    }
+
+    public void recordConnectionState(int state, long timestampNanos) {
+        synchronized (this) {
+            stateScratch[0] = (byte) state;
+            append(SessionLogFormat.TYPE_CONNECTION_STATE, stateScratch, 0, 1, timestampNanos);
+        }
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    // Records lost because the writer fell behind
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Flushes what is staged, closes the log and waits for the writer thread. */
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    private void append(
+        byte type,
+        byte[] data,
+        int offset,
+        int length,
+        long timestampNanos
+    ) {
+        if (length > SessionLogFormat.MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Record too long: " + length);
+        }
+        int recordLength = SessionLogFormat.RECORD_HEADER_LENGTH + length;
+        boolean wake;
+        synchronized (this) {
+            if (!running || backLength + recordLength > back.length) {
+                droppedCount++;
+                return;
+            }
+            int payload = SessionLogFormat.writeRecordHeader(
+                back,
+                backLength,
+                type,
+                length,
+                timestampNanos
+            );
+            System.arraycopy(data, offset, back, payload, length);
+            int before = backLength;
+            backLength += recordLength;
+            recordCount++;
+            wake = before < back.length / 2 && backLength >= back.length / 2;
+        }
+        if (wake) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Swaps the staging buffers, then writes the full one outside the lock
+    private void flush() throws IOException {
+        int length;
+        synchronized (this) {
+            byte[] swapped = front;
+            front = back;
+            back = swapped;
+            length = backLength;
+            backLength = 0;
+        }
+        writer.write(front, 0, length);
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                LockSupport.parkNanos(flushIntervalNanos);
+                flush();
+            }
+            // Producers are refused now; write whatever was staged last
+            flush();
+            writer.close();
+        } catch (IOException e) {
+            running = false;
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+            if (errorListener != null) {
+                errorListener.onRecordingError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.handcontroller.recording;
+
+import java.io.IOException;
+
+/**
+ * Plays a recorded session back into a Sink, standing in for the live
+ * Bluetooth link. Records keep their recorded spacing, divided by speed;
+ * AS_FAST_AS_POSSIBLE skips pacing entirely, for benchmarks and
+ * regression runs. Runs on the calling thread until the log ends or
+ * cancel() is called.
+ */
+public class SessionReplayer {
+
+    public static final float REAL_TIME = 1f;
+    public static final float AS_FAST_AS_POSSIBLE = 0f;
+
+    public interface Sink {
+        // data is only valid during the call
+        void onSensorData(byte[] data, int length, long timestampNanos);
+
+        void onCommand(byte[] data, int length, long timestampNanos);
+
+        void onConnectionState(int state, long timestampNanos);
+    }
+
+    public interface Clock {
+        long nanos();
+
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanos() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(long nanos) throws InterruptedException {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        }
+    };
+
+    private final SessionLogReader reader;
+    private final Sink sink;
+    private final float speed;
+    private final Clock clock;
+    private volatile boolean cancelled;
+
+    private long recordCount;
+    private long sensorBytes;
+    private long maxLagNanos;
+
+    /** @param speed playback rate relative to real time, or AS_FAST_AS_POSSIBLE */
+    public SessionReplayer(SessionLogReader reader, Sink sink, float speed, Clock clock) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Invalid speed: " + speed);
+        }
+        this.reader = reader;
+        this.sink = sink;
+        this.speed = speed;
+        this.clock = clock;
+    }
+
+    /** Replays every record; returns the number delivered. */
+    public long run() throws IOException, InterruptedException {
+        long firstTimestamp = 0;
+        long startNanos = 0;
+        while (!cancelled && reader.next()) {
+            long timestamp = reader.getTimestampNanos();
+            if (recordCount == 0) {
+                firstTimestamp = timestamp;
+                startNanos = clock.nanos();
+            }
+            if (speed != AS_FAST_AS_POSSIBLE) {
+                long due = startNanos + (long) ((timestamp - firstTimestamp) / speed);
+                long wait = due - clock.nanos();
+                if (wait > 0) {
+                    clock.sleepNanos(wait);
+                } else if (-wait > maxLagNanos) {
+                    maxLagNanos = -wait;
+                }
+            }
+            deliver(timestamp);
+        }
+        return recordCount;
+    }
+
+    // Safe from any thread; the replay stops before the next record
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getSensorBytes() {
+        return sensorBytes;
+    }
+
+    // Worst delay behind the paced schedule; stays 0 when the sink keeps up
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    private void deliver(long timestamp) {
+        byte[] payload = reader.getPayload();
+        int length = reader.getPayloadLength();
+        switch (reader.getType()) {
+            case SessionLogFormat.TYPE_SENSOR_DATA:
+                sensorBytes += length;
+                sink.onSensorData(payload, length, timestamp);
+                break;
+            case SessionLogFormat.TYPE_COMMAND:
+                sink.onCommand(payload, length, timestamp);
+                break;
+            case SessionLogFormat.TYPE_CONNECTION_STATE:
+                if (length > 0) {
+                    sink.onConnectionState(payload[0], timestamp);
+                }
+                break;
+            default:
+                // Newer record types are skipped
+                return;
+        }
+        recordCount++;
+    }
+}
@@ -9,15 +9,61 @@ import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Binder;
+import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.app.ActivityCompat;
+import com.example.handcontroller.calibration.CalibrationPhase;
+import com.example.handcontroller.calibration.EmgProfile;
+import com.example.handcontroller.control.ProportionalMapper;
+import com.example.handcontroller.control.SetpointCoalescer;
+import com.example.handcontroller.control.Trajectory;
+import com.example.handcontroller.gesture.Gesture;
+import com.example.handcontroller.macro.CompiledMacro;
+import com.example.handcontroller.macro.Macro;
+import com.example.handcontroller.macro.MacroPlayer;
+import com.example.handcontroller.metrics.Counter;
+import com.example.handcontroller.metrics.MetricsRegistry;
+import com.example.handcontroller.protocol.FrameFormat;
+import com.example.handcontroller.protocol.MotorCommandCodec;
+import com.example.handcontroller.protocol.ProtocolMode;
+import com.example.handcontroller.protocol.SensorFrameParser;
+import com.example.handcontroller.recording.SessionLogWriter;
+import com.example.handcontroller.recording.SessionRecorder;
+import com.example.handcontroller.transport.LinkPolicy;
+import com.example.handcontroller.transport.LinkQualityMonitor;
+import com.example.handcontroller.transport.LoopbackTransport;
+import com.example.handcontroller.transport.ReconnectPolicy;
+import com.example.handcontroller.transport.ScanTracker;
+import com.example.handcontroller.transport.WriteQueue;
+import com.example.handcontroller.utils.Histogram;
+import com.example.handcontroller.utils.LatencyStats;
+import com.example.handcontroller.utils.SampleRingBuffer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BluetoothService extends Service {
 
@@ -29,10 +75,73 @@ public class BluetoothService extends Service {
     public static final int STATE_CONNECTED = 2;
 
     // Command types
-    private static final String CMD_MOTOR = "M";
     private static final String CMD_SENSOR = "S";
     private static final String CMD_CALIBRATE = "C";
     private static final String CMD_STOP = "STOP";
+    private static final byte[] STOP_COMMAND = CMD_STOP.getBytes(
+        StandardCharsets.US_ASCII
+    );
+
+    // Outbound write pipeline
+    private static final int WRITE_QUEUE_CAPACITY = 32;
+    private static final long WRITE_TIMEOUT_MS = 250;
+    private static final int WRITE_MAX_RETRIES = 2;
+    private static final long WRITE_POLL_INTERVAL_MS = 50;
+    private static final int MAX_CALIBRATION_COMMAND_LENGTH = 32;
+
+    // Inbound sensor stream: EMG sensor 0 and 1
+    public static final int SENSOR_CHANNELS = 2;
+    public static final float SENSOR_SAMPLE_RATE_HZ = 1000f;
+    public static final int EMG_EXTEND_CHANNEL = 0;
+    public static final int EMG_GRIP_CHANNEL = 1;
+    private static final String EMG_PROFILE_PREFS = "EmgProfile";
+    // Envelope range used until the user has calibrated
+    private static final float DEFAULT_EMG_REST = 20f;
+    private static final float DEFAULT_EMG_MAX = 800f;
+    private static final int SENSOR_BUFFER_FRAMES = 4096;
+
+    // Smooth pose transitions, in hardware position units
+    private static final int TRAJECTORY_TICK_RATE_HZ = 50;
+    private static final double TRAJECTORY_MAX_VELOCITY = 180;
+    private static final double TRAJECTORY_MAX_ACCELERATION = 720;
+
+    // Session recording
+    private static final String SESSIONS_DIRECTORY = "sessions";
+    private static final long SESSION_SEGMENT_BYTES = 4L << 20;
+    private static final int SESSION_STAGING_BYTES = 64 << 10;
+    private static final long SESSION_FLUSH_INTERVAL_MS = 50;
+
+    // Automatic reconnection after an unexpected drop
+    private static final String CONNECTION_PREFS = "ConnectionPrefs";
+    private static final String KEY_LAST_DEVICE_ADDRESS = "lastDeviceAddress";
+    private static final String KEY_PROTOCOL_MODE = "protocolMode";
+    private static final long RECONNECT_INITIAL_DELAY_MS = 100;
+    private static final long RECONNECT_MAX_DELAY_MS = 10_000;
+    private static final int RECONNECT_MAX_ATTEMPTS = 12;
+    // A direct connect to a device in range completes well within this
+    private static final long RECONNECT_ATTEMPT_TIMEOUT_MS = 5_000;
+
+    // A direct connect to the last used hand at startup; after this it waits in the background
+    private static final long FAST_CONNECT_TIMEOUT_MS = 5_000;
+
+    // Largest ATT MTU asked for; 247 fills one LE data-length-extended packet
+    private static final int REQUESTED_MTU = 247;
+
+    // Idle time on balanced link parameters before dropping to low power
+    private static final long LINK_IDLE_LOW_POWER_DELAY_MS = 30_000;
+
+    // Batched scan results are delivered this often when the controller can batch
+    private static final long SCAN_REPORT_DELAY_MS = 250;
+
+    // Metrics snapshots, one JSON file per export
+    private static final String METRICS_DIRECTORY = "metrics";
+    private static final long MAX_LATENCY_MICROS = 10_000_000L;
+    private static final long MAX_LATENCY_MS = 10_000L;
+    private static final long MAX_NOTIFICATION_RATE = 10_000L;
+
+    // Link quality probes: one RSSI read and one ping per interval
+    private static final long LINK_PROBE_INTERVAL_MS = 1000;
+    private static final long LINK_PING_TIMEOUT_MS = 3000;
 
     // UUIDs for BLE service and characteristic - Update these with your device's UUIDs
     private static final UUID SERVICE_UUID = UUID.fromString(
@@ -45,15 +154,156 @@ public class BluetoothService extends Service {
     private BluetoothManager bluetoothManager;
     private BluetoothAdapter bluetoothAdapter;
     private BluetoothLeScanner bluetoothLeScanner;
-    private BluetoothGatt bluetoothGatt;
+    private volatile BluetoothGatt bluetoothGatt;
     private Handler handler;
-    private int connectionState;
+    private volatile int connectionState;
     private static BluetoothService instance;
 
+    // Send and receive path metrics; the hot paths only touch the fields below
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Counter commandsSent = metrics.counter("commands.sent");
+    private final Counter bytesSent = metrics.counter("bytes.sent");
+    private final Counter writeErrors = metrics.counter("write.errors");
+    private final Counter notificationsReceived = metrics.counter("notifications.received");
+    private final Counter bytesReceived = metrics.counter("bytes.received");
+    private final Histogram notificationRate = metrics.histogram(
+        "notifications.per_second",
+        MAX_NOTIFICATION_RATE
+    );
+    private final Histogram writeAckRtt = metrics.histogram("write.ack_rtt_ms", MAX_LATENCY_MS);
+    private final Histogram stopLatency = metrics.histogram("stop.latency_ms", MAX_LATENCY_MS);
+    private final Histogram controlLag = metrics.histogram(
+        "control.latency_us",
+        MAX_LATENCY_MICROS
+    );
+    private final Histogram scanTimeToLastDevice = metrics.histogram(
+        "scan.time_to_last_device_ms",
+        MAX_LATENCY_MS
+    );
+    private final Histogram coldStartConnect = metrics.histogram(
+        "connect.cold_start_ms",
+        MAX_LATENCY_MS * 6
+    );
+    private final Histogram fastConnectTime = metrics.histogram(
+        "connect.fast_ms",
+        MAX_LATENCY_MS
+    );
+    private long lastNotificationCount;
+
+    // Outbound encoding
+    private final MotorCommandCodec motorCodec = new MotorCommandCodec();
+    private final byte[] commandBuffer =
+        new byte[MotorCommandCodec.MAX_COMMAND_LENGTH];
+    private GattWriteTransport writeTransport;
+    // Resolved handles of the current connection; null until services are discovered
+    private volatile GattSession gattSession;
+    private WriteQueue writeQueue;
+    private final AtomicBoolean writePollScheduled = new AtomicBoolean();
+
+    // Hardware targets of the motor and pose commands handed to the stack, by motor id - 1
+    private final int[] lastCommandedPose = new int[MotorCommandCodec.MAX_POSE_MOTORS];
+    private int lastCommandedMotors;
+
+    // Emergency stop latency, from sendEmergencyStop to write confirmation
+    private volatile long lastStopLatencyMs = -1;
+    private volatile long maxStopLatencyMs = -1;
+
+    // Real-time streaming of slider positions
+    private volatile SetpointCoalescer streamSetpoints;
+    private int[] streamPose;
+    private long streamIntervalMs;
+    private long nextStreamTick;
+
+    // Trajectory being played, one table row per tick; ticks run on the main thread
+    private volatile Trajectory trajectory;
+    private int trajectoryTick;
+    private int[] trajectoryPose;
+    private long nextTrajectoryTick;
+
+    // Macro being played; generation is bumped under commandBuffer on every
+    // start and stop so a cancelled player can never send another frame
+    private volatile MacroPlayer macroPlayer;
+    private int macroGeneration;
+    private LatencyStats macroJitter = new LatencyStats();
+
+    // Proportional myoelectric control, driving the streamed setpoints
+    private final float[] emgRest = { DEFAULT_EMG_REST, DEFAULT_EMG_REST };
+    private final float[] emgMax = { DEFAULT_EMG_MAX, DEFAULT_EMG_MAX };
+    private volatile ProportionalMapper proportionalMapper;
+    private ListenerSubscription proportionalSubscription;
+    private EmgProfileStore emgProfileStore;
+    private volatile EmgProfile emgProfile;
+    // Arrival time of the oldest sensor sample behind the unsent setpoints, 0 if none
+    private final AtomicLong pendingControlSampleNanos = new AtomicLong();
+    private final LatencyStats controlLatency = new LatencyStats();
+
+    // Reconnection state, main thread only apart from deviceAddress
+    private final ReconnectPolicy reconnectPolicy = new ReconnectPolicy(
+        RECONNECT_INITIAL_DELAY_MS,
+        RECONNECT_MAX_DELAY_MS,
+        RECONNECT_MAX_ATTEMPTS,
+        new Random()
+    );
+    private volatile String deviceAddress;
+    private boolean reconnecting;
+    private long linkLostNanos;
+    // From detecting the drop to notifications flowing again
+    private final LatencyStats reconnectTime = new LatencyStats();
+
+    // Startup connection to the last used hand, main thread only
+    private boolean fastConnecting;
+    private long fastConnectStartMs;
+    // Process start, or service creation before API 24; 0 once the first link is up, or
+    // when there is no remembered hand or the user starts a scan first
+    private long coldStartMs;
+    private volatile long coldStartConnectMs = -1;
+
+    // Link parameters follow what the user is doing; main thread only
+    private final LinkPolicy linkPolicy = new LinkPolicy(LINK_IDLE_LOW_POWER_DELAY_MS);
+    private boolean controlScreenActive;
+    // Mode applied to the current session, null until one is
+    private volatile LinkPolicy.Mode linkMode;
+    // Acknowledged write round trips, indexed by LinkPolicy.Mode ordinal
+    private final LatencyStats[] linkRtt = new LatencyStats[LinkPolicy.Mode.values().length];
+
+    // RSSI, echo round trips, loss and throughput of the current connection
+    private final LinkQualityMonitor linkQuality = new LinkQualityMonitor(
+        LINK_PING_TIMEOUT_MS * 1_000_000L
+    );
+    private final byte[] pingBuffer = new byte[MotorCommandCodec.PING_FRAME_LENGTH];
+
+    // Devices seen by the current scan; scan callbacks run on the main thread
+    private final ScanTracker<BluetoothDevice> scanTracker = new ScanTracker<>();
+    private boolean scanning;
+    private long scanStartMs;
+    // Address the scan stops and connects at, null to scan until stopScan
+    private String scanTargetAddress;
+
     // Callbacks
-    private OnConnectionStateChangeListener stateChangeListener;
-    private OnDataReceivedListener dataReceivedListener;
-    private OnDeviceFoundListener deviceFoundListener;
+    private ListenerDispatcher dispatcher;
+
+    // Decoded samples handed from the GATT callback thread to emgProcessor
+    private final SampleRingBuffer sensorBuffer = new SampleRingBuffer(
+        SENSOR_BUFFER_FRAMES,
+        SENSOR_CHANNELS
+    );
+    private EmgProcessor emgProcessor;
+    private volatile SessionRecorder sessionRecorder;
+    private ReplaySession replaySession;
+
+    // Inbound decoding, only touched from the GATT callback thread
+    private final SensorFrameParser sensorParser = new SensorFrameParser(
+        (samples, frameCount, channelCount) -> {
+            sensorBuffer.write(
+                samples,
+                frameCount,
+                channelCount,
+                SystemClock.elapsedRealtimeNanos()
+            );
+            emgProcessor.onSamplesAvailable();
+            dispatcher.dispatchSensor(samples, frameCount, channelCount);
+        }
+    );
 
     // Binder
     private final IBinder binder = new LocalBinder();
@@ -71,7 +321,45 @@ public class BluetoothService extends Service {
         instance = this;
         connectionState = STATE_NONE;
         handler = new Handler();
+        dispatcher = new ListenerDispatcher(SENSOR_CHANNELS, metrics);
+        emgProcessor = new EmgProcessor(sensorBuffer, SENSOR_SAMPLE_RATE_HZ);
+        sensorParser.setPongListener(pingId ->
+            linkQuality.onPong(pingId, SystemClock.elapsedRealtimeNanos())
+        );
         initializeBluetooth();
+        initializeWriteQueue();
+        initializeEmgProfile();
+        applyProtocolMode(getSavedProtocolMode());
+        registerGauges();
+        long startMs = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            ? android.os.Process.getStartElapsedRealtime()
+            : SystemClock.elapsedRealtime();
+        // Without a remembered hand the first link waits on the user, not on startup
+        if (fastConnect()) {
+            coldStartMs = startMs;
+        }
+    }
+
+    // Values other components already keep, read when a snapshot is taken
+    private void registerGauges() {
+        metrics.gauge("write.queue_depth", () -> writeQueue.getPendingCount());
+        metrics.gauge("write.dropped", () -> writeQueue.getDroppedCount());
+        metrics.gauge("write.failed", () -> writeQueue.getFailedCount());
+        metrics.gauge("write.timeouts", () -> writeQueue.getTimeoutCount());
+        metrics.gauge("write.retries", () -> writeQueue.getRetryCount());
+        metrics.gauge("sensor.overflows", sensorBuffer::getOverflowCount);
+        metrics.gauge("link.rssi_dbm", () -> {
+            int rssi = linkQuality.getRssi();
+            return rssi == LinkQualityMonitor.NO_RSSI ? 0 : rssi;
+        });
+        metrics.gauge("link.ping_rtt_p95_us", () ->
+            linkQuality.getRoundTrip().getPercentile(95)
+        );
+        // Firmware without an echo would otherwise read as a dead link
+        metrics.gauge("link.pings_lost", () ->
+            linkQuality.hasEcho() ? linkQuality.getPingsLost() : 0
+        );
+        metrics.gauge("reconnect.count", reconnectTime::getCount);
     }
 
     private void initializeBluetooth() {
@@ -86,6 +374,59 @@ public class BluetoothService extends Service {
         }
     }
 
+    private void initializeWriteQueue() {
+        writeTransport = new GattWriteTransport(this, WriteQueue.MAX_PACKET_LENGTH);
+        writeQueue = new WriteQueue(
+            (data, length, acknowledged) -> {
+                boolean written = writeTransport.write(data, length, acknowledged);
+                if (written) {
+                    rememberCommandedPose(data, length);
+                }
+                return written;
+            },
+            SystemClock::uptimeMillis,
+            WRITE_QUEUE_CAPACITY,
+            MotorCommandCodec.MAX_COMMAND_LENGTH,
+            WRITE_TIMEOUT_MS,
+            WRITE_MAX_RETRIES
+        );
+        for (int i = 0; i < linkRtt.length; i++) {
+            linkRtt[i] = new LatencyStats();
+        }
+        writeQueue.setWriteListener((rttMs, acknowledged) -> {
+            LinkPolicy.Mode mode = linkMode;
+            if (acknowledged) {
+                writeAckRtt.record(rttMs);
+                if (mode != null) {
+                    linkRtt[mode.ordinal()].record(rttMs * 1_000_000L);
+                }
+            }
+        });
+        writeQueue.setUrgentWriteListener(
+            new WriteQueue.UrgentWriteListener() {
+                @Override
+                public void onUrgentWriteConfirmed(long latencyMs) {
+                    lastStopLatencyMs = latencyMs;
+                    stopLatency.record(latencyMs);
+                    if (latencyMs > maxStopLatencyMs) {
+                        maxStopLatencyMs = latencyMs;
+                    }
+                    Log.i(
+                        TAG,
+                        "Emergency stop confirmed in " + latencyMs +
+                        " ms (max " + maxStopLatencyMs + " ms)"
+                    );
+                }
+
+                @Override
+                public void onUrgentWriteFailed() {
+                    Log.e(TAG, "Emergency stop was not confirmed");
+                    notifyError("Emergency stop was not confirmed by device");
+                }
+            }
+        );
+    }
+
     public static BluetoothService getInstance() {
         return instance;
     }
@@ -97,19 +438,64 @@ public class BluetoothService extends Service {
 
     // Scanning methods
     public void startScan() {
+        startScan(false);
+    }
+
+    /**
+     * Scans for nearby devices. Each device is reported once to
+     * OnDeviceFoundListeners; later advertisements only update its
+     * smoothed RSSI. A plain scan lists every device, so the user can pick
+     * any hand. connectToLastDevice is the automatic reconnect path: the
+     * controller filters for the hand service so other devices never wake
+     * the app, the scan runs unbatched, and as soon as the last connected
+     * device shows up it stops and connects to it. Call on the main
+     * thread.
+     */
+    public void startScan(boolean connectToLastDevice) {
         if (
-            bluetoothLeScanner != null &&
+            bluetoothLeScanner == null ||
             ActivityCompat.checkSelfPermission(
                 this,
                 android.Manifest.permission.BLUETOOTH_SCAN
-            ) ==
+            ) !=
             PackageManager.PERMISSION_GRANTED
         ) {
-            bluetoothLeScanner.startScan(scanCallback);
+            return;
+        }
+        stopScan();
+        scanTracker.clear();
+        scanTargetAddress = connectToLastDevice ? getLastDeviceAddress() : null;
+        if (scanTargetAddress == null) {
+            // The user is choosing a device; startup time is no longer what a link would measure
+            coldStartMs = 0;
+        }
+        ScanSettings.Builder settings = new ScanSettings.Builder().setScanMode(
+            ScanSettings.SCAN_MODE_LOW_LATENCY
+        );
+        // Batching saves wake-ups while browsing but would delay the early stop
+        if (
+            scanTargetAddress == null &&
+            bluetoothAdapter.isOffloadedScanBatchingSupported()
+        ) {
+            settings.setReportDelay(SCAN_REPORT_DELAY_MS);
         }
+        List<ScanFilter> filters = scanTargetAddress == null
+            ? null
+            : Collections.singletonList(
+                new ScanFilter.Builder()
+                    .setServiceUuid(new ParcelUuid(SERVICE_UUID))
+                    .build()
+            );
+        scanStartMs = SystemClock.uptimeMillis();
+        scanning = true;
+        bluetoothLeScanner.startScan(filters, settings.build(), scanCallback);
     }
 
     public void stopScan() {
+        if (!scanning) {
+            return;
+        }
+        scanning = false;
         if (
             bluetoothLeScanner != null &&
             ActivityCompat.checkSelfPermission(
@@ -122,6 +508,36 @@ public class BluetoothService extends Service {
         }
     }
 
+    public boolean isScanning() {
+        return scanning;
+    }
+
+    // Smoothed RSSI of a device seen by the current scan, or null if unseen
+    public Integer getScanRssi(String address) {
+        ScanTracker.Entry<BluetoothDevice> entry = scanTracker.get(address);
+        return entry == null ? null : entry.getRssi();
+    }
+
+    private void handleScanResult(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        String address = device.getAddress();
+        long now = SystemClock.uptimeMillis();
+        ScanTracker.Entry<BluetoothDevice> entry = scanTracker.onResult(
+            address,
+            device,
+            result.getRssi(),
+            now
+        );
+        if (entry.getSightings() == 1) {
+            dispatcher.dispatchDevice(device);
+        }
+        if (address.equals(scanTargetAddress)) {
+            scanTimeToLastDevice.record(now - scanStartMs);
+            stopScan();
+            connect(device);
+        }
+    }
+
     // Connection methods
     public void connect(BluetoothDevice device) {
         if (
@@ -131,13 +547,241 @@ public class BluetoothService extends Service {
             ) ==
             PackageManager.PERMISSION_GRANTED
         ) {
+            cancelReconnect();
+            cancelFastConnect();
+            // A pending background connection must not race the one asked for
+            releaseGatt();
+            deviceAddress = device.getAddress();
             connectionState = STATE_CONNECTING;
             notifyStateChange();
-            bluetoothGatt = device.connectGatt(this, false, gattCallback);
+            openGatt(device);
+        }
+    }
+
+    // Direct (not background) connection, so a device in range answers in milliseconds
+    private void openGatt(BluetoothDevice device) {
+        openGatt(device, false);
+    }
+
+    private void openGatt(BluetoothDevice device, boolean autoConnect) {
+        if (
+            ActivityCompat.checkSelfPermission(
+                this,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) ==
+            PackageManager.PERMISSION_GRANTED
+        ) {
+            invalidateSession();
+            applyProtocolMode(getSavedProtocolMode());
+            bluetoothGatt = device.connectGatt(this, autoConnect, gattCallback);
+        }
+    }
+
+    /**
+     * Connects to the last hand that reached a working link, without a
+     * scan. A direct connection is tried first. If the hand does not answer
+     * within FAST_CONNECT_TIMEOUT_MS, the state drops back to STATE_NONE
+     * and a background (autoConnect) connection keeps waiting for it at
+     * low duty cycle until connect() or closeConnection() replaces it.
+     * Returns false if there is no remembered hand or Bluetooth is not
+     * usable; the caller then falls back to scanning. Call on the main
+     * thread.
+     */
+    public boolean fastConnect() {
+        String address = getLastDeviceAddress();
+        if (
+            connectionState != STATE_NONE ||
+            bluetoothGatt != null ||
+            address == null ||
+            !BluetoothAdapter.checkBluetoothAddress(address) ||
+            bluetoothAdapter == null ||
+            !bluetoothAdapter.isEnabled() ||
+            ActivityCompat.checkSelfPermission(
+                this,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) !=
+            PackageManager.PERMISSION_GRANTED
+        ) {
+            return false;
+        }
+        cancelReconnect();
+        deviceAddress = address;
+        fastConnecting = true;
+        fastConnectStartMs = SystemClock.uptimeMillis();
+        connectionState = STATE_CONNECTING;
+        notifyStateChange();
+        openGatt(bluetoothAdapter.getRemoteDevice(address));
+        handler.postDelayed(fastConnectTimeout, FAST_CONNECT_TIMEOUT_MS);
+        Log.i(TAG, "Fast connecting to " + address);
+        return true;
+    }
+
+    // True while the startup connection's direct attempt is running
+    public boolean isFastConnecting() {
+        return fastConnecting;
+    }
+
+    // Process start to the first link to the remembered hand, -1 if there has not been one
+    public long getColdStartConnectMs() {
+        return coldStartConnectMs;
+    }
+
+    private final Runnable fastConnectTimeout = this::fallBackToBackgroundConnect;
+
+    // Main thread; the hand is probably out of range, so wait for it cheaply
+    private void fallBackToBackgroundConnect() {
+        if (!fastConnecting || isConnected()) {
+            return;
+        }
+        cancelFastConnect();
+        String address = deviceAddress;
+        releaseGatt();
+        connectionState = STATE_NONE;
+        notifyStateChange();
+        if (address != null) {
+            Log.i(TAG, "Hand not in range, waiting for " + address + " in the background");
+            openGatt(bluetoothAdapter.getRemoteDevice(address), true);
+        }
+    }
+
+    private void cancelFastConnect() {
+        fastConnecting = false;
+        handler.removeCallbacks(fastConnectTimeout);
+    }
+
+    // Address of the last device a working link was made with, kept across restarts; null if none
+    public String getLastDeviceAddress() {
+        return getSharedPreferences(CONNECTION_PREFS, MODE_PRIVATE)
+            .getString(KEY_LAST_DEVICE_ADDRESS, null);
+    }
+
+    public boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    public LatencyStats getReconnectTime() {
+        return reconnectTime;
+    }
+
+    // Main thread; gatt is the connection that dropped
+    private void onLinkLost(BluetoothGatt gatt) {
+        if (gatt != bluetoothGatt || deviceAddress == null) {
+            // Closed on purpose, or already replaced
+            return;
+        }
+        if (fastConnecting) {
+            // The startup attempt failed outright; no point retrying it at full rate
+            fallBackToBackgroundConnect();
+            return;
+        }
+        handler.removeCallbacks(reconnectTimeout);
+        releaseGatt();
+        if (!reconnecting) {
+            reconnecting = true;
+            linkLostNanos = SystemClock.elapsedRealtimeNanos();
+            reconnectPolicy.reset();
+        }
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        long delayMs = reconnectPolicy.nextDelayMs();
+        if (delayMs < 0) {
+            Log.w(TAG, "Giving up reconnecting to " + deviceAddress);
+            reconnecting = false;
+            connectionState = STATE_NONE;
+            notifyStateChange();
+            notifyError("Lost connection to device");
+            return;
+        }
+        handler.postDelayed(reconnectAttempt, delayMs);
+    }
+
+    private final Runnable reconnectAttempt = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                openGatt(bluetoothAdapter.getRemoteDevice(deviceAddress));
+            } catch (Exception e) {
+                Log.e(TAG, "Reconnect attempt failed: " + e.getMessage());
+            }
+            handler.postDelayed(reconnectTimeout, RECONNECT_ATTEMPT_TIMEOUT_MS);
+        }
+    };
+
+    // The stack may sit on a connect for 30 s; back off and try again sooner
+    private final Runnable reconnectTimeout = new Runnable() {
+        @Override
+        public void run() {
+            if (reconnecting && !isConnected()) {
+                releaseGatt();
+                scheduleReconnect();
+            }
+        }
+    };
+
+    // Main thread; notifications are flowing again
+    private void onLinkReady() {
+        handler.removeCallbacks(reconnectTimeout);
+        linkPolicy.reset(SystemClock.uptimeMillis());
+        updateLinkMode();
+        linkQuality.reset(SystemClock.elapsedRealtimeNanos());
+        lastNotificationCount = notificationsReceived.get();
+        handler.removeCallbacks(linkProbe);
+        handler.postDelayed(linkProbe, LINK_PROBE_INTERVAL_MS);
+        String address = deviceAddress;
+        if (address != null) {
+            // Only a hand that reached a working link is worth fast-connecting to
+            getSharedPreferences(CONNECTION_PREFS, MODE_PRIVATE)
+                .edit()
+                .putString(KEY_LAST_DEVICE_ADDRESS, address)
+                .apply();
+        }
+        if (fastConnecting) {
+            cancelFastConnect();
+            fastConnectTime.record(SystemClock.uptimeMillis() - fastConnectStartMs);
+        }
+        if (coldStartMs != 0) {
+            coldStartConnectMs = SystemClock.elapsedRealtime() - coldStartMs;
+            coldStartMs = 0;
+            coldStartConnect.record(coldStartConnectMs);
+            Log.i(TAG, "Connected " + coldStartConnectMs + " ms after cold start");
+        }
+        if (reconnecting) {
+            reconnecting = false;
+            reconnectTime.record(SystemClock.elapsedRealtimeNanos() - linkLostNanos);
+            Log.i(TAG, "Reconnected in " + reconnectTime.getLastMillis() + " ms");
+        }
+        reconnectPolicy.reset();
+    }
+
+    private void cancelReconnect() {
+        reconnecting = false;
+        handler.removeCallbacks(reconnectAttempt);
+        handler.removeCallbacks(reconnectTimeout);
+    }
+
+    private void releaseGatt() {
+        BluetoothGatt gatt = bluetoothGatt;
+        bluetoothGatt = null;
+        invalidateSession();
+        if (
+            gatt != null &&
+            ActivityCompat.checkSelfPermission(
+                this,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) ==
+            PackageManager.PERMISSION_GRANTED
+        ) {
+            gatt.close();
         }
     }
 
+    // Closing on purpose forgets the session; nothing reconnects until connect() is called again
     public void closeConnection() {
+        cancelReconnect();
+        cancelFastConnect();
+        deviceAddress = null;
         if (bluetoothGatt != null) {
             if (
                 ActivityCompat.checkSelfPermission(
@@ -150,6 +794,8 @@ public class BluetoothService extends Service {
                 bluetoothGatt = null;
             }
         }
+        invalidateSession();
+        writeQueue.clear();
         connectionState = STATE_NONE;
         notifyStateChange();
     }
@@ -159,200 +805,1368 @@ public class BluetoothService extends Service {
         if (!isConnected()) return;
 
         try {
-            String command = String.format(
-                "%s%d:%d",
-                CMD_MOTOR,
-                motorId,
-                position
-            );
-            sendData(command.getBytes());
+            synchronized (commandBuffer) {
+                int length = motorCodec.encodeMotor(
+                    motorId,
+                    position,
+                    commandBuffer,
+                    0
+                );
+                sendData(commandBuffer, length, commandFlags());
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error sending motor command: " + e.getMessage());
             notifyError("Failed to send motor command: " + e.getMessage());
         }
     }
 
-    public void sendCalibrationCommand(String type) {
-        if (!isConnected()) return;
+    // Sends every motor target (motor ids 1..n) in a single write
+    public void sendPose(int[] positions) {
+        sendPose(positions, false);
+    }
 
-        try {
-            String command = String.format("%s:%s", CMD_CALIBRATE, type);
-            sendData(command.getBytes());
-        } catch (Exception e) {
-            Log.e(TAG, "Error sending calibration command: " + e.getMessage());
-            notifyError(
-                "Failed to send calibration command: " + e.getMessage()
-            );
+    // A streamed pose is a setpoint the next one supersedes, so it skips the ATT response
+    private void sendPose(int[] positions, boolean streamed) {
+        SetpointCoalescer setpoints = streamSetpoints;
+        if (setpoints != null && setpoints.getMotorCount() == positions.length) {
+            // Keep the streamed slots in line so the next drag starts from this pose
+            setpoints.seed(positions);
         }
+        writePose(positions, streamed);
     }
 
-    public void sendEmergencyStop() {
+    private void writePose(int[] positions, boolean streamed) {
         if (!isConnected()) return;
 
+        if (motorCodec.getMode() == ProtocolMode.ASCII) {
+            // Legacy firmware only understands single motor commands
+            for (int i = 0; i < positions.length; i++) {
+                sendMotorCommand(i + 1, positions[i]);
+            }
+            return;
+        }
+
         try {
-            sendData(CMD_STOP.getBytes());
+            synchronized (commandBuffer) {
+                int length = motorCodec.encodePose(
+                    positions,
+                    commandBuffer,
+                    0
+                );
+                sendData(
+                    commandBuffer,
+                    length,
+                    streamed
+                        ? WriteQueue.FLAG_PACKABLE | WriteQueue.FLAG_UNACKNOWLEDGED
+                        : WriteQueue.FLAG_PACKABLE
+                );
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Error sending emergency stop: " + e.getMessage());
-            notifyError("Failed to send emergency stop: " + e.getMessage());
+            Log.e(TAG, "Error sending pose: " + e.getMessage());
+            notifyError("Failed to send pose: " + e.getMessage());
         }
     }
 
-    private void sendData(byte[] data) {
-        if (
-            bluetoothGatt == null ||
-            ActivityCompat.checkSelfPermission(
-                this,
-                android.Manifest.permission.BLUETOOTH_CONNECT
-            ) !=
-            PackageManager.PERMISSION_GRANTED
-        ) {
-            return;
+    // Streaming mode: positions are coalesced per motor and flushed at rateHz
+    public void startStreaming(int[] initialPose, int rateHz) {
+        if (rateHz <= 0) {
+            throw new IllegalArgumentException("Invalid stream rate: " + rateHz);
         }
+        stopStreaming();
+        SetpointCoalescer setpoints = new SetpointCoalescer(initialPose.length);
+        setpoints.seed(initialPose);
+        streamPose = initialPose.clone();
+        streamIntervalMs = Math.max(1, 1000 / rateHz);
+        nextStreamTick = SystemClock.uptimeMillis() + streamIntervalMs;
+        streamSetpoints = setpoints;
+        handler.postAtTime(streamFlush, nextStreamTick);
+        updateLinkMode();
+    }
+
+    public void stopStreaming() {
+        streamSetpoints = null;
+        handler.removeCallbacks(streamFlush);
+        updateLinkMode();
+    }
 
-        BluetoothGattCharacteristic characteristic = bluetoothGatt
-            .getService(SERVICE_UUID)
-            .getCharacteristic(CHARACTERISTIC_UUID);
+    public boolean isStreaming() {
+        return streamSetpoints != null;
+    }
 
-        if (characteristic != null) {
-            characteristic.setValue(data);
-            bluetoothGatt.writeCharacteristic(characteristic);
+    // Overwrites the motor's pending setpoint; only the newest value is sent
+    public void streamMotorPosition(int motorId, int position) {
+        SetpointCoalescer setpoints = streamSetpoints;
+        if (setpoints != null) {
+            setpoints.update(motorId - 1, position);
         }
     }
 
-    // Callbacks
-    private final ScanCallback scanCallback = new ScanCallback() {
+    private final Runnable streamFlush = new Runnable() {
         @Override
-        public void onScanResult(int callbackType, ScanResult result) {
-            if (deviceFoundListener != null) {
-                deviceFoundListener.onDeviceFound(result.getDevice());
+        public void run() {
+            SetpointCoalescer setpoints = streamSetpoints;
+            if (setpoints == null) {
+                return;
             }
-        }
-    };
-
-    private final BluetoothGattCallback gattCallback =
-        new BluetoothGattCallback()
-        {
-            @Override
-            public void onConnectionStateChange(
-                BluetoothGatt gatt,
-                int status,
-                int newState
-            ) {
-                if (newState == BluetoothGatt.STATE_CONNECTED) {
-                    connectionState = STATE_CONNECTED;
-                    notifyStateChange();
-                    if (
-                        ActivityCompat.checkSelfPermission(
-                            BluetoothService.this,
-                            android.Manifest.permission.BLUETOOTH_CONNECT
-                        ) ==
-                        PackageManager.PERMISSION_GRANTED
-                    ) {
-                        gatt.discoverServices();
+            // Only top up the queue once it has drained, so the link never
+            // builds a backlog; skipped values stay in their slot
+            if (isConnected() && writeQueue.getPendingCount() == 0) {
+                // Taken before the drain so a racing update is attributed late, never early
+                long sampleNanos = pendingControlSampleNanos.getAndSet(0);
+                int changed = setpoints.drain(streamPose);
+                if (changed != 0) {
+                    sendStreamedPose(changed);
+                    if (sampleNanos != 0) {
+                        long lagNanos = SystemClock.elapsedRealtimeNanos() - sampleNanos;
+                        controlLatency.record(lagNanos);
+                        controlLag.record(lagNanos / 1000);
                     }
-                } else if (newState == BluetoothGatt.STATE_DISCONNECTED) {
-                    connectionState = STATE_NONE;
-                    notifyStateChange();
-                }
-            }
-
-            @Override
-            public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-                if (status == BluetoothGatt.GATT_SUCCESS) {
-                    enableCharacteristicNotification();
                 }
             }
-
-            @Override
-            public void onCharacteristicChanged(
-                BluetoothGatt gatt,
-                BluetoothGattCharacteristic characteristic
-            ) {
-                if (CHARACTERISTIC_UUID.equals(characteristic.getUuid())) {
-                    byte[] data = characteristic.getValue();
-                    notifyDataReceived(data);
-                }
+            // Back off while the link cannot keep up with the requested rate
+            nextStreamTick += linkQuality.suggestStreamIntervalMs((int) streamIntervalMs);
+            long now = SystemClock.uptimeMillis();
+            if (nextStreamTick < now) {
+                nextStreamTick = now;
             }
-        };
+            handler.postAtTime(this, nextStreamTick);
+        }
+    };
 
-    private void enableCharacteristicNotification() {
-        if (bluetoothGatt != null &&
-            ActivityCompat.checkSelfPermission(this, android.Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED)
-        {
-            BluetoothGattCharacteristic characteristic = bluetoothGatt
-                .getService(SERVICE_UUID)
-                .getCharacteristic(CHARACTERISTIC_UUID);
-            if (characteristic != null) {
-                bluetoothGatt.setCharacteristicNotification(
-                    characteristic,
-                    true
-                );
+    private void sendStreamedPose(int changedMask) {
+        if (motorCodec.getMode() == ProtocolMode.BINARY) {
+            writePose(streamPose, true);
+            return;
+        }
+        for (int i = 0; i < streamPose.length; i++) {
+            if ((changedMask & (1 << i)) != 0) {
+                sendMotorCommand(i + 1, streamPose[i]);
             }
         }
     }
 
-    // Notification methods
-    private void notifyStateChange() {
-        if (stateChangeListener != null) {
-            handler.post(() ->
-                stateChangeListener.onStateChanged(connectionState)
-            );
-        }
+    /**
+     * Moves smoothly from fromPose to toPose, sending one pose per tick at
+     * TRAJECTORY_TICK_RATE_HZ within the velocity and acceleration limits.
+     * Replaces any move in progress. Returns the duration in milliseconds.
+     * Poses are hardware positions for motor ids 1..n; call on the main thread.
+     */
+    public long moveToPose(int[] fromPose, int[] toPose, Trajectory.Profile profile) {
+        cancelTrajectory();
+        stopMacro();
+        Trajectory planned = Trajectory.plan(
+            fromPose,
+            toPose,
+            profile,
+            TRAJECTORY_MAX_VELOCITY,
+            TRAJECTORY_MAX_ACCELERATION,
+            TRAJECTORY_TICK_RATE_HZ
+        );
+        trajectoryPose = new int[toPose.length];
+        trajectoryTick = 0;
+        nextTrajectoryTick = SystemClock.uptimeMillis();
+        trajectory = planned;
+        handler.post(trajectoryStep);
+        updateLinkMode();
+        return planned.getDurationMillis();
     }
 
-    private void notifyDataReceived(byte[] data) {
-        if (dataReceivedListener != null) {
-            handler.post(() ->
-                dataReceivedListener.onDataReceived(data, data.length)
-            );
-        }
+    // Stops a move where it is; already queued setpoints still go out
+    public void cancelTrajectory() {
+        trajectory = null;
+        handler.removeCallbacks(trajectoryStep);
+        updateLinkMode();
     }
 
-    private void notifyError(String message) {
-        if (stateChangeListener != null) {
-            handler.post(() -> stateChangeListener.onConnectionError(message));
-        }
+    public boolean isMoving() {
+        return trajectory != null;
     }
 
-    // Status methods
-    public boolean isConnected() {
+    private final Runnable trajectoryStep = new Runnable() {
+        @Override
+        public void run() {
+            Trajectory current = trajectory;
+            if (current == null) {
+                return;
+            }
+            if (!isConnected()) {
+                cancelTrajectory();
+                return;
+            }
+            int last = current.getTickCount() - 1;
+            // The move is time-based: a tick the link cannot take is skipped,
+            // never delayed, but the final pose is always sent
+            if (trajectoryTick == last || writeQueue.getPendingCount() == 0) {
+                current.pose(trajectoryTick, trajectoryPose);
+                // Only the final pose must arrive; every tick before it is superseded
+                sendPose(trajectoryPose, trajectoryTick != last);
+            }
+            if (trajectoryTick == last) {
+                trajectory = null;
+                updateLinkMode();
+                return;
+            }
+            trajectoryTick++;
+            nextTrajectoryTick += 1000 / current.getTickRateHz();
+            handler.postAtTime(this, nextTrajectoryTick);
+        }
+    };
+
+    /**
+     * Plays a macro from its first step, replacing any macro, move or
+     * proportional control in progress. The macro is compiled once for the
+     * current protocol; its frames go through the outbound queue from the
+     * player thread. listener, if any, is called on the main thread.
+     * Returns false when not connected.
+     */
+    public boolean playMacro(Macro macro, OnMacroFinishedListener listener) {
+        stopMacro();
+        stopProportionalControl();
+        cancelTrajectory();
+        if (!isConnected()) {
+            return false;
+        }
+        CompiledMacro compiled = macro.compile(motorCodec.getMode());
+        int generation;
+        synchronized (commandBuffer) {
+            generation = ++macroGeneration;
+        }
+        MacroPlayer player = new MacroPlayer(
+            compiled,
+            new MacroSink(generation),
+            (finished, completed) -> handler.post(() -> {
+                if (macroPlayer == finished) {
+                    macroPlayer = null;
+                    updateLinkMode();
+                }
+                if (listener != null) {
+                    listener.onMacroFinished(compiled.getName(), completed);
+                }
+            }),
+            MacroPlayer.SYSTEM_CLOCK
+        );
+        macroJitter = player.getJitter();
+        macroPlayer = player;
+        player.start();
+        updateLinkMode();
+        return true;
+    }
+
+    public void stopMacro() {
+        synchronized (commandBuffer) {
+            macroGeneration++;
+        }
+        MacroPlayer player = macroPlayer;
+        macroPlayer = null;
+        if (player != null) {
+            player.cancel();
+            updateLinkMode();
+        }
+    }
+
+    public boolean isMacroPlaying() {
+        MacroPlayer player = macroPlayer;
+        return player != null && player.isRunning();
+    }
+
+    // Lateness of each frame of the current or last macro against its schedule
+    public LatencyStats getMacroJitter() {
+        return macroJitter;
+    }
+
+    // Copies a precompiled frame into the command buffer and gives it a live sequence number
+    private class MacroSink implements MacroPlayer.FrameSink {
+
+        private final int generation;
+
+        MacroSink(int generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public void sendFrame(byte[] frames, int offset, int length) {
+            if (!isConnected()) return;
+            synchronized (commandBuffer) {
+                if (generation != macroGeneration) {
+                    return;
+                }
+                System.arraycopy(frames, offset, commandBuffer, 0, length);
+                motorCodec.restamp(commandBuffer, 0);
+                sendData(commandBuffer, length, commandFlags());
+            }
+        }
+    }
+
+    /**
+     * Closed-loop control: the grip envelope closes the hand from openPose
+     * towards closedPose and the extend envelope opens it again. Poses go
+     * out through the streaming path at rateHz, replacing any slider
+     * streaming. Poses are hardware positions for motor ids 1..n.
+     */
+    public void startProportionalControl(
+        int[] openPose,
+        int[] closedPose,
+        int rateHz
+    ) {
+        stopProportionalControl();
+        cancelTrajectory();
+        stopMacro();
+        ProportionalMapper mapper = new ProportionalMapper(
+            openPose,
+            closedPose,
+            SENSOR_CHANNELS,
+            EMG_GRIP_CHANNEL,
+            EMG_EXTEND_CHANNEL
+        );
+        synchronized (emgRest) {
+            for (int ch = 0; ch < SENSOR_CHANNELS; ch++) {
+                mapper.setChannelRange(ch, emgRest[ch], emgMax[ch]);
+            }
+        }
+        startStreaming(openPose, rateHz);
+        pendingControlSampleNanos.set(0);
+        controlLatency.reset();
+        proportionalMapper = mapper;
+
+        // Runs on the EMG processing thread
+        int[] pose = new int[openPose.length];
+        proportionalSubscription = addOnEmgEnvelopeListener(
+            (envelope, channelCount, sampleTimeNanos) -> {
+                SetpointCoalescer setpoints = streamSetpoints;
+                if (proportionalMapper != mapper || setpoints == null) {
+                    return;
+                }
+                if (mapper.update(envelope)) {
+                    mapper.getPose(pose);
+                    for (int i = 0; i < pose.length; i++) {
+                        setpoints.update(i, pose[i]);
+                    }
+                    pendingControlSampleNanos.compareAndSet(0, sampleTimeNanos);
+                }
+            }
+        );
+    }
+
+    public void stopProportionalControl() {
+        if (proportionalMapper == null) {
+            return;
+        }
+        proportionalMapper = null;
+        proportionalSubscription.remove();
+        proportionalSubscription = null;
+        stopStreaming();
+    }
+
+    public boolean isProportionalControlActive() {
+        return proportionalMapper != null;
+    }
+
+    private void initializeEmgProfile() {
+        emgProfileStore = new EmgProfileStore(
+            getSharedPreferences(EMG_PROFILE_PREFS, MODE_PRIVATE)
+        );
+        EmgProfile profile = emgProfileStore.load(SENSOR_CHANNELS);
+        if (profile != null) {
+            applyEmgProfile(profile);
+        }
+    }
+
+    // Proportional control runs from the activation threshold to the sustainable share of MVC
+    private void applyEmgProfile(EmgProfile profile) {
+        emgProfile = profile;
+        for (int ch = 0; ch < SENSOR_CHANNELS; ch++) {
+            setEmgChannelRange(
+                ch,
+                profile.getThreshold(ch),
+                profile.getControlMax(ch)
+            );
+        }
+    }
+
+    // Null until the user has calibrated
+    public EmgProfile getEmgProfile() {
+        return emgProfile;
+    }
+
+    // Calibration: envelope statistics are gathered per phase until finished
+    public void startEmgCalibration() {
+        emgProcessor.startCalibration();
+    }
+
+    public void setCalibrationPhase(CalibrationPhase phase) {
+        emgProcessor.setCalibrationPhase(phase);
+    }
+
+    // Stores and applies the new profile; on failure the previous one stays in use
+    public boolean finishEmgCalibration() {
+        EmgProfile profile;
+        try {
+            profile = emgProcessor.finishCalibration();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "EMG calibration failed: " + e.getMessage());
+            notifyError("Calibration failed: " + e.getMessage());
+            return false;
+        }
+        emgProfileStore.save(profile);
+        applyEmgProfile(profile);
+        return true;
+    }
+
+    // Per-user envelope at rest and at maximum contraction; applies from the next start
+    public void setEmgChannelRange(int channel, float rest, float max) {
+        if (max <= rest) {
+            throw new IllegalArgumentException(
+                "Max must exceed rest: " + rest + ".." + max
+            );
+        }
+        synchronized (emgRest) {
+            emgRest[channel] = rest;
+            emgMax[channel] = max;
+        }
+    }
+
+    /**
+     * Sensor-to-command latency of proportional control: from the arrival
+     * of the newest sample behind a pose change to that pose being queued
+     * for the GATT write.
+     */
+    public LatencyStats getControlLatency() {
+        return controlLatency;
+    }
+
+    // Gesture training: sensor windows are labelled with gesture until stopped
+    public void startGestureRecording(Gesture gesture) {
+        emgProcessor.startRecording(gesture);
+    }
+
+    public void stopGestureRecording() {
+        emgProcessor.stopRecording();
+    }
+
+    public void clearGestureTraining() {
+        emgProcessor.clearTraining();
+    }
+
+    // Fits the classifier to everything recorded; false if a gesture lacks data
+    public boolean trainGestureClassifier() {
+        return emgProcessor.train();
+    }
+
+    public boolean hasGestureClassifier() {
+        return emgProcessor.hasClassifier();
+    }
+
+    public void sendCalibrationCommand(String type) {
+        if (!isConnected()) return;
+
+        try {
+            String command = String.format("%s:%s", CMD_CALIBRATE, type);
+            byte[] data = command.getBytes(StandardCharsets.US_ASCII);
+            if (data.length > MAX_CALIBRATION_COMMAND_LENGTH) {
+                throw new IllegalArgumentException(
+                    "Calibration command too long: " + type
+                );
+            }
+            // Calibration text must arrive, and alone
+            sendData(data, data.length, 0);
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending calibration command: " + e.getMessage());
+            notifyError(
+                "Failed to send calibration command: " + e.getMessage()
+            );
+        }
+    }
+
+    // STOP skips the queue: pending motor commands and streamed setpoints are discarded,
+    // and proportional control is switched off
+    public void sendEmergencyStop() {
+        // Neither muscle activity nor a planned move or macro may continue after a stop
+        stopProportionalControl();
+        cancelTrajectory();
+        stopMacro();
+        if (!isConnected()) return;
+
+        try {
+            SetpointCoalescer setpoints = streamSetpoints;
+            if (setpoints != null) {
+                setpoints.discard();
+            }
+            writeQueue.offerUrgent(STOP_COMMAND, 0, STOP_COMMAND.length);
+            recordCommand(STOP_COMMAND, STOP_COMMAND.length);
+            scheduleWritePoll();
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending emergency stop: " + e.getMessage());
+            notifyError("Failed to send emergency stop: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hardware positions (motor ids 1..n) of the last motor and pose
+     * commands handed to the stack, or null before any. Frames flushed by
+     * an emergency stop never count, so after a stop this is the closest
+     * known pose of the hand.
+     */
+    public int[] getLastCommandedPose() {
+        synchronized (lastCommandedPose) {
+            return lastCommandedMotors == 0
+                ? null
+                : Arrays.copyOf(lastCommandedPose, lastCommandedMotors);
+        }
+    }
+
+    // Called under the write queue's lock for every accepted write; packed writes hold several frames
+    private void rememberCommandedPose(byte[] data, int length) {
+        synchronized (lastCommandedPose) {
+            int offset = 0;
+            while (offset < length) {
+                int frameLength = data[offset] == FrameFormat.SYNC &&
+                    length - offset >= FrameFormat.HEADER_LENGTH
+                    ? FrameFormat.frameLength(FrameFormat.payloadLength(data, offset))
+                    : length - offset;
+                int motors = MotorCommandCodec.decodePositions(
+                    data,
+                    offset,
+                    Math.min(frameLength, length - offset),
+                    lastCommandedPose
+                );
+                lastCommandedMotors = Math.min(
+                    Math.max(lastCommandedMotors, motors),
+                    lastCommandedPose.length
+                );
+                offset += frameLength;
+            }
+        }
+    }
+
+    /**
+     * Selects between binary frames and the legacy ASCII commands. The
+     * choice is kept across restarts and applied on every connect; until
+     * the user picks binary, the hand is sent ASCII, which all firmware
+     * understands.
+     */
+    public void setProtocolMode(ProtocolMode mode) {
+        applyProtocolMode(mode);
+        getSharedPreferences(CONNECTION_PREFS, MODE_PRIVATE)
+            .edit()
+            .putString(KEY_PROTOCOL_MODE, mode.name())
+            .apply();
+    }
+
+    public ProtocolMode getSavedProtocolMode() {
+        String name = getSharedPreferences(CONNECTION_PREFS, MODE_PRIVATE)
+            .getString(KEY_PROTOCOL_MODE, null);
+        if (name != null) {
+            try {
+                return ProtocolMode.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Unknown protocol mode " + name + ", using ASCII");
+            }
+        }
+        return ProtocolMode.ASCII;
+    }
+
+    private void applyProtocolMode(ProtocolMode mode) {
+        // Never switch format halfway through encoding a command
+        synchronized (commandBuffer) {
+            motorCodec.setMode(mode);
+        }
+    }
+
+    public ProtocolMode getProtocolMode() {
+        return motorCodec.getMode();
+    }
+
+    // Write pipeline metrics
+    public int getPendingWriteCount() {
+        return writeQueue.getPendingCount();
+    }
+
+    public int getInFlightWriteCount() {
+        return writeQueue.getInFlightCount();
+    }
+
+    public long getDroppedWriteCount() {
+        return writeQueue.getDroppedCount();
+    }
+
+    public long getFailedWriteCount() {
+        return writeQueue.getFailedCount();
+    }
+
+    public long getWriteTimeoutCount() {
+        return writeQueue.getTimeoutCount();
+    }
+
+    public long getSensorOverflowCount() {
+        return sensorBuffer.getOverflowCount();
+    }
+
+    // -1 until an emergency stop has been confirmed
+    public long getLastEmergencyStopLatencyMs() {
+        return lastStopLatencyMs;
+    }
+
+    public long getMaxEmergencyStopLatencyMs() {
+        return maxStopLatencyMs;
+    }
+
+    // Queues a copy of the frame; writes go out one at a time as the stack confirms them
+    private void sendData(byte[] data, int length, int flags) {
+        if (!writeQueue.offer(data, 0, length, flags)) {
+            Log.w(TAG, "Write queue full, dropping command");
+            return;
+        }
+        commandsSent.increment();
+        bytesSent.add(length);
+        recordCommand(data, length);
+        scheduleWritePoll();
+    }
+
+    // Binary frames are self-delimiting and can share a packet; legacy ASCII commands cannot
+    private int commandFlags() {
+        return motorCodec.getMode() == ProtocolMode.BINARY ? WriteQueue.FLAG_PACKABLE : 0;
+    }
+
+    private void recordCommand(byte[] data, int length) {
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            recorder.recordCommand(
+                data,
+                0,
+                length,
+                SystemClock.elapsedRealtimeNanos()
+            );
+        }
+    }
+
+    /**
+     * Starts recording inbound data, outbound commands and connection
+     * changes to a new session directory under files/sessions. Returns the
+     * directory, or null if it could not be created.
+     */
+    public File startSessionRecording() {
+        stopSessionRecording();
+        File directory = new File(
+            new File(getFilesDir(), SESSIONS_DIRECTORY),
+            new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date())
+        );
+        try {
+            SessionLogWriter writer = new SessionLogWriter(
+                directory,
+                SESSION_SEGMENT_BYTES,
+                SESSION_STAGING_BYTES,
+                SystemClock.elapsedRealtimeNanos(),
+                System.currentTimeMillis()
+            );
+            SessionRecorder recorder = new SessionRecorder(
+                writer,
+                SESSION_STAGING_BYTES,
+                SESSION_FLUSH_INTERVAL_MS,
+                error -> {
+                    Log.e(TAG, "Session recording failed: " + error.getMessage());
+                    notifyError("Session recording failed: " + error.getMessage());
+                }
+            );
+            recorder.recordConnectionState(
+                connectionState,
+                SystemClock.elapsedRealtimeNanos()
+            );
+            sessionRecorder = recorder;
+            return directory;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot start session recording: " + e.getMessage());
+            notifyError("Cannot start session recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Flushes and closes the log; blocks until the last records are on disk
+    public void stopSessionRecording() {
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder == null) {
+            return;
+        }
+        sessionRecorder = null;
+        try {
+            recorder.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isSessionRecording() {
+        SessionRecorder recorder = sessionRecorder;
+        return recorder != null && recorder.isRunning();
+    }
+
+    /**
+     * Replays a recorded session as if the hand were connected: its
+     * notifications drive every listener and pipeline, and outgoing
+     * commands are acknowledged by a loopback transport. speed is relative
+     * to real time; SessionReplayer.AS_FAST_AS_POSSIBLE disables pacing.
+     * Closes any live connection first.
+     */
+    public boolean startReplay(File sessionDirectory, float speed) {
+        stopReplay();
+        closeConnection();
+        try {
+            replaySession = new ReplaySession(
+                sessionDirectory,
+                speed,
+                replayTarget
+            );
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot replay session: " + e.getMessage());
+            notifyError("Cannot replay session: " + e.getMessage());
+            return false;
+        }
+        // Pack as on a link that kept the default MTU; the loopback takes any packet size
+        writeQueue.setMaxPacketLength(GattSession.DEFAULT_MTU - GattSession.ATT_WRITE_OVERHEAD);
+        writeTransport.setOverride(
+            new LoopbackTransport(
+                WriteQueue.MAX_PACKET_LENGTH,
+                () -> handler.post(() -> writeQueue.onWriteComplete(true))
+            )
+        );
+        replaySession.start();
+        return true;
+    }
+
+    public void stopReplay() {
+        ReplaySession session = replaySession;
+        if (session != null) {
+            session.stop();
+            finishReplay(session);
+        }
+    }
+
+    public boolean isReplaying() {
+        return replaySession != null;
+    }
+
+    private final ReplaySession.Target replayTarget = new ReplaySession.Target() {
+        @Override
+        public void onReplayNotification(byte[] data, int length) {
+            handleNotification(data, length);
+        }
+
+        @Override
+        public void onReplayState(int state) {
+            if (state == STATE_CONNECTED) {
+                sensorParser.reset();
+                emgProcessor.reset();
+            }
+            connectionState = state;
+            notifyStateChange();
+        }
+
+        @Override
+        public void onReplayFinished(
+            ReplaySession session,
+            long records,
+            IOException error
+        ) {
+            if (error != null) {
+                Log.e(TAG, "Replay failed: " + error.getMessage());
+                notifyError("Replay failed: " + error.getMessage());
+            }
+            Log.i(
+                TAG,
+                "Replayed " + records + " records, max lag " +
+                session.getMaxLagNanos() / 1_000_000 + " ms"
+            );
+            handler.post(() -> finishReplay(session));
+        }
+    };
+
+    // Main thread; ignores sessions that have already been replaced
+    private void finishReplay(ReplaySession session) {
+        if (replaySession != session) {
+            return;
+        }
+        replaySession = null;
+        writeTransport.setOverride(null);
+        writeQueue.clear();
+        updatePacketLength();
+        connectionState = STATE_NONE;
+        notifyStateChange();
+    }
+
+    // Records lost because the log writer fell behind
+    public long getSessionDroppedRecordCount() {
+        SessionRecorder recorder = sessionRecorder;
+        return recorder != null ? recorder.getDroppedCount() : 0;
+    }
+
+    private void scheduleWritePoll() {
+        if (writePollScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(writePoll, WRITE_POLL_INTERVAL_MS);
+        }
+    }
+
+    // Retries refused writes and expires writes whose callback never arrived
+    private final Runnable writePoll = new Runnable() {
+        @Override
+        public void run() {
+            writePollScheduled.set(false);
+            writeQueue.poll();
+            if (writeQueue.hasWork()) {
+                scheduleWritePoll();
+            }
+        }
+    };
+
+    // Callbacks
+    private final ScanCallback scanCallback = new ScanCallback() {
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            if (scanning) {
+                handleScanResult(result);
+            }
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            for (int i = 0; i < results.size() && scanning; i++) {
+                handleScanResult(results.get(i));
+            }
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            scanning = false;
+            Log.e(TAG, "Scan failed with error " + errorCode);
+            notifyError("Failed to scan for devices (error " + errorCode + ")");
+        }
+    };
+
+    private final BluetoothGattCallback gattCallback =
+        new BluetoothGattCallback()
+        {
+            @Override
+            public void onConnectionStateChange(
+                BluetoothGatt gatt,
+                int status,
+                int newState
+            ) {
+                if (newState == BluetoothGatt.STATE_CONNECTED) {
+                    sensorParser.reset();
+                    emgProcessor.reset();
+                    connectionState = STATE_CONNECTED;
+                    notifyStateChange();
+                    if (
+                        ActivityCompat.checkSelfPermission(
+                            BluetoothService.this,
+                            android.Manifest.permission.BLUETOOTH_CONNECT
+                        ) ==
+                        PackageManager.PERMISSION_GRANTED
+                    ) {
+                        gatt.discoverServices();
+                    }
+                } else if (newState == BluetoothGatt.STATE_DISCONNECTED) {
+                    if (gatt != bluetoothGatt) {
+                        // Late callback from a replaced or closed connection
+                        return;
+                    }
+                    invalidateSession();
+                    writeQueue.clear();
+                    // A drop of the live connection is retried; a closed one is final
+                    connectionState = deviceAddress != null
+                        ? STATE_CONNECTING
+                        : STATE_NONE;
+                    notifyStateChange();
+                    handler.post(() -> onLinkLost(gatt));
+                }
+            }
+
+            @Override
+            public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+                if (status != BluetoothGatt.GATT_SUCCESS || gatt != bluetoothGatt) {
+                    return;
+                }
+                GattSession session = GattSession.resolve(
+                    gatt,
+                    SERVICE_UUID,
+                    CHARACTERISTIC_UUID
+                );
+                if (session == null) {
+                    Log.e(TAG, "Hand service not found on " + gatt.getDevice().getAddress());
+                    notifyError("Device does not expose the hand control service");
+                    return;
+                }
+                gattSession = session;
+                writeTransport.setSession(session);
+                updatePacketLength();
+                enableCharacteristicNotification(session);
+                requestMtu(session);
+                handler.post(BluetoothService.this::onLinkReady);
+            }
+
+            @Override
+            public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+                GattSession session = gattSession;
+                if (
+                    status == BluetoothGatt.GATT_SUCCESS &&
+                    session != null &&
+                    session.getGatt() == gatt
+                ) {
+                    session.setMtu(mtu);
+                    updatePacketLength();
+                    Log.i(TAG, "MTU " + mtu + ", " + session.getMaxWriteLength() + " bytes per write");
+                }
+                // The queue may have been refused while the exchange was running
+                scheduleWritePoll();
+            }
+
+            @Override
+            public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+                if (status == BluetoothGatt.GATT_SUCCESS && gatt == bluetoothGatt) {
+                    linkQuality.onRssi(rssi);
+                }
+            }
+
+            @Override
+            public void onCharacteristicWrite(
+                BluetoothGatt gatt,
+                BluetoothGattCharacteristic characteristic,
+                int status
+            ) {
+                if (isCommandCharacteristic(characteristic)) {
+                    if (status != BluetoothGatt.GATT_SUCCESS) {
+                        writeErrors.increment();
+                    }
+                    writeQueue.onWriteComplete(
+                        status == BluetoothGatt.GATT_SUCCESS
+                    );
+                }
+            }
+
+            // Called instead of the two-argument variant from API 33 on
+            @Override
+            public void onCharacteristicChanged(
+                BluetoothGatt gatt,
+                BluetoothGattCharacteristic characteristic,
+                byte[] value
+            ) {
+                if (isCommandCharacteristic(characteristic)) {
+                    handleNotification(value, value.length);
+                }
+            }
+
+            @Override
+            public void onCharacteristicChanged(
+                BluetoothGatt gatt,
+                BluetoothGattCharacteristic characteristic
+            ) {
+                if (isCommandCharacteristic(characteristic)) {
+                    byte[] value = characteristic.getValue();
+                    handleNotification(value, value.length);
+                }
+            }
+        };
+
+    // Called on the GATT callback thread, or the replay thread in its place
+    private void handleNotification(byte[] data, int length) {
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            recorder.recordSensorData(
+                data,
+                0,
+                length,
+                SystemClock.elapsedRealtimeNanos()
+            );
+        }
+        notificationsReceived.increment();
+        bytesReceived.add(length);
+        linkQuality.onBytesReceived(length);
+        sensorParser.feed(data, 0, length);
+        dispatcher.dispatchData(data, length);
+    }
+
+    private void enableCharacteristicNotification(GattSession session) {
+        if (
+            ActivityCompat.checkSelfPermission(
+                this,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) ==
+            PackageManager.PERMISSION_GRANTED
+        ) {
+            session.getGatt().setCharacteristicNotification(
+                session.getCharacteristic(),
+                true
+            );
+        }
+    }
+
+    // Larger packets carry more streamed frames per connection event
+    private void requestMtu(GattSession session) {
+        if (
+            ActivityCompat.checkSelfPermission(
+                this,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) ==
+            PackageManager.PERMISSION_GRANTED &&
+            !session.getGatt().requestMtu(REQUESTED_MTU)
+        ) {
+            Log.w(TAG, "MTU request refused, staying at " + session.getMtu());
+        }
+    }
+
+    // Callbacks hand back the session's own characteristic instance
+    private boolean isCommandCharacteristic(BluetoothGattCharacteristic characteristic) {
+        GattSession session = gattSession;
+        return session != null && session.getCharacteristic() == characteristic;
+    }
+
+    private void updatePacketLength() {
+        GattSession session = gattSession;
+        writeQueue.setMaxPacketLength(
+            session != null && session.isValid()
+                ? Math.min(session.getMaxWriteLength(), WriteQueue.MAX_PACKET_LENGTH)
+                : 0
+        );
+    }
+
+    private void invalidateSession() {
+        GattSession session = gattSession;
+        gattSession = null;
+        if (session != null) {
+            session.invalidate();
+        }
+        writeTransport.setSession(null);
+        updatePacketLength();
+        linkMode = null;
+        handler.removeCallbacks(linkProbe);
+    }
+
+    /**
+     * Counters, gauges and histograms of the send and receive paths since
+     * the service started: commands and bytes each way, write errors,
+     * queue depth, notification rate, acknowledgement round trips, stop and
+     * control latency, and dispatch lag to background and UI subscribers.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Writes a JSON snapshot of getMetrics() to files/metrics so a field
+     * unit can report how it performed. Returns the file, or null if it
+     * could not be written.
+     */
+    public File exportMetrics() {
+        File directory = new File(getFilesDir(), METRICS_DIRECTORY);
+        File file = new File(
+            directory,
+            new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".json"
+        );
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + directory);
+            return null;
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "Error exporting metrics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * RSSI, ping round trips, loss and inbound throughput of the current
+     * connection, reset whenever the link comes up. Pings need the binary
+     * protocol and a hand that echoes them; in ASCII mode only RSSI and
+     * throughput are measured.
+     */
+    public LinkQualityMonitor getLinkQuality() {
+        return linkQuality;
+    }
+
+    // Main thread; reads RSSI and sends the next ping while a session is up
+    private final Runnable linkProbe = new Runnable() {
+        @Override
+        public void run() {
+            GattSession session = gattSession;
+            if (session == null || !session.isValid()) {
+                return;
+            }
+            if (
+                ActivityCompat.checkSelfPermission(
+                    BluetoothService.this,
+                    android.Manifest.permission.BLUETOOTH_CONNECT
+                ) ==
+                PackageManager.PERMISSION_GRANTED
+            ) {
+                session.getGatt().readRemoteRssi();
+            }
+            sendPing();
+            long notifications = notificationsReceived.get();
+            notificationRate.record(
+                (notifications - lastNotificationCount) * 1000 / LINK_PROBE_INTERVAL_MS
+            );
+            lastNotificationCount = notifications;
+            handler.postDelayed(this, LINK_PROBE_INTERVAL_MS);
+        }
+    };
+
+    private void sendPing() {
+        long now = SystemClock.elapsedRealtimeNanos();
+        linkQuality.sampleThroughput(now);
+        // Legacy firmware has no echo; unanswered pings would read as loss
+        if (motorCodec.getMode() != ProtocolMode.BINARY) {
+            return;
+        }
+        try {
+            synchronized (commandBuffer) {
+                int id = linkQuality.nextPing(now);
+                int length = motorCodec.encodePing(id, pingBuffer, 0);
+                // A probe should see what streamed frames see
+                sendData(
+                    pingBuffer,
+                    length,
+                    WriteQueue.FLAG_PACKABLE | WriteQueue.FLAG_UNACKNOWLEDGED
+                );
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending ping: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tells the service whether the control screen is in front. Latency
+     * matters there even before the user touches anything, so the link
+     * runs at high performance while it is. Call on the main thread.
+     */
+    public void setControlScreenActive(boolean active) {
+        controlScreenActive = active;
+        updateLinkMode();
+    }
+
+    // Parameters currently applied to the link; null when not connected
+    public LinkPolicy.Mode getLinkMode() {
+        return linkMode;
+    }
+
+    // Acknowledged write round trips observed while the link was in mode
+    public LatencyStats getLinkRoundTrip(LinkPolicy.Mode mode) {
+        return linkRtt[mode.ordinal()];
+    }
+
+    // Main thread; re-evaluates the policy and applies a changed mode to the link
+    private void updateLinkMode() {
+        handler.removeCallbacks(linkModeUpdate);
+        long now = SystemClock.uptimeMillis();
+        linkPolicy.setActive(
+            controlScreenActive ||
+            streamSetpoints != null ||
+            trajectory != null ||
+            macroPlayer != null,
+            now
+        );
+        LinkPolicy.Mode mode = linkPolicy.getMode(now);
+        GattSession session = gattSession;
+        if (session != null && session.isValid() && mode != linkMode) {
+            applyLinkMode(session, mode);
+        }
+        long next = linkPolicy.getNextChangeMs(now);
+        if (next >= 0) {
+            handler.postAtTime(linkModeUpdate, next);
+        }
+    }
+
+    private final Runnable linkModeUpdate = this::updateLinkMode;
+
+    private void applyLinkMode(GattSession session, LinkPolicy.Mode mode) {
+        if (
+            ActivityCompat.checkSelfPermission(
+                this,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) !=
+            PackageManager.PERMISSION_GRANTED
+        ) {
+            return;
+        }
+        BluetoothGatt gatt = session.getGatt();
+        int priority;
+        switch (mode) {
+            case HIGH_PERFORMANCE:
+                priority = BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+                break;
+            case LOW_POWER:
+                priority = BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+                break;
+            default:
+                priority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+                break;
+        }
+        if (!gatt.requestConnectionPriority(priority)) {
+            Log.w(TAG, "Connection priority " + mode + " refused");
+            return;
+        }
+        // 2M PHY halves airtime per packet; 1M keeps range when latency does not matter
+        if (
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.O &&
+            bluetoothAdapter != null &&
+            bluetoothAdapter.isLe2MPhySupported()
+        ) {
+            int phy = mode == LinkPolicy.Mode.HIGH_PERFORMANCE
+                ? BluetoothDevice.PHY_LE_2M_MASK
+                : BluetoothDevice.PHY_LE_1M_MASK;
+            gatt.setPreferredPhy(phy, phy, BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+        }
+        linkMode = mode;
+        Log.i(TAG, "Link mode " + mode);
+    }
+
+    // Notification methods
+    private void notifyStateChange() {
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            recorder.recordConnectionState(
+                connectionState,
+                SystemClock.elapsedRealtimeNanos()
+            );
+        }
+        dispatcher.dispatchState(connectionState);
+    }
+
+    private void notifyError(String message) {
+        dispatcher.dispatchError(message);
+    }
+
+    // Status methods
+    public int getConnectionState() {
+        return connectionState;
+    }
+
+    public boolean isConnected() {
         return connectionState == STATE_CONNECTED;
     }
 
+    // Thread a listener's callbacks are delivered on
+    public enum Delivery {
+        // Main thread; data and sensor events are batched once per display frame
+        MAIN,
+        // Shared dispatch HandlerThread, for heavy processing off the UI thread
+        BACKGROUND,
+        // Directly on the calling Bluetooth thread; listeners must return quickly
+        DIRECT,
+    }
+
     // Listener interfaces
     public interface OnConnectionStateChangeListener {
         void onStateChanged(int state);
         void onConnectionError(String message);
     }
 
+    // With batched delivery, data holds every notification since the last batch, back to back
     public interface OnDataReceivedListener {
         void onDataReceived(byte[] data, int length);
     }
 
+    // samples are interleaved by channel and only valid during the call
+    public interface OnSensorDataListener {
+        void onSensorData(short[] samples, int frameCount, int channelCount);
+    }
+
+    // Latest envelope per channel; sampleTimeNanos is the elapsedRealtimeNanos arrival of its newest sample
+    public interface OnEmgEnvelopeListener {
+        void onEmgEnvelope(
+            float[] envelope,
+            int channelCount,
+            long sampleTimeNanos
+        );
+    }
+
+    // Called when the recognised gesture changes and has held for a few windows
+    public interface OnGestureListener {
+        void onGesture(Gesture gesture, long sampleTimeNanos);
+    }
+
+    // Called on the main thread; completed is false when the macro was stopped
+    public interface OnMacroFinishedListener {
+        void onMacroFinished(String name, boolean completed);
+    }
+
     public interface OnDeviceFoundListener {
         void onDeviceFound(BluetoothDevice device);
     }
 
-    // Setter methods for listeners
-    public void setOnConnectionStateChangeListener(
-        OnConnectionStateChangeListener listener
+    // Listener registration; each returns a handle used to unsubscribe
+    public ListenerSubscription addOnConnectionStateChangeListener(
+        OnConnectionStateChangeListener listener,
+        Delivery delivery
+    ) {
+        return ListenerSubscription.of(
+            dispatcher.stateListeners,
+            dispatcher.stateListeners.add(listener, delivery)
+        );
+    }
+
+    public ListenerSubscription addOnDataReceivedListener(
+        OnDataReceivedListener listener,
+        Delivery delivery
     ) {
-        this.stateChangeListener = listener;
+        return ListenerSubscription.of(
+            dispatcher.dataListeners,
+            dispatcher.dataListeners.add(listener, delivery)
+        );
     }
 
-    public void setOnDataReceivedListener(OnDataReceivedListener listener) {
-        this.dataReceivedListener = listener;
+    public ListenerSubscription addOnSensorDataListener(
+        OnSensorDataListener listener,
+        Delivery delivery
+    ) {
+        return ListenerSubscription.of(
+            dispatcher.sensorListeners,
+            dispatcher.sensorListeners.add(listener, delivery)
+        );
     }
 
-    public void setOnDeviceFoundListener(OnDeviceFoundListener listener) {
-        this.deviceFoundListener = listener;
+    public ListenerSubscription addOnDeviceFoundListener(
+        OnDeviceFoundListener listener,
+        Delivery delivery
+    ) {
+        return ListenerSubscription.of(
+            dispatcher.deviceListeners,
+            dispatcher.deviceListeners.add(listener, delivery)
+        );
+    }
+
+    // Called on the EMG processing thread; envelope is only valid during the call
+    public ListenerSubscription addOnEmgEnvelopeListener(
+        OnEmgEnvelopeListener listener
+    ) {
+        return ListenerSubscription.of(
+            emgProcessor.envelopeListeners,
+            emgProcessor.envelopeListeners.add(listener, null)
+        );
+    }
+
+    // Called on the EMG processing thread
+    public ListenerSubscription addOnGestureListener(OnGestureListener listener) {
+        return ListenerSubscription.of(
+            emgProcessor.gestureListeners,
+            emgProcessor.gestureListeners.add(listener, null)
+        );
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        exportMetrics();
+        stopScan();
+        stopProportionalControl();
+        cancelTrajectory();
+        stopMacro();
+        stopStreaming();
+        stopReplay();
         closeConnection();
+        stopSessionRecording();
         handler.removeCallbacksAndMessages(null);
+        dispatcher.shutdown();
+        emgProcessor.shutdown();
         instance = null;
     }
 }
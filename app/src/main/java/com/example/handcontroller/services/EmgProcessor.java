@@ -0,0 +1,256 @@
+package com.example.handcontroller.services;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import com.example.handcontroller.calibration.CalibrationPhase;
+import com.example.handcontroller.calibration.CalibrationRecorder;
+import com.example.handcontroller.calibration.EmgProfile;
+import com.example.handcontroller.dsp.EmgPipeline;
+import com.example.handcontroller.dsp.FeatureExtractor;
+import com.example.handcontroller.gesture.Gesture;
+import com.example.handcontroller.gesture.GestureClassifier;
+import com.example.handcontroller.gesture.LdaTrainer;
+import com.example.handcontroller.utils.ListenerRegistry;
+import com.example.handcontroller.utils.SampleRingBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sole consumer of the sensor ring buffer. Drains it on a dedicated thread,
+ * runs every sample through the EMG pipeline and hands the latest envelope
+ * to subscribers once per drained chunk. The filtered signal also feeds
+ * windowed features, which are either recorded as gesture training data
+ * or classified once a model has been trained. During calibration the
+ * per-sample envelope is recorded as well.
+ */
+class EmgProcessor {
+
+    private static final int CHUNK_FRAMES = 128;
+    private static final int FEATURE_WINDOW_MS = 200;
+    private static final int FEATURE_HOP_MS = 50;
+    // Smallest filtered step that counts as a zero crossing or slope change
+    private static final float FEATURE_THRESHOLD = 10f;
+    private static final int NO_LABEL = -1;
+    // A new gesture is reported once this many windows in a row agree, 150 ms at the hop
+    private static final int GESTURE_CONFIRM_WINDOWS = 3;
+
+    private final SampleRingBuffer source;
+    private final int channels;
+    private final EmgPipeline pipeline;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    // Only touched on the processing thread
+    private final short[] chunk;
+    private final long[] timestamps = new long[CHUNK_FRAMES];
+    private final float[] envelope;
+    private final float[] filtered;
+    private final float[] envelopeFrames;
+    private final FeatureExtractor features;
+    private int recordingSkip;
+    private int lastRecordingLabel = NO_LABEL;
+    private int lastGesture = NO_LABEL;
+    private int candidateGesture = NO_LABEL;
+    private int candidateWindows;
+
+    // Written from the main thread; the trainer is guarded by its own lock
+    private volatile int recordingLabel = NO_LABEL;
+    private final LdaTrainer trainer;
+    private volatile GestureClassifier classifier;
+    // Guarded by its own lock, like the trainer
+    private final CalibrationRecorder calibration;
+    private volatile boolean calibrating;
+
+    final ListenerRegistry<
+        BluetoothService.OnEmgEnvelopeListener,
+        Void
+    > envelopeListeners = new ListenerRegistry<>();
+    final ListenerRegistry<
+        BluetoothService.OnGestureListener,
+        Void
+    > gestureListeners = new ListenerRegistry<>();
+
+    EmgProcessor(SampleRingBuffer source, float sampleRateHz) {
+        this.source = source;
+        channels = source.getChannelCount();
+        pipeline = EmgPipeline.withDefaults(channels, sampleRateHz);
+        chunk = new short[CHUNK_FRAMES * channels];
+        envelope = new float[channels];
+        filtered = new float[CHUNK_FRAMES * channels];
+        envelopeFrames = new float[CHUNK_FRAMES * channels];
+        calibration = new CalibrationRecorder(
+            channels,
+            pipeline.getEnvelopeWindow()
+        );
+        features = new FeatureExtractor(
+            channels,
+            Math.round(sampleRateHz * FEATURE_WINDOW_MS / 1000f),
+            Math.round(sampleRateHz * FEATURE_HOP_MS / 1000f),
+            FEATURE_THRESHOLD
+        );
+        trainer = new LdaTrainer(features.getFeatureCount(), Gesture.count());
+        thread = new HandlerThread(
+            "EmgProcessing",
+            Process.THREAD_PRIORITY_URGENT_DISPLAY
+        );
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    // Called by the producer after writing to the ring buffer
+    void onSamplesAvailable() {
+        if (scheduled.compareAndSet(false, true)) {
+            handler.post(drainTask);
+        }
+    }
+
+    // Clears filter history, e.g. on a new connection
+    void reset() {
+        handler.post(() -> {
+            pipeline.reset();
+            features.reset();
+            lastGesture = NO_LABEL;
+            candidateGesture = NO_LABEL;
+        });
+    }
+
+    // Starts a fresh calibration; samples are recorded once a phase is set
+    void startCalibration() {
+        synchronized (calibration) {
+            calibration.reset();
+        }
+        calibrating = true;
+    }
+
+    // Phase of the current calibration step, or null between measured steps
+    void setCalibrationPhase(CalibrationPhase phase) {
+        synchronized (calibration) {
+            calibration.setPhase(phase);
+        }
+    }
+
+    // Ends the calibration; throws IllegalStateException if the data is unusable
+    EmgProfile finishCalibration() {
+        calibrating = false;
+        synchronized (calibration) {
+            calibration.setPhase(null);
+            return calibration.buildProfile();
+        }
+    }
+
+    // Feature windows are recorded as examples of gesture until stopped
+    void startRecording(Gesture gesture) {
+        recordingLabel = gesture.label();
+    }
+
+    void stopRecording() {
+        recordingLabel = NO_LABEL;
+    }
+
+    void clearTraining() {
+        stopRecording();
+        synchronized (trainer) {
+            trainer.clear();
+        }
+    }
+
+    // Returns false when some gesture has too few recorded windows
+    boolean train() {
+        GestureClassifier trained;
+        synchronized (trainer) {
+            if (!trainer.canTrain()) {
+                return false;
+            }
+            trained = trainer.train(LdaTrainer.DEFAULT_REGULARIZATION);
+        }
+        classifier = trained;
+        return true;
+    }
+
+    boolean hasClassifier() {
+        return classifier != null;
+    }
+
+    void shutdown() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    private void drain() {
+        // Clear first so samples written during the drain schedule another pass
+        scheduled.set(false);
+        int frames;
+        while ((frames = source.drain(chunk, timestamps, CHUNK_FRAMES)) > 0) {
+            pipeline.process(chunk, frames, filtered, envelopeFrames);
+            pipeline.getEnvelope(envelope);
+            if (calibrating) {
+                synchronized (calibration) {
+                    calibration.add(envelopeFrames, frames);
+                }
+            }
+            long sampleTimeNanos = timestamps[frames - 1];
+            for (ListenerRegistry.Entry<
+                BluetoothService.OnEmgEnvelopeListener,
+                Void
+            > entry : envelopeListeners.snapshot()) {
+                entry.listener.onEmgEnvelope(
+                    envelope,
+                    envelope.length,
+                    sampleTimeNanos
+                );
+            }
+            for (int frame = 0; frame < frames; frame++) {
+                if (features.addFrame(filtered, frame * channels)) {
+                    onFeatures(timestamps[frame]);
+                }
+            }
+        }
+    }
+
+    private void onFeatures(long sampleTimeNanos) {
+        int label = recordingLabel;
+        if (label != lastRecordingLabel) {
+            // Drop windows that still hold samples from before the change
+            lastRecordingLabel = label;
+            recordingSkip = features.getWindowSize() / features.getHop();
+        }
+        if (label != NO_LABEL) {
+            if (recordingSkip > 0) {
+                recordingSkip--;
+            } else {
+                synchronized (trainer) {
+                    trainer.addSample(label, features.getFeatures());
+                }
+            }
+            return;
+        }
+
+        GestureClassifier model = classifier;
+        if (model == null) {
+            return;
+        }
+        int gesture = model.classify(features.getFeatures());
+        if (gesture == lastGesture) {
+            candidateGesture = NO_LABEL;
+            return;
+        }
+        // The gesture drives the motors, so a single stray window must not
+        if (gesture != candidateGesture) {
+            candidateGesture = gesture;
+            candidateWindows = 0;
+        }
+        if (++candidateWindows < GESTURE_CONFIRM_WINDOWS) {
+            return;
+        }
+        candidateGesture = NO_LABEL;
+        lastGesture = gesture;
+        for (ListenerRegistry.Entry<
+            BluetoothService.OnGestureListener,
+            Void
+        > entry : gestureListeners.snapshot()) {
+            entry.listener.onGesture(Gesture.fromLabel(gesture), sampleTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.handcontroller.services;
+
+import android.content.SharedPreferences;
+import com.example.handcontroller.calibration.EmgProfile;
+
+// Persists the user's EMG calibration profile in SharedPreferences
+class EmgProfileStore {
+
+    private static final String KEY_CHANNELS = "channels";
+    private static final String KEY_REST_MEAN = "restMean";
+    private static final String KEY_REST_STD_DEV = "restStdDev";
+    private static final String KEY_MVC = "mvc";
+
+    private final SharedPreferences prefs;
+
+    EmgProfileStore(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    // Null when the user has not calibrated, or calibrated with another sensor count
+    EmgProfile load(int channels) {
+        if (prefs.getInt(KEY_CHANNELS, 0) != channels) {
+            return null;
+        }
+        float[] restMean = new float[channels];
+        float[] restStdDev = new float[channels];
+        float[] mvc = new float[channels];
+        for (int ch = 0; ch < channels; ch++) {
+            restMean[ch] = prefs.getFloat(KEY_REST_MEAN + ch, 0);
+            restStdDev[ch] = prefs.getFloat(KEY_REST_STD_DEV + ch, 0);
+            mvc[ch] = prefs.getFloat(KEY_MVC + ch, 0);
+        }
+        return new EmgProfile(restMean, restStdDev, mvc);
+    }
+
+    void save(EmgProfile profile) {
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putInt(KEY_CHANNELS, profile.getChannelCount());
+        for (int ch = 0; ch < profile.getChannelCount(); ch++) {
+            editor.putFloat(KEY_REST_MEAN + ch, profile.getRestMean(ch));
+            editor.putFloat(KEY_REST_STD_DEV + ch, profile.getRestStdDev(ch));
+            editor.putFloat(KEY_MVC + ch, profile.getMvc(ch));
+        }
+        editor.apply();
+    }
+}
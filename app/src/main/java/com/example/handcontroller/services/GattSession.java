@@ -0,0 +1,93 @@
+package com.example.handcontroller.services;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import java.util.UUID;
+
+/**
+ * One GATT connection after service discovery: the resolved command
+ * characteristic, the negotiated MTU and the write types the device
+ * accepts. Created in onServicesDiscovered and invalidated on disconnect,
+ * so the write path never looks anything up by UUID.
+ */
+class GattSession {
+
+    // ATT default before any MTU exchange
+    static final int DEFAULT_MTU = 23;
+    // Opcode and handle in front of every written value
+    static final int ATT_WRITE_OVERHEAD = 3;
+
+    private final BluetoothGatt gatt;
+    private final BluetoothGattCharacteristic characteristic;
+    private final boolean writeWithoutResponse;
+    private volatile int mtu = DEFAULT_MTU;
+    private volatile boolean valid = true;
+
+    private GattSession(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+        this.gatt = gatt;
+        this.characteristic = characteristic;
+        writeWithoutResponse = (characteristic.getProperties() &
+            BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0;
+    }
+
+    // Null if the device does not expose the service and characteristic
+    static GattSession resolve(
+        BluetoothGatt gatt,
+        UUID serviceUuid,
+        UUID characteristicUuid
+    ) {
+        BluetoothGattService service = gatt.getService(serviceUuid);
+        if (service == null) {
+            return null;
+        }
+        BluetoothGattCharacteristic characteristic = service.getCharacteristic(
+            characteristicUuid
+        );
+        return characteristic == null ? null : new GattSession(gatt, characteristic);
+    }
+
+    BluetoothGatt getGatt() {
+        return gatt;
+    }
+
+    BluetoothGattCharacteristic getCharacteristic() {
+        return characteristic;
+    }
+
+    int getMtu() {
+        return mtu;
+    }
+
+    void setMtu(int mtu) {
+        this.mtu = mtu;
+    }
+
+    // Longest value that fits in one packet at the current MTU
+    int getMaxWriteLength() {
+        return mtu - ATT_WRITE_OVERHEAD;
+    }
+
+    boolean supportsWriteWithoutResponse() {
+        return writeWithoutResponse;
+    }
+
+    /**
+     * Write type for a value. Only values that fit in one packet can skip
+     * the response; longer ones need the acknowledged long-write procedure.
+     */
+    int writeType(boolean acknowledged, int length) {
+        if (!acknowledged && writeWithoutResponse && length <= getMaxWriteLength()) {
+            return BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+        }
+        return BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.handcontroller.services;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import androidx.core.app.ActivityCompat;
+import com.example.handcontroller.transport.GattTransport;
+
+// Writes queued frames to the command characteristic of the current GATT session
+class GattWriteTransport implements GattTransport {
+
+    private final Context context;
+    // Characteristic values must be exact-length arrays, so keep one per size
+    private final byte[][] framesByLength;
+    private volatile GattSession session;
+    // When set, frames go here instead of the GATT, e.g. during session replay
+    private volatile GattTransport override;
+
+    GattWriteTransport(Context context, int maxPacketLength) {
+        this.context = context;
+        framesByLength = new byte[maxPacketLength + 1][];
+    }
+
+    // Null until services are discovered on a connection
+    void setSession(GattSession session) {
+        this.session = session;
+    }
+
+    void setOverride(GattTransport override) {
+        this.override = override;
+    }
+
+    @Override
+    public boolean write(byte[] data, int length, boolean acknowledged) {
+        GattTransport currentOverride = override;
+        if (currentOverride != null) {
+            return currentOverride.write(data, length, acknowledged);
+        }
+        GattSession current = session;
+        if (
+            current == null ||
+            !current.isValid() ||
+            ActivityCompat.checkSelfPermission(
+                context,
+                android.Manifest.permission.BLUETOOTH_CONNECT
+            ) !=
+            PackageManager.PERMISSION_GRANTED
+        ) {
+            return false;
+        }
+
+        BluetoothGattCharacteristic characteristic = current.getCharacteristic();
+        characteristic.setWriteType(current.writeType(acknowledged, length));
+        characteristic.setValue(exactFrame(data, length));
+        return current.getGatt().writeCharacteristic(characteristic);
+    }
+
+    // Only the write queue calls this, one write at a time
+    private byte[] exactFrame(byte[] data, int length) {
+        byte[] frame = framesByLength[length];
+        if (frame == null) {
+            frame = new byte[length];
+            framesByLength[length] = frame;
+        }
+        System.arraycopy(data, 0, frame, 0, length);
+        return frame;
+    }
+}
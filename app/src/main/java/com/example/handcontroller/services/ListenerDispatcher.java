@@ -0,0 +1,291 @@
+package com.example.handcontroller.services;
+
+import android.bluetooth.BluetoothDevice;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import com.example.handcontroller.metrics.MetricsRegistry;
+import com.example.handcontroller.services.BluetoothService.Delivery;
+import com.example.handcontroller.utils.ByteBatch;
+import com.example.handcontroller.utils.Histogram;
+import com.example.handcontroller.utils.ListenerRegistry;
+import com.example.handcontroller.utils.SampleBatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans BluetoothService events out to every subscriber on the thread it
+ * chose. Data and sensor events headed for the main thread are batched and
+ * flushed once per display frame; those headed for the background thread
+ * are batched and flushed once per wake-up. Each lane keeps a single batch
+ * shared by all of its subscribers. The delay from the first event of a
+ * batch to its delivery is recorded per lane. Must be created on the main
+ * thread.
+ */
+class ListenerDispatcher {
+
+    private static final int DATA_BATCH_BYTES = 4096;
+    private static final int SENSOR_BATCH_FRAMES = 1024;
+    // Lag histograms in microseconds, up to 10 s
+    private static final long MAX_LAG_MICROS = 10_000_000L;
+
+    private final Handler mainHandler;
+    private final Choreographer choreographer;
+    private final HandlerThread dispatchThread;
+    private final Handler dispatchHandler;
+
+    private final Lane mainLane;
+    private final Lane backgroundLane;
+
+    final ListenerRegistry<
+        BluetoothService.OnConnectionStateChangeListener,
+        Delivery
+    > stateListeners = new ListenerRegistry<>();
+    final ListenerRegistry<
+        BluetoothService.OnDataReceivedListener,
+        Delivery
+    > dataListeners = new ListenerRegistry<>();
+    final ListenerRegistry<
+        BluetoothService.OnSensorDataListener,
+        Delivery
+    > sensorListeners = new ListenerRegistry<>();
+    final ListenerRegistry<
+        BluetoothService.OnDeviceFoundListener,
+        Delivery
+    > deviceListeners = new ListenerRegistry<>();
+
+    ListenerDispatcher(int sensorChannels, MetricsRegistry metrics) {
+        mainHandler = new Handler(Looper.getMainLooper());
+        choreographer = Choreographer.getInstance();
+        dispatchThread = new HandlerThread(
+            "BluetoothDispatch",
+            Process.THREAD_PRIORITY_DISPLAY
+        );
+        dispatchThread.start();
+        dispatchHandler = new Handler(dispatchThread.getLooper());
+
+        mainLane = new Lane(
+            Delivery.MAIN,
+            sensorChannels,
+            metrics.histogram("ui.apply_lag_us", MAX_LAG_MICROS)
+        ) {
+            private final Choreographer.FrameCallback frameCallback =
+                frameTimeNanos -> flush();
+
+            @Override
+            void schedule() {
+                choreographer.postFrameCallback(frameCallback);
+            }
+        };
+        backgroundLane = new Lane(
+            Delivery.BACKGROUND,
+            sensorChannels,
+            metrics.histogram("dispatch.lag_us", MAX_LAG_MICROS)
+        ) {
+            private final Runnable flushTask = this::flush;
+
+            @Override
+            void schedule() {
+                dispatchHandler.post(flushTask);
+            }
+        };
+    }
+
+    void dispatchState(int state) {
+        forEachLane(stateListeners, delivery -> {
+            for (ListenerRegistry.Entry<
+                BluetoothService.OnConnectionStateChangeListener,
+                Delivery
+            > entry : stateListeners.snapshot()) {
+                if (entry.tag == delivery) {
+                    entry.listener.onStateChanged(state);
+                }
+            }
+        });
+    }
+
+    void dispatchError(String message) {
+        forEachLane(stateListeners, delivery -> {
+            for (ListenerRegistry.Entry<
+                BluetoothService.OnConnectionStateChangeListener,
+                Delivery
+            > entry : stateListeners.snapshot()) {
+                if (entry.tag == delivery) {
+                    entry.listener.onConnectionError(message);
+                }
+            }
+        });
+    }
+
+    void dispatchDevice(BluetoothDevice device) {
+        forEachLane(deviceListeners, delivery -> {
+            for (ListenerRegistry.Entry<
+                BluetoothService.OnDeviceFoundListener,
+                Delivery
+            > entry : deviceListeners.snapshot()) {
+                if (entry.tag == delivery) {
+                    entry.listener.onDeviceFound(device);
+                }
+            }
+        });
+    }
+
+    // Called on the GATT callback thread for every notification
+    void dispatchData(byte[] data, int length) {
+        boolean toMain = false;
+        boolean toBackground = false;
+        ListenerRegistry.Entry<BluetoothService.OnDataReceivedListener, Delivery>[] entries =
+            dataListeners.snapshot();
+        for (int i = 0; i < entries.length; i++) {
+            switch (entries[i].tag) {
+                case DIRECT:
+                    entries[i].listener.onDataReceived(data, length);
+                    break;
+                case MAIN:
+                    toMain = true;
+                    break;
+                case BACKGROUND:
+                    toBackground = true;
+                    break;
+            }
+        }
+        if (toMain) {
+            mainLane.data.append(data, 0, length);
+            mainLane.requestFlush();
+        }
+        if (toBackground) {
+            backgroundLane.data.append(data, 0, length);
+            backgroundLane.requestFlush();
+        }
+    }
+
+    // Called on the GATT callback thread for every decoded sensor frame
+    void dispatchSensor(short[] samples, int frameCount, int channelCount) {
+        boolean toMain = false;
+        boolean toBackground = false;
+        ListenerRegistry.Entry<BluetoothService.OnSensorDataListener, Delivery>[] entries =
+            sensorListeners.snapshot();
+        for (int i = 0; i < entries.length; i++) {
+            switch (entries[i].tag) {
+                case DIRECT:
+                    entries[i].listener.onSensorData(
+                        samples,
+                        frameCount,
+                        channelCount
+                    );
+                    break;
+                case MAIN:
+                    toMain = true;
+                    break;
+                case BACKGROUND:
+                    toBackground = true;
+                    break;
+            }
+        }
+        if (toMain) {
+            mainLane.sensor.append(samples, frameCount, channelCount);
+            mainLane.requestFlush();
+        }
+        if (toBackground) {
+            backgroundLane.sensor.append(samples, frameCount, channelCount);
+            backgroundLane.requestFlush();
+        }
+    }
+
+    void shutdown() {
+        mainHandler.removeCallbacksAndMessages(null);
+        dispatchHandler.removeCallbacksAndMessages(null);
+        dispatchThread.quitSafely();
+    }
+
+    private interface LaneEvent {
+        void deliver(Delivery delivery);
+    }
+
+    // Runs a rare event once on each thread that has subscribers, for that thread's subscribers
+    private void forEachLane(
+        ListenerRegistry<?, Delivery> registry,
+        LaneEvent event
+    ) {
+        boolean toMain = false;
+        boolean toBackground = false;
+        boolean direct = false;
+        for (ListenerRegistry.Entry<?, Delivery> entry : registry.snapshot()) {
+            toMain |= entry.tag == Delivery.MAIN;
+            toBackground |= entry.tag == Delivery.BACKGROUND;
+            direct |= entry.tag == Delivery.DIRECT;
+        }
+        if (direct) {
+            event.deliver(Delivery.DIRECT);
+        }
+        if (toMain) {
+            mainHandler.post(() -> event.deliver(Delivery.MAIN));
+        }
+        if (toBackground) {
+            dispatchHandler.post(() -> event.deliver(Delivery.BACKGROUND));
+        }
+    }
+
+    // Batches for one delivery thread, flushed by a single scheduled callback
+    private abstract class Lane {
+
+        final Delivery delivery;
+        final ByteBatch data = new ByteBatch(DATA_BATCH_BYTES);
+        final SampleBatch sensor;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Histogram lag;
+        private volatile long scheduledNanos;
+
+        Lane(Delivery delivery, int sensorChannels, Histogram lag) {
+            this.delivery = delivery;
+            sensor = new SampleBatch(SENSOR_BATCH_FRAMES, sensorChannels);
+            this.lag = lag;
+        }
+
+        abstract void schedule();
+
+        void requestFlush() {
+            if (scheduled.compareAndSet(false, true)) {
+                scheduledNanos = SystemClock.elapsedRealtimeNanos();
+                schedule();
+            }
+        }
+
+        // Runs on the lane's thread
+        void flush() {
+            // Read before clearing: a producer may store a newer time right after
+            long since = scheduledNanos;
+            // Clear first so anything appended from here on schedules another flush
+            scheduled.set(false);
+            lag.record(Math.max(0, SystemClock.elapsedRealtimeNanos() - since) / 1000);
+
+            int length = data.take();
+            if (length > 0) {
+                ListenerRegistry.Entry<BluetoothService.OnDataReceivedListener, Delivery>[] entries =
+                    dataListeners.snapshot();
+                for (int i = 0; i < entries.length; i++) {
+                    if (entries[i].tag == delivery) {
+                        entries[i].listener.onDataReceived(data.front(), length);
+                    }
+                }
+            }
+
+            int frames = sensor.take();
+            if (frames > 0) {
+                ListenerRegistry.Entry<BluetoothService.OnSensorDataListener, Delivery>[] entries =
+                    sensorListeners.snapshot();
+                for (int i = 0; i < entries.length; i++) {
+                    if (entries[i].tag == delivery) {
+                        entries[i].listener.onSensorData(
+                            sensor.front(),
+                            frames,
+                            sensor.getChannelCount()
+                        );
+                    }
+                }
+            }
+        }
+    }
+}
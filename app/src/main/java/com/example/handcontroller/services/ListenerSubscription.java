@@ -0,0 +1,52 @@
+package com.example.handcontroller.services;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import com.example.handcontroller.utils.ListenerRegistry;
+
+// Handle for one listener registration on BluetoothService
+public final class ListenerSubscription {
+
+    private final Runnable remover;
+
+    private ListenerSubscription(Runnable remover) {
+        this.remover = remover;
+    }
+
+    static <T, D> ListenerSubscription of(
+        ListenerRegistry<T, D> registry,
+        ListenerRegistry.Entry<T, D> entry
+    ) {
+        return new ListenerSubscription(() -> registry.remove(entry));
+    }
+
+    // Safe to call more than once
+    public void remove() {
+        remover.run();
+    }
+
+    // Scopes the registration to owner; must be called on the main thread
+    public ListenerSubscription removeOnDestroy(LifecycleOwner owner) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            remove();
+            return this;
+        }
+        lifecycle.addObserver(
+            new LifecycleEventObserver() {
+                @Override
+                public void onStateChanged(
+                    LifecycleOwner source,
+                    Lifecycle.Event event
+                ) {
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+                        source.getLifecycle().removeObserver(this);
+                        remove();
+                    }
+                }
+            }
+        );
+        return this;
+    }
+}
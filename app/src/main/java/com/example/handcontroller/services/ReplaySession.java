@@ -0,0 +1,91 @@
+package com.example.handcontroller.services;
+
+import android.util.Log;
+import com.example.handcontroller.recording.SessionLogReader;
+import com.example.handcontroller.recording.SessionReplayer;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Plays a recorded session into BluetoothService on its own thread, in
+ * place of the GATT callback thread. Recorded commands are not re-sent:
+ * the live pipelines produce their own, which the service routes to a
+ * loopback transport while the replay runs.
+ */
+class ReplaySession {
+
+    private static final String TAG = "ReplaySession";
+
+    interface Target {
+        void onReplayNotification(byte[] data, int length);
+
+        void onReplayState(int state);
+
+        // Called on the replay thread once playback has ended for any reason
+        void onReplayFinished(ReplaySession session, long records, IOException error);
+    }
+
+    private final SessionReplayer replayer;
+    private final Thread thread;
+
+    ReplaySession(File directory, float speed, Target target) throws IOException {
+        replayer = new SessionReplayer(
+            new SessionLogReader(directory),
+            new SessionReplayer.Sink() {
+                @Override
+                public void onSensorData(byte[] data, int length, long timestampNanos) {
+                    target.onReplayNotification(data, length);
+                }
+
+                @Override
+                public void onCommand(byte[] data, int length, long timestampNanos) {
+                    // Regenerated live
+                }
+
+                @Override
+                public void onConnectionState(int state, long timestampNanos) {
+                    target.onReplayState(state);
+                }
+            },
+            speed,
+            SessionReplayer.SYSTEM_CLOCK
+        );
+        thread = new Thread(
+            () -> {
+                IOException error = null;
+                try {
+                    replayer.run();
+                } catch (IOException e) {
+                    error = e;
+                } catch (InterruptedException e) {
+                    Log.i(TAG, "Replay interrupted");
+                }
+                target.onReplayFinished(
+                    ReplaySession.this,
+                    replayer.getRecordCount(),
+                    error
+                );
+            },
+            "SessionReplay"
+        );
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    // Stops before the next record and waits for the replay thread to finish
+    void stop() {
+        replayer.cancel();
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getMaxLagNanos() {
+        return replayer.getMaxLagNanos();
+    }
+}
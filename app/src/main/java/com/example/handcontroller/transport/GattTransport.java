@@ -0,0 +1,11 @@
+package com.example.handcontroller.transport;
+
+// The part of BluetoothGatt the write pipeline needs, so it can be faked on the JVM
+public interface GattTransport {
+    /**
+     * Starts writing the first length bytes of data, with an ATT response
+     * or, when acknowledged is false and the link allows it, without one.
+     * False if the stack refused the write.
+     */
+    boolean write(byte[] data, int length, boolean acknowledged);
+}
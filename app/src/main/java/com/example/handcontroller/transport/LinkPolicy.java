@@ -0,0 +1,55 @@
+package com.example.handcontroller.transport;
+
+/**
+ * Chooses link parameters from what the user is doing. The link runs at
+ * high performance while anything drives the hand or the control screen
+ * is open. It falls back to balanced when that stops, and to low power
+ * once it has been idle for idleDelayMs. Not thread safe.
+ */
+public class LinkPolicy {
+
+    public enum Mode {
+        LOW_POWER,
+        BALANCED,
+        HIGH_PERFORMANCE,
+    }
+
+    private final long idleDelayMs;
+    private boolean active;
+    private long idleSinceMs;
+
+    public LinkPolicy(long idleDelayMs) {
+        if (idleDelayMs < 0) {
+            throw new IllegalArgumentException("Negative idle delay: " + idleDelayMs);
+        }
+        this.idleDelayMs = idleDelayMs;
+    }
+
+    // Starts an idle period, e.g. on a new connection
+    public void reset(long nowMs) {
+        active = false;
+        idleSinceMs = nowMs;
+    }
+
+    public void setActive(boolean active, long nowMs) {
+        if (this.active && !active) {
+            idleSinceMs = nowMs;
+        }
+        this.active = active;
+    }
+
+    public Mode getMode(long nowMs) {
+        if (active) {
+            return Mode.HIGH_PERFORMANCE;
+        }
+        return nowMs - idleSinceMs >= idleDelayMs ? Mode.LOW_POWER : Mode.BALANCED;
+    }
+
+    // When getMode changes without another call, or -1 if it will not
+    public long getNextChangeMs(long nowMs) {
+        if (getMode(nowMs) != Mode.BALANCED) {
+            return -1;
+        }
+        return idleSinceMs + idleDelayMs;
+    }
+}
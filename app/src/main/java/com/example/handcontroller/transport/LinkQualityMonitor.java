@@ -0,0 +1,207 @@
+package com.example.handcontroller.transport;
+
+import com.example.handcontroller.utils.Histogram;
+
+/**
+ * Link health from periodic probes: echo round trips and loss from ping
+ * frames, inbound throughput per probe interval, and RSSI readings. Pings
+ * are matched by id against a small ring of send times. A ping counts as
+ * lost once it goes unanswered for pingTimeoutNanos or its slot is
+ * reused. Round trips are kept twice: since the link came up, and over the
+ * last WINDOW_PINGS probes, which feeds the stream rate suggestion.
+ * Firmware without an echo never answers, so loss is only reported, and
+ * the stream only adapted, once a pong has arrived on this connection.
+ * Nothing allocates after construction. Probe methods are called from one
+ * thread at a time; getters may be called from any thread.
+ */
+public class LinkQualityMonitor {
+
+    public static final int NO_RSSI = Integer.MIN_VALUE;
+    // Probes per recent window
+    public static final int WINDOW_PINGS = 10;
+
+    // Round trips in microseconds, up to 10 s at about 3 % precision
+    private static final long MAX_RTT_MICROS = 10_000_000L;
+    // Throughput in bytes per second, up to 1 MB/s
+    private static final long MAX_THROUGHPUT = 1_000_000L;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int PING_SLOTS = 16;
+
+    // Healthy links stream at the requested rate; others slow down, to at most this interval
+    private static final double MAX_HEALTHY_LOSS = 0.02;
+    private static final int MAX_STREAM_INTERVAL_MS = 100;
+
+    private final long pingTimeoutNanos;
+    private final Histogram rtt = new Histogram(MAX_RTT_MICROS, SUB_BUCKET_BITS);
+    private final Histogram recentRtt = new Histogram(MAX_RTT_MICROS, SUB_BUCKET_BITS);
+    private final Histogram throughput = new Histogram(MAX_THROUGHPUT, SUB_BUCKET_BITS);
+
+    private final int[] slotIds = new int[PING_SLOTS];
+    private final long[] slotSentNanos = new long[PING_SLOTS];
+    private final boolean[] slotPending = new boolean[PING_SLOTS];
+    private int nextId;
+
+    private volatile long pingsSent;
+    private volatile long pongsReceived;
+    private volatile long pingsLost;
+    private long windowPings;
+    private long windowLost;
+    private volatile double recentLoss;
+    private volatile long recentP95Micros;
+
+    private long intervalBytes;
+    private long intervalStartNanos;
+    private volatile int rssi = NO_RSSI;
+
+    public LinkQualityMonitor(long pingTimeoutNanos) {
+        this.pingTimeoutNanos = pingTimeoutNanos;
+    }
+
+    // Forgets everything, e.g. on a new connection
+    public synchronized void reset(long nowNanos) {
+        rtt.reset();
+        recentRtt.reset();
+        throughput.reset();
+        for (int i = 0; i < PING_SLOTS; i++) {
+            slotPending[i] = false;
+        }
+        pingsSent = 0;
+        pongsReceived = 0;
+        pingsLost = 0;
+        windowPings = 0;
+        windowLost = 0;
+        recentLoss = 0;
+        recentP95Micros = 0;
+        intervalBytes = 0;
+        intervalStartNanos = nowNanos;
+        rssi = NO_RSSI;
+    }
+
+    // Closes the throughput interval and records its inbound rate
+    public synchronized void sampleThroughput(long nowNanos) {
+        long elapsed = nowNanos - intervalStartNanos;
+        if (elapsed > 0) {
+            throughput.record(intervalBytes * 1_000_000_000L / elapsed);
+        }
+        intervalBytes = 0;
+        intervalStartNanos = nowNanos;
+    }
+
+    // Expires old pings and returns the id for the ping frame about to be sent
+    public synchronized int nextPing(long nowNanos) {
+        for (int i = 0; i < PING_SLOTS; i++) {
+            if (slotPending[i] && nowNanos - slotSentNanos[i] >= pingTimeoutNanos) {
+                lose(i);
+            }
+        }
+        int id = nextId;
+        nextId = (nextId + 1) & 0xFFFF;
+        int slot = id % PING_SLOTS;
+        if (slotPending[slot]) {
+            lose(slot);
+        }
+        slotIds[slot] = id;
+        slotSentNanos[slot] = nowNanos;
+        slotPending[slot] = true;
+        pingsSent++;
+        if (++windowPings == WINDOW_PINGS) {
+            closeWindow();
+        }
+        return id;
+    }
+
+    // Called for every echo; late, duplicate and unknown ids are ignored
+    public synchronized void onPong(int id, long nowNanos) {
+        int slot = id % PING_SLOTS;
+        if (!slotPending[slot] || slotIds[slot] != id) {
+            return;
+        }
+        slotPending[slot] = false;
+        pongsReceived++;
+        long micros = (nowNanos - slotSentNanos[slot]) / 1000;
+        rtt.record(micros);
+        recentRtt.record(micros);
+    }
+
+    public synchronized void onBytesReceived(int length) {
+        intervalBytes += length;
+    }
+
+    public void onRssi(int rssi) {
+        this.rssi = rssi;
+    }
+
+    // Round trips in microseconds since the link came up
+    public Histogram getRoundTrip() {
+        return rtt;
+    }
+
+    // Inbound bytes per second, one value per sampleThroughput call
+    public Histogram getThroughput() {
+        return throughput;
+    }
+
+    // dBm of the last reading, or NO_RSSI
+    public int getRssi() {
+        return rssi;
+    }
+
+    public long getPingsSent() {
+        return pingsSent;
+    }
+
+    public long getPongsReceived() {
+        return pongsReceived;
+    }
+
+    public long getPingsLost() {
+        return pingsLost;
+    }
+
+    // True once the peer has answered a ping since the link came up
+    public boolean hasEcho() {
+        return pongsReceived > 0;
+    }
+
+    // Share of resolved pings that were lost since the link came up; 0 without an echo
+    public double getLossRatio() {
+        if (!hasEcho()) {
+            return 0;
+        }
+        long resolved = pongsReceived + pingsLost;
+        return resolved == 0 ? 0 : pingsLost / (double) resolved;
+    }
+
+    /**
+     * Stream interval to use instead of requestedMs over the last window.
+     * A link that loses pings or whose p95 round trip exceeds three
+     * intervals cannot keep up. It gets at least twice the interval, or
+     * half the p95 round trip, capped at MAX_STREAM_INTERVAL_MS. Without
+     * an echo there is nothing to go on and requestedMs is kept.
+     */
+    public int suggestStreamIntervalMs(int requestedMs) {
+        if (!hasEcho()) {
+            return requestedMs;
+        }
+        long p95Ms = recentP95Micros / 1000;
+        if (recentLoss <= MAX_HEALTHY_LOSS && p95Ms <= 3L * requestedMs) {
+            return requestedMs;
+        }
+        long slower = Math.max(2L * requestedMs, p95Ms / 2);
+        return (int) Math.max(requestedMs, Math.min(slower, MAX_STREAM_INTERVAL_MS));
+    }
+
+    private void lose(int slot) {
+        slotPending[slot] = false;
+        pingsLost++;
+        windowLost++;
+    }
+
+    private void closeWindow() {
+        recentLoss = windowLost / (double) WINDOW_PINGS;
+        recentP95Micros = recentRtt.getPercentile(95);
+        recentRtt.reset();
+        windowPings = 0;
+        windowLost = 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.handcontroller.transport;
+
+/**
+ * GattTransport that accepts every write without a device behind it, for
+ * session replay and tests. The owner is told about each write so it can
+ * confirm it to the WriteQueue, which must not happen from inside write().
+ */
+public class LoopbackTransport implements GattTransport {
+
+    private final Runnable onWrite;
+    private final byte[] lastFrame;
+    private int lastLength;
+    private long writeCount;
+    private long byteCount;
+
+    // maxWriteLength must cover packed writes, up to WriteQueue.MAX_PACKET_LENGTH
+    public LoopbackTransport(int maxWriteLength, Runnable onWrite) {
+        this.lastFrame = new byte[maxWriteLength];
+        this.onWrite = onWrite;
+    }
+
+    @Override
+    public synchronized boolean write(
+        byte[] data,
+        int length,
+        boolean acknowledged
+    ) {
+        if (length > lastFrame.length) {
+            throw new IllegalArgumentException("Write too large: " + length + " bytes");
+        }
+        System.arraycopy(data, 0, lastFrame, 0, length);
+        lastLength = length;
+        writeCount++;
+        byteCount += length;
+        onWrite.run();
+        return true;
+    }
+
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    // Copies the most recent frame into out and returns its length
+    public synchronized int copyLastFrame(byte[] out) {
+        System.arraycopy(lastFrame, 0, out, 0, lastLength);
+        return lastLength;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.handcontroller.transport;
+
+import java.util.Random;
+
+/**
+ * Delays between reconnection attempts: exponential backoff from
+ * initialDelayMs, doubling per attempt up to maxDelayMs, with equal jitter.
+ * Each delay is half the backoff plus a random share of the other half, so
+ * the first retry is fast and repeated failures do not retry in lockstep.
+ * Gives up after maxAttempts. Not thread safe.
+ */
+public class ReconnectPolicy {
+
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final int maxAttempts;
+    private final Random random;
+    private int attempt;
+
+    public ReconnectPolicy(
+        long initialDelayMs,
+        long maxDelayMs,
+        int maxAttempts,
+        Random random
+    ) {
+        if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs) {
+            throw new IllegalArgumentException(
+                "Invalid delays: " + initialDelayMs + ".." + maxDelayMs
+            );
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Invalid attempt count: " + maxAttempts);
+        }
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+    }
+
+    // Delay before the next attempt, or -1 once every attempt is used up
+    public long nextDelayMs() {
+        if (attempt >= maxAttempts) {
+            return -1;
+        }
+        long backoff = initialDelayMs;
+        for (int i = 0; i < attempt && backoff < maxDelayMs; i++) {
+            backoff <<= 1;
+        }
+        backoff = Math.min(backoff, maxDelayMs);
+        attempt++;
+        long half = backoff / 2;
+        return half + (long) (random.nextDouble() * (backoff - half + 1));
+    }
+
+    // Attempts made since the last reset
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void reset() {
+        attempt = 0;
+    }
+}
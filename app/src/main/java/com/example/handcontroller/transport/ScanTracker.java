@@ -0,0 +1,91 @@
+package com.example.handcontroller.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Devices seen during one scan, keyed by address. Repeated advertisements
+ * of a device update its entry in place: the RSSI is smoothed with an
+ * exponential moving average so one faded packet does not reorder the
+ * list. Entries keep the order devices were first seen in. Not thread
+ * safe.
+ *
+ * @param <D> platform handle kept with each entry
+ */
+public class ScanTracker<D> {
+
+    // Weight of the newest reading in the smoothed RSSI
+    public static final float RSSI_SMOOTHING = 0.25f;
+
+    public static final class Entry<D> {
+
+        public final String address;
+        public final D device;
+        // Position in discovery order
+        public final int index;
+        private float rssi;
+        private int sightings;
+        private long lastSeenMs;
+
+        Entry(String address, D device, int index) {
+            this.address = address;
+            this.device = device;
+            this.index = index;
+        }
+
+        // Smoothed, in dBm
+        public int getRssi() {
+            return Math.round(rssi);
+        }
+
+        public int getSightings() {
+            return sightings;
+        }
+
+        public long getLastSeenMs() {
+            return lastSeenMs;
+        }
+    }
+
+    private final HashMap<String, Entry<D>> byAddress = new HashMap<>();
+    private final List<Entry<D>> entries = new ArrayList<>();
+
+    /**
+     * Records one advertisement. Returns the device's entry; a sighting
+     * count of 1 means the device was not seen before in this scan.
+     */
+    public Entry<D> onResult(String address, D device, int rssi, long nowMs) {
+        Entry<D> entry = byAddress.get(address);
+        if (entry == null) {
+            entry = new Entry<>(address, device, entries.size());
+            entry.rssi = rssi;
+            byAddress.put(address, entry);
+            entries.add(entry);
+        } else {
+            entry.rssi += RSSI_SMOOTHING * (rssi - entry.rssi);
+        }
+        entry.sightings++;
+        entry.lastSeenMs = nowMs;
+        return entry;
+    }
+
+    // Null if the device has not been seen in this scan
+    public Entry<D> get(String address) {
+        return byAddress.get(address);
+    }
+
+    public Entry<D> get(int index) {
+        return entries.get(index);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Forgets every device, e.g. when a new scan starts
+    public void clear() {
+        byAddress.clear();
+        entries.clear();
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.handcontroller.transport;
+
+/**
+ * Bounded outbound queue that keeps exactly one characteristic write in
+ * flight. The next write starts only when the previous one is confirmed
+ * through onWriteComplete, or when it times out. Failed and timed out
+ * writes are retried up to maxRetries times before being dropped.
+ * Frames are copied into preallocated slots, so offering does not allocate.
+ * Urgent frames (emergency stop) flush everything still pending and go out
+ * as soon as the write already in flight finishes.
+ *
+ * Frames offered with FLAG_PACKABLE are packed back to back into a single
+ * write, up to the packet length set from the negotiated MTU, together with
+ * the packable frames right behind them that have the same flags. Frames
+ * with FLAG_UNACKNOWLEDGED are written without response; the stack still
+ * reports when it has taken them, which is what completes them here.
+ */
+public class WriteQueue {
+
+    public interface Clock {
+        long millis();
+    }
+
+    public interface UrgentWriteListener {
+        // latencyMs runs from offerUrgent to the write confirmation
+        void onUrgentWriteConfirmed(long latencyMs);
+
+        void onUrgentWriteFailed();
+    }
+
+    // May share a write with adjacent packable frames of the same kind
+    public static final int FLAG_PACKABLE = 1;
+    // Written without an ATT response, for setpoints that a newer one supersedes
+    public static final int FLAG_UNACKNOWLEDGED = 1 << 1;
+
+    // Largest attribute value BLE allows
+    public static final int MAX_PACKET_LENGTH = 512;
+
+    public interface WriteListener {
+        /**
+         * Called under the queue lock for every confirmed write, packed or
+         * not. rttMs runs from starting the write to its confirmation, which
+         * for an acknowledged write is one ATT round trip.
+         */
+        void onWriteConfirmed(long rttMs, boolean acknowledged);
+    }
+
+    private final GattTransport transport;
+    private final Clock clock;
+    private final long writeTimeoutMs;
+    private final int maxRetries;
+
+    // Ring of preallocated frame slots; head is the oldest pending write
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final int[] attempts;
+    private final int[] flags;
+    private final boolean[] urgent;
+    private final long[] offeredAt;
+    private int head;
+    private int size;
+
+    private final byte[] packet = new byte[MAX_PACKET_LENGTH];
+    private int maxPacketLength;
+
+    private boolean inFlight;
+    // Frames packed into the write in flight, starting at head
+    private int inFlightFrames;
+    private long inFlightSince;
+    private UrgentWriteListener urgentWriteListener;
+    private WriteListener writeListener;
+
+    // Metrics
+    private long enqueuedCount;
+    private long completedCount;
+    private long droppedCount;
+    private long failedCount;
+    private long timeoutCount;
+    private long retryCount;
+    private long flushedCount;
+
+    public WriteQueue(
+        GattTransport transport,
+        Clock clock,
+        int capacity,
+        int maxFrameLength,
+        long writeTimeoutMs,
+        int maxRetries
+    ) {
+        // One slot may be in flight while an urgent frame waits behind it
+        if (capacity < 2 || maxFrameLength <= 0) {
+            throw new IllegalArgumentException(
+                "Capacity must be at least 2 and frame length positive"
+            );
+        }
+        this.transport = transport;
+        this.clock = clock;
+        this.writeTimeoutMs = writeTimeoutMs;
+        this.maxRetries = maxRetries;
+        slots = new byte[capacity][maxFrameLength];
+        lengths = new int[capacity];
+        attempts = new int[capacity];
+        flags = new int[capacity];
+        urgent = new boolean[capacity];
+        offeredAt = new long[capacity];
+    }
+
+    public synchronized void setUrgentWriteListener(
+        UrgentWriteListener listener
+    ) {
+        urgentWriteListener = listener;
+    }
+
+    public synchronized void setWriteListener(WriteListener listener) {
+        writeListener = listener;
+    }
+
+    // Largest write to pack frames into; 0 sends every frame on its own
+    public synchronized void setMaxPacketLength(int maxPacketLength) {
+        if (maxPacketLength < 0 || maxPacketLength > MAX_PACKET_LENGTH) {
+            throw new IllegalArgumentException(
+                "Invalid packet length: " + maxPacketLength
+            );
+        }
+        this.maxPacketLength = maxPacketLength;
+    }
+
+    // Queues a copy of the frame; returns false and counts a drop if the queue is full
+    public synchronized boolean offer(byte[] data, int offset, int length) {
+        return offer(data, offset, length, 0);
+    }
+
+    // As offer, with FLAG_ bits selecting packing and the write type
+    public synchronized boolean offer(
+        byte[] data,
+        int offset,
+        int length,
+        int frameFlags
+    ) {
+        if (length > slots[0].length) {
+            throw new IllegalArgumentException(
+                "Frame too large: " + length + " bytes"
+            );
+        }
+        if (size == slots.length) {
+            droppedCount++;
+            return false;
+        }
+
+        append(data, offset, length, frameFlags, false);
+        pump();
+        return true;
+    }
+
+    /**
+     * Discards every pending frame and queues this one next. A write that is
+     * already in flight cannot be recalled, so the urgent frame follows it.
+     */
+    public synchronized void offerUrgent(byte[] data, int offset, int length) {
+        if (length > slots[0].length) {
+            throw new IllegalArgumentException(
+                "Frame too large: " + length + " bytes"
+            );
+        }
+        int keep = inFlight ? inFlightFrames : 0;
+        flushedCount += size - keep;
+        size = keep;
+
+        append(data, offset, length, 0, true);
+        pump();
+    }
+
+    // Called from the GATT write callback for the write currently in flight
+    public synchronized void onWriteComplete(boolean success) {
+        if (!inFlight) {
+            return;
+        }
+        int frames = inFlightFrames;
+        inFlight = false;
+        if (success) {
+            completedCount += inFlightFrames;
+            if (writeListener != null) {
+                writeListener.onWriteConfirmed(
+                    clock.millis() - inFlightSince,
+                    (flags[head] & FLAG_UNACKNOWLEDGED) == 0
+                );
+            }
+            if (urgent[head] && urgentWriteListener != null) {
+                urgentWriteListener.onUrgentWriteConfirmed(
+                    clock.millis() - offeredAt[head]
+                );
+            }
+            removeHead(frames);
+        } else {
+            inFlightFrames = 0;
+            retryOrDrop(frames);
+        }
+        pump();
+    }
+
+    // Expires a stalled write and retries writes the stack refused to start
+    public synchronized void poll() {
+        if (inFlight && clock.millis() - inFlightSince >= writeTimeoutMs) {
+            int frames = inFlightFrames;
+            inFlight = false;
+            inFlightFrames = 0;
+            timeoutCount++;
+            retryOrDrop(frames);
+        }
+        pump();
+    }
+
+    // Drops everything pending, e.g. after a disconnect
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+        inFlight = false;
+        inFlightFrames = 0;
+    }
+
+    public synchronized boolean hasWork() {
+        return size > 0;
+    }
+
+    // Writes waiting behind the one in flight
+    public synchronized int getPendingCount() {
+        return inFlight ? size - inFlightFrames : size;
+    }
+
+    // Frames in the write in flight; more than one when packed
+    public synchronized int getInFlightCount() {
+        return inFlight ? inFlightFrames : 0;
+    }
+
+    public synchronized long getEnqueuedCount() {
+        return enqueuedCount;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    // Frames rejected because the queue was full
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    // Frames given up on after exhausting their retries
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    public synchronized long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    // Pending frames discarded by urgent writes
+    public synchronized long getFlushedCount() {
+        return flushedCount;
+    }
+
+    private void append(
+        byte[] data,
+        int offset,
+        int length,
+        int frameFlags,
+        boolean isUrgent
+    ) {
+        int index = (head + size) % slots.length;
+        System.arraycopy(data, offset, slots[index], 0, length);
+        lengths[index] = length;
+        attempts[index] = 0;
+        flags[index] = frameFlags;
+        urgent[index] = isUrgent;
+        offeredAt[index] = clock.millis();
+        size++;
+        enqueuedCount++;
+    }
+
+    private void pump() {
+        while (!inFlight && size > 0) {
+            attempts[head]++;
+            boolean acknowledged = (flags[head] & FLAG_UNACKNOWLEDGED) == 0;
+            boolean written;
+            int frames = packableRun();
+            if (frames > 1) {
+                int length = 0;
+                for (int i = 0; i < frames; i++) {
+                    int index = (head + i) % slots.length;
+                    System.arraycopy(slots[index], 0, packet, length, lengths[index]);
+                    length += lengths[index];
+                }
+                written = transport.write(packet, length, acknowledged);
+            } else {
+                written = transport.write(slots[head], lengths[head], acknowledged);
+            }
+            if (written) {
+                inFlight = true;
+                inFlightFrames = frames;
+                inFlightSince = clock.millis();
+                return;
+            }
+            if (attempts[head] <= maxRetries) {
+                // Stack is busy; try again on the next poll
+                retryCount++;
+                return;
+            }
+            fail(frames);
+        }
+    }
+
+    /**
+     * Frames from head that fit in one packet: same flags, packable, not
+     * urgent. At most capacity - 1, so an urgent frame always has a free
+     * slot behind the write in flight.
+     */
+    private int packableRun() {
+        int headFlags = flags[head];
+        if ((headFlags & FLAG_PACKABLE) == 0 || urgent[head]) {
+            return 1;
+        }
+        int frames = 1;
+        int length = lengths[head];
+        while (frames < size && frames < slots.length - 1) {
+            int index = (head + frames) % slots.length;
+            if (
+                flags[index] != headFlags ||
+                urgent[index] ||
+                length + lengths[index] > maxPacketLength
+            ) {
+                break;
+            }
+            length += lengths[index];
+            frames++;
+        }
+        return frames;
+    }
+
+    // frames is how many were in the write that failed
+    private void retryOrDrop(int frames) {
+        if (attempts[head] <= maxRetries) {
+            retryCount++;
+        } else {
+            fail(frames);
+        }
+    }
+
+    // Gives up on the frames of the last write attempt, starting at head
+    private void fail(int frames) {
+        failedCount += frames;
+        if (urgent[head] && urgentWriteListener != null) {
+            urgentWriteListener.onUrgentWriteFailed();
+        }
+        removeHead(frames);
+    }
+
+    private void removeHead(int frames) {
+        head = (head + frames) % slots.length;
+        size -= frames;
+        inFlightFrames = 0;
+    }
+}
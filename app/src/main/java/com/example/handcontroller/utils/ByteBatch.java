@@ -0,0 +1,46 @@
+package com.example.handcontroller.utils;
+
+/**
+ * Double-buffered byte accumulator, the raw-data counterpart of SampleBatch.
+ * Appended chunks are stored back to back, so a take() returns everything
+ * received since the previous one as a single contiguous stream.
+ */
+public class ByteBatch {
+
+    private final int capacity;
+    private byte[] back;
+    private byte[] front;
+    private int backLength;
+    private long droppedBytes;
+
+    public ByteBatch(int capacity) {
+        this.capacity = capacity;
+        back = new byte[capacity];
+        front = new byte[capacity];
+    }
+
+    public synchronized void append(byte[] data, int offset, int length) {
+        int stored = Math.min(length, capacity - backLength);
+        System.arraycopy(data, offset, back, backLength, stored);
+        backLength += stored;
+        droppedBytes += length - stored;
+    }
+
+    // Consumer side; the returned number of bytes stays valid in front() until the next take()
+    public synchronized int take() {
+        byte[] swapped = front;
+        front = back;
+        back = swapped;
+        int length = backLength;
+        backLength = 0;
+        return length;
+    }
+
+    public byte[] front() {
+        return front;
+    }
+
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.handcontroller.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size log-linear histogram of non-negative values, in the style of
+ * HdrHistogram. Values below 2^subBucketBits get one bucket each; above
+ * that every power of two is split into 2^(subBucketBits - 1) buckets, so
+ * any recorded value is reported within 1 / 2^(subBucketBits - 1) of its
+ * true size. Values above maxValue are counted in the top bucket and
+ * negative values, such as an interval measured across a racing update,
+ * as 0, so recording never throws. Recording allocates nothing. Safe to record and read from different
+ * threads.
+ */
+public class Histogram {
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int halfCount;
+    private final long maxValue;
+    private final long[] counts;
+
+    private long count;
+    private long total;
+    private long min;
+    private long max;
+
+    public Histogram(long maxValue, int subBucketBits) {
+        if (subBucketBits < 1 || subBucketBits > 16) {
+            throw new IllegalArgumentException("Invalid sub-bucket bits: " + subBucketBits);
+        }
+        if (maxValue < 1) {
+            throw new IllegalArgumentException("Invalid maximum: " + maxValue);
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.halfCount = subBucketCount / 2;
+        this.maxValue = maxValue;
+        counts = new long[bucketIndex(maxValue) + 1];
+        reset();
+    }
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        long clamped = Math.min(value, maxValue);
+        counts[bucketIndex(clamped)]++;
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    // 0 when empty
+    public synchronized long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : total / (double) count;
+    }
+
+    /**
+     * Smallest recorded value at or above the given percentile (0..100),
+     * reported as the top of its bucket and never above the recorded
+     * maximum. 0 when empty.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The top bucket also holds clamped values
+                return i == counts.length - 1 ? max : Math.min(bucketTop(i), max);
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    private int bucketIndex(long value) {
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (subBucketBits - 1);
+        int sub = (int) (value >>> shift);
+        return subBucketCount + (shift - 1) * halfCount + (sub - halfCount);
+    }
+
+    // Largest value that lands in bucket index
+    private long bucketTop(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int shift = (index - subBucketCount) / halfCount + 1;
+        long sub = halfCount + (index - subBucketCount) % halfCount;
+        return ((sub + 1) << shift) - 1;
+    }
+}
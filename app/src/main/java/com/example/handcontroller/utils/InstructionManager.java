@@ -3,6 +3,9 @@ package com.example.handcontroller.utils;
 import android.content.Context;
 import android.util.Log;
 
+import com.example.handcontroller.calibration.CalibrationPhase;
+import com.example.handcontroller.gesture.Gesture;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -15,6 +18,10 @@ import java.util.Map;
 public class InstructionManager {
     private static InstructionManager instance;
     private Map<String, List<String>> instructionSteps;
+    // Gesture the user is asked to hold at each current step, null where none
+    private List<Gesture> stepGestures = new ArrayList<>();
+    // What is measured at each current step, null where nothing is
+    private List<CalibrationPhase> stepPhases = new ArrayList<>();
     private int currentInstructionIndex;
     private String currentCalibrationState;
     private Context context;
@@ -49,20 +56,44 @@ public class InstructionManager {
                 currentInstructionIndex = 0;
 
                 List<String> steps = new ArrayList<>();
+                List<Gesture> gestures = new ArrayList<>();
+                List<CalibrationPhase> phases = new ArrayList<>();
                 switch (calibrationState) {
                     case "INITIAL":
                         steps.add("Relax your hand completely");
+                        phases.add(CalibrationPhase.REST);
                         steps.add("Rest your hand on a flat surface");
+                        phases.add(CalibrationPhase.REST);
                         steps.add("Keep your hand in a neutral, relaxed position");
+                        phases.add(CalibrationPhase.REST);
                         break;
                     case "GRIP_CALIBRATION":
                         steps.add("Relax your hand");
+                        phases.add(CalibrationPhase.REST);
                         steps.add("Flex muscle for sensor 0 - fully extend your hand");
+                        phases.add(CalibrationPhase.FLEX_SENSOR_0);
                         steps.add("Relax your hand");
+                        phases.add(CalibrationPhase.REST);
                         steps.add("Flex muscle for sensor 1 - fully close your hand into a tight grip");
+                        phases.add(CalibrationPhase.FLEX_SENSOR_1);
                         steps.add("Relax your hand");
+                        phases.add(CalibrationPhase.REST);
                         steps.add("Repeat full open and close motions 3 times");
                         break;
+                    case "GESTURE_TRAINING":
+                        steps.add("Open your hand fully and hold it");
+                        gestures.add(Gesture.OPEN);
+                        steps.add("Close your hand into a fist and hold it");
+                        gestures.add(Gesture.CLOSED);
+                        steps.add("Make a peace sign and hold it");
+                        gestures.add(Gesture.PEACE);
+                        steps.add("Open your hand fully and hold it again");
+                        gestures.add(Gesture.OPEN);
+                        steps.add("Close your hand into a fist and hold it again");
+                        gestures.add(Gesture.CLOSED);
+                        steps.add("Make a peace sign and hold it again");
+                        gestures.add(Gesture.PEACE);
+                        break;
                     case "COMPLETED":
                         steps.add("Hand calibration is now complete");
                         steps.add("Your device is ready for use");
@@ -86,6 +117,8 @@ public class InstructionManager {
                 }
 
                 instructionSteps.put("current", steps);
+                stepGestures = gestures;
+                stepPhases = phases;
             }
 
             // Update error message if provided
@@ -112,6 +145,22 @@ public class InstructionManager {
         return "Calibration instructions completed";
     }
 
+    // Gesture to record for the current instruction, or null
+    public Gesture getCurrentGesture() {
+        if (currentInstructionIndex < stepGestures.size()) {
+            return stepGestures.get(currentInstructionIndex);
+        }
+        return null;
+    }
+
+    // Calibration phase measured during the current instruction, or null
+    public CalibrationPhase getCurrentPhase() {
+        if (currentInstructionIndex < stepPhases.size()) {
+            return stepPhases.get(currentInstructionIndex);
+        }
+        return null;
+    }
+
     // Move to next instruction
     public void advanceInstruction() {
         List<String> currentSteps = instructionSteps.get("current");
@@ -0,0 +1,45 @@
+package com.example.handcontroller.utils;
+
+/**
+ * Running summary of a latency measured in nanoseconds: sample count,
+ * last, mean and maximum. Safe to record and read from different threads.
+ */
+public class LatencyStats {
+
+    private long count;
+    private long lastNanos;
+    private long totalNanos;
+    private long maxNanos;
+
+    public synchronized void record(long latencyNanos) {
+        count++;
+        lastNanos = latencyNanos;
+        totalNanos += latencyNanos;
+        if (latencyNanos > maxNanos) {
+            maxNanos = latencyNanos;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized float getLastMillis() {
+        return lastNanos / 1e6f;
+    }
+
+    public synchronized float getMeanMillis() {
+        return count == 0 ? 0 : totalNanos / (float) count / 1e6f;
+    }
+
+    public synchronized float getMaxMillis() {
+        return maxNanos / 1e6f;
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        lastNanos = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+}
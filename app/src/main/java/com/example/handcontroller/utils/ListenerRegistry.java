@@ -0,0 +1,101 @@
+package com.example.handcontroller.utils;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free copy-on-write set of subscribers. Adding and removing copy the
+ * entry array (rare); publishing reads the current array with one volatile
+ * load and iterates it by index, so fan-out never locks or allocates.
+ * Each entry carries a caller-defined tag, e.g. the delivery thread.
+ */
+public class ListenerRegistry<T, D> {
+
+    public static final class Entry<T, D> {
+
+        public final T listener;
+        public final D tag;
+
+        private Entry(T listener, D tag) {
+            this.listener = listener;
+            this.tag = tag;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final AtomicReference<Entry<T, D>[]> entries = new AtomicReference<>(
+        (Entry<T, D>[]) new Entry<?, ?>[0]
+    );
+
+    public Entry<T, D> add(T listener, D tag) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener is required");
+        }
+        Entry<T, D> entry = new Entry<>(listener, tag);
+        Entry<T, D>[] current;
+        Entry<T, D>[] updated;
+        do {
+            current = entries.get();
+            updated = copyOf(current, current.length + 1);
+            updated[current.length] = entry;
+        } while (!entries.compareAndSet(current, updated));
+        return entry;
+    }
+
+    // Removes this registration only; returns false if it was already gone
+    public boolean remove(Entry<T, D> entry) {
+        Entry<T, D>[] current;
+        Entry<T, D>[] updated;
+        do {
+            current = entries.get();
+            int index = indexOf(current, entry);
+            if (index < 0) {
+                return false;
+            }
+            updated = copyOf(current, current.length - 1);
+            System.arraycopy(
+                current,
+                index + 1,
+                updated,
+                index,
+                current.length - index - 1
+            );
+        } while (!entries.compareAndSet(current, updated));
+        return true;
+    }
+
+    // Removes every registration of this listener
+    public boolean removeListener(T listener) {
+        boolean removed = false;
+        for (Entry<T, D> entry : entries.get()) {
+            if (entry.listener == listener) {
+                removed |= remove(entry);
+            }
+        }
+        return removed;
+    }
+
+    // Current subscribers; the array must not be modified
+    public Entry<T, D>[] snapshot() {
+        return entries.get();
+    }
+
+    public int size() {
+        return entries.get().length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, D> Entry<T, D>[] copyOf(Entry<T, D>[] source, int length) {
+        Entry<T, D>[] copy = (Entry<T, D>[]) new Entry<?, ?>[length];
+        System.arraycopy(source, 0, copy, 0, Math.min(length, source.length));
+        return copy;
+    }
+
+    private static <T, D> int indexOf(Entry<T, D>[] array, Entry<T, D> entry) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
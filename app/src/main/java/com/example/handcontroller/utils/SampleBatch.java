@@ -0,0 +1,71 @@
+package com.example.handcontroller.utils;
+
+/**
+ * Double-buffered accumulator for interleaved sensor frames. Producers append
+ * into the back buffer; a single consumer swaps it to the front with take()
+ * and reads the front buffer without holding the lock. Used to deliver one
+ * batch per frame or per wake-up instead of one message per notification.
+ */
+public class SampleBatch {
+
+    private final int channels;
+    private final int maxFrames;
+    private short[] back;
+    private short[] front;
+    private int backFrames;
+    private long droppedFrames;
+
+    public SampleBatch(int maxFrames, int channels) {
+        this.maxFrames = maxFrames;
+        this.channels = channels;
+        back = new short[maxFrames * channels];
+        front = new short[maxFrames * channels];
+    }
+
+    public int getChannelCount() {
+        return channels;
+    }
+
+    // Producer side; channels are trimmed or zero-padded to this batch's width
+    public synchronized void append(
+        short[] source,
+        int frameCount,
+        int sourceChannels
+    ) {
+        int stored = Math.min(frameCount, maxFrames - backFrames);
+        int copied = Math.min(sourceChannels, channels);
+        for (int frame = 0; frame < stored; frame++) {
+            int dst = (backFrames + frame) * channels;
+            int src = frame * sourceChannels;
+            for (int ch = 0; ch < copied; ch++) {
+                back[dst + ch] = source[src + ch];
+            }
+            for (int ch = copied; ch < channels; ch++) {
+                back[dst + ch] = 0;
+            }
+        }
+        backFrames += stored;
+        droppedFrames += frameCount - stored;
+    }
+
+    /**
+     * Consumer side. Swaps buffers and returns the number of frames now
+     * available in front(); they stay valid until the next take().
+     */
+    public synchronized int take() {
+        short[] swapped = front;
+        front = back;
+        back = swapped;
+        int frames = backFrames;
+        backFrames = 0;
+        return frames;
+    }
+
+    public short[] front() {
+        return front;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
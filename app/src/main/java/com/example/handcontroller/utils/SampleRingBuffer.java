@@ -0,0 +1,138 @@
+package com.example.handcontroller.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of multi-channel sensor
+ * frames with one timestamp per frame. The producer (the GATT callback
+ * thread) never blocks: frames that do not fit are dropped and counted.
+ * The consumer drains in batches into its own arrays. All storage is
+ * allocated up front, so neither side allocates in steady state.
+ */
+public class SampleRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final int channels;
+    private final short[] samples;
+    private final long[] timestamps;
+
+    // Total frames ever written / read; only the owning side advances each
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    // Producer-side copy of readIndex, refreshed only when the ring looks full
+    private long cachedReadIndex;
+
+    public SampleRingBuffer(int capacity, int channels) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                "Capacity must be a power of two: " + capacity
+            );
+        }
+        if (channels <= 0) {
+            throw new IllegalArgumentException("Invalid channel count: " + channels);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.channels = channels;
+        samples = new short[capacity * channels];
+        timestamps = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getChannelCount() {
+        return channels;
+    }
+
+    /**
+     * Producer only. Appends frameCount interleaved frames, all stamped with
+     * timestampNanos. Channels beyond the ring's width are ignored and missing
+     * ones are written as 0. Returns the number of frames stored; the rest
+     * are counted as overflow.
+     */
+    public int write(
+        short[] source,
+        int frameCount,
+        int sourceChannels,
+        long timestampNanos
+    ) {
+        long write = writeIndex.get();
+        long free = capacity - (write - cachedReadIndex);
+        if (free < frameCount) {
+            cachedReadIndex = readIndex.get();
+            free = capacity - (write - cachedReadIndex);
+        }
+        int stored = (int) Math.min(free, frameCount);
+
+        int copied = Math.min(sourceChannels, channels);
+        for (int frame = 0; frame < stored; frame++) {
+            int slot = (int) ((write + frame) & mask);
+            int dst = slot * channels;
+            int src = frame * sourceChannels;
+            for (int ch = 0; ch < copied; ch++) {
+                samples[dst + ch] = source[src + ch];
+            }
+            for (int ch = copied; ch < channels; ch++) {
+                samples[dst + ch] = 0;
+            }
+            timestamps[slot] = timestampNanos;
+        }
+        // Publish the frames only after they are fully written
+        writeIndex.lazySet(write + stored);
+
+        if (stored < frameCount) {
+            overflowCount.addAndGet(frameCount - stored);
+        }
+        return stored;
+    }
+
+    // Producer only: frames that can be written without overflowing
+    public int remainingCapacity() {
+        cachedReadIndex = readIndex.get();
+        return (int) (capacity - (writeIndex.get() - cachedReadIndex));
+    }
+
+    /**
+     * Consumer only. Copies up to maxFrames frames into sampleOut (interleaved,
+     * getChannelCount() values per frame) and timestampOut, which may be null.
+     * Returns the number of frames read.
+     */
+    public int drain(short[] sampleOut, long[] timestampOut, int maxFrames) {
+        long read = readIndex.get();
+        int count = (int) Math.min(writeIndex.get() - read, maxFrames);
+
+        for (int frame = 0; frame < count; frame++) {
+            int slot = (int) ((read + frame) & mask);
+            System.arraycopy(
+                samples,
+                slot * channels,
+                sampleOut,
+                frame * channels,
+                channels
+            );
+            if (timestampOut != null) {
+                timestampOut[frame] = timestamps[slot];
+            }
+        }
+        // Hand the slots back to the producer only after copying them out
+        readIndex.lazySet(read + count);
+        return count;
+    }
+
+    // Frames waiting to be drained; exact on the consumer side
+    public int size() {
+        return (int) (writeIndex.get() - readIndex.get());
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writeIndex.get();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.handcontroller.calibration;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class CalibrationRecorderTest {
+
+    private final Random random = new Random(21);
+
+    @Test
+    public void buildsProfileFromPhases() {
+        CalibrationRecorder recorder = new CalibrationRecorder(2, 0);
+        record(recorder, CalibrationPhase.REST, 30, 30, 2000);
+        record(recorder, CalibrationPhase.FLEX_SENSOR_0, 600, 30, 1000);
+        record(recorder, CalibrationPhase.REST, 30, 30, 2000);
+        record(recorder, CalibrationPhase.FLEX_SENSOR_1, 30, 900, 1000);
+
+        EmgProfile profile = recorder.buildProfile();
+
+        assertEquals(30, profile.getRestMean(0), 0.5);
+        assertEquals(30, profile.getRestMean(1), 0.5);
+        assertEquals(2, profile.getRestStdDev(0), 0.2);
+        assertEquals(36, profile.getThreshold(0), 1);
+        assertTrue(profile.getMvc(0) > 600 && profile.getMvc(0) < 620);
+        assertTrue(profile.getMvc(1) > 900 && profile.getMvc(1) < 920);
+        assertTrue(profile.getControlMax(1) < profile.getMvc(1));
+        assertTrue(profile.getControlMax(1) > profile.getThreshold(1));
+    }
+
+    @Test
+    public void flexOnOneSensorDoesNotPolluteTheOther() {
+        CalibrationRecorder recorder = new CalibrationRecorder(2, 0);
+        record(recorder, CalibrationPhase.FLEX_SENSOR_0, 600, 5000, 1000);
+        assertEquals(1000, recorder.getFlexSampleCount(0));
+        assertEquals(0, recorder.getFlexSampleCount(1));
+        assertEquals(0, recorder.getRestSampleCount(1));
+    }
+
+    @Test
+    public void skipsSettlingFramesAfterPhaseChange() {
+        CalibrationRecorder recorder = new CalibrationRecorder(2, 100);
+        record(recorder, CalibrationPhase.REST, 30, 30, 60);
+        assertEquals(0, recorder.getRestSampleCount(0));
+        recorder.add(new float[2 * 60], 60);
+        assertEquals(20, recorder.getRestSampleCount(0));
+
+        // A new phase settles again
+        record(recorder, CalibrationPhase.FLEX_SENSOR_0, 600, 30, 150);
+        assertEquals(50, recorder.getFlexSampleCount(0));
+    }
+
+    @Test
+    public void ignoresSamplesWithoutPhase() {
+        CalibrationRecorder recorder = new CalibrationRecorder(2, 0);
+        record(recorder, null, 30, 30, 1000);
+        assertEquals(0, recorder.getRestSampleCount(0));
+    }
+
+    @Test
+    public void rejectsWeakContraction() {
+        CalibrationRecorder recorder = new CalibrationRecorder(2, 0);
+        record(recorder, CalibrationPhase.REST, 30, 30, 2000);
+        record(recorder, CalibrationPhase.FLEX_SENSOR_0, 600, 30, 1000);
+        record(recorder, CalibrationPhase.FLEX_SENSOR_1, 30, 40, 1000);
+        try {
+            recorder.buildProfile();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("sensor 1"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMissingData() {
+        CalibrationRecorder recorder = new CalibrationRecorder(2, 0);
+        record(recorder, CalibrationPhase.REST, 30, 30, 2000);
+        recorder.buildProfile();
+    }
+
+    // Envelope around the given levels with 2 units of noise on every channel
+    private void record(
+        CalibrationRecorder recorder,
+        CalibrationPhase phase,
+        float level0,
+        float level1,
+        int frames
+    ) {
+        recorder.setPhase(phase);
+        float[] envelope = new float[frames * 2];
+        for (int frame = 0; frame < frames; frame++) {
+            envelope[frame * 2] = level0 + (float) random.nextGaussian() * 2;
+            envelope[frame * 2 + 1] = level1 + (float) random.nextGaussian() * 2;
+        }
+        recorder.add(envelope, frames);
+    }
+}
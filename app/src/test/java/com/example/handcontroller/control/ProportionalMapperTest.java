@@ -0,0 +1,99 @@
+package com.example.handcontroller.control;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProportionalMapperTest {
+
+    private static final int[] OPEN = { 0, 0, 180 };
+    private static final int[] CLOSED = { 150, 110, 30 };
+
+    private ProportionalMapper mapper;
+
+    @Before
+    public void setUp() {
+        // Channel 1 grips, channel 0 extends
+        mapper = new ProportionalMapper(OPEN, CLOSED, 2, 1, 0);
+        mapper.setChannelRange(0, 100, 1100);
+        mapper.setChannelRange(1, 100, 1100);
+        mapper.setDeadband(0.1f);
+        mapper.setHysteresis(0.05f);
+    }
+
+    @Test
+    public void restStaysOpen() {
+        assertFalse(mapper.update(new float[] { 100, 120 }));
+        assertEquals(0, mapper.getLevel(), 0);
+        assertArrayEquals(OPEN, pose());
+    }
+
+    @Test
+    public void activityInsideDeadbandIsIgnored() {
+        // 0.09 normalised, below the 0.1 deadband
+        assertFalse(mapper.update(new float[] { 100, 190 }));
+        assertEquals(0, mapper.getLevel(), 0);
+    }
+
+    @Test
+    public void fullContractionCloses() {
+        assertTrue(mapper.update(new float[] { 100, 1100 }));
+        assertEquals(1, mapper.getLevel(), 0);
+        assertArrayEquals(CLOSED, pose());
+    }
+
+    @Test
+    public void interpolatesBetweenPresets() {
+        // 0.55 normalised -> (0.55 - 0.1) / 0.9 = 0.5
+        assertTrue(mapper.update(new float[] { 100, 650 }));
+        assertEquals(0.5f, mapper.getLevel(), 1e-4f);
+        assertArrayEquals(new int[] { 75, 55, 105 }, pose());
+    }
+
+    @Test
+    public void hysteresisSuppressesJitter() {
+        mapper.update(new float[] { 100, 650 });
+        assertFalse(mapper.update(new float[] { 100, 680 }));
+        assertFalse(mapper.update(new float[] { 100, 620 }));
+        assertTrue(mapper.update(new float[] { 100, 750 }));
+    }
+
+    @Test
+    public void endStopsIgnoreHysteresis() {
+        mapper.update(new float[] { 100, 1070 });
+        assertTrue(mapper.update(new float[] { 100, 1100 }));
+        assertEquals(1, mapper.getLevel(), 0);
+
+        mapper.update(new float[] { 100, 230 });
+        assertTrue(mapper.update(new float[] { 100, 100 }));
+        assertEquals(0, mapper.getLevel(), 0);
+    }
+
+    @Test
+    public void extensorOpposesGrip() {
+        mapper.update(new float[] { 100, 1100 });
+        assertTrue(mapper.update(new float[] { 1100, 1100 }));
+        assertEquals(0, mapper.getLevel(), 0);
+    }
+
+    @Test
+    public void singleChannelMode() {
+        ProportionalMapper single = new ProportionalMapper(OPEN, CLOSED, 1, 0, -1);
+        single.setChannelRange(0, 0, 1000);
+        single.setDeadband(0);
+        assertTrue(single.update(new float[] { 500 }));
+        assertEquals(0.5f, single.getLevel(), 1e-4f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvertedRange() {
+        mapper.setChannelRange(0, 500, 400);
+    }
+
+    private int[] pose() {
+        int[] out = new int[OPEN.length];
+        mapper.getPose(out);
+        return out;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.handcontroller.control;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SetpointCoalescerTest {
+
+    @Test
+    public void latestValueWins() {
+        SetpointCoalescer coalescer = new SetpointCoalescer(3);
+        coalescer.seed(new int[] { 10, 20, 30 });
+        int[] out = new int[3];
+
+        for (int i = 0; i <= 90; i++) {
+            coalescer.update(1, i);
+        }
+
+        assertEquals(0b010, coalescer.drain(out));
+        assertArrayEquals(new int[] { 10, 90, 30 }, out);
+    }
+
+    @Test
+    public void drainClearsDirtyFlags() {
+        SetpointCoalescer coalescer = new SetpointCoalescer(3);
+        int[] out = new int[3];
+        coalescer.update(0, 5);
+        coalescer.update(2, 7);
+
+        assertEquals(0b101, coalescer.drain(out));
+        assertFalse(coalescer.isDirty());
+        assertEquals(0, coalescer.drain(out));
+    }
+
+    @Test
+    public void seedIsNotDirty() {
+        SetpointCoalescer coalescer = new SetpointCoalescer(2);
+        coalescer.update(0, 1);
+        coalescer.seed(new int[] { 3, 4 });
+
+        assertFalse(coalescer.isDirty());
+    }
+
+    @Test
+    public void concurrentWriterNeverLosesFinalValue() throws Exception {
+        SetpointCoalescer coalescer = new SetpointCoalescer(3);
+        final int updates = 200_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= updates; i++) {
+                coalescer.update(i % 3, i);
+            }
+        });
+        int[] out = new int[3];
+
+        writer.start();
+        while (writer.isAlive()) {
+            coalescer.drain(out);
+        }
+        writer.join();
+        coalescer.drain(out);
+
+        assertArrayEquals(new int[] { updates - 2, updates - 1, updates }, out);
+    }
+}
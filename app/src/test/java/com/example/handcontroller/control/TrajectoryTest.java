@@ -0,0 +1,109 @@
+package com.example.handcontroller.control;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TrajectoryTest {
+
+    private static final double MAX_VELOCITY = 180;
+    private static final double MAX_ACCELERATION = 720;
+    private static final int TICK_RATE = 50;
+    private static final int[] FROM = { 30, 110, 150 };
+    private static final int[] TO = { 180, 0, 0 };
+
+    @Test
+    public void endsExactlyOnTarget() {
+        for (Trajectory.Profile profile : Trajectory.Profile.values()) {
+            Trajectory trajectory = plan(profile, FROM, TO);
+            int[] last = new int[3];
+            trajectory.pose(trajectory.getTickCount() - 1, last);
+            assertArrayEquals(TO, last);
+        }
+    }
+
+    @Test
+    public void trapezoidRespectsLimits() {
+        assertWithinLimits(plan(Trajectory.Profile.TRAPEZOIDAL, FROM, TO));
+    }
+
+    @Test
+    public void minimumJerkRespectsLimits() {
+        assertWithinLimits(plan(Trajectory.Profile.MINIMUM_JERK, FROM, TO));
+    }
+
+    @Test
+    public void longMoveCruisesAtMaxVelocity() {
+        // 150 units at 180/s with 720/s^2: 150/180 + 180/720 = 1.083 s
+        Trajectory trajectory = plan(Trajectory.Profile.TRAPEZOIDAL, FROM, TO);
+        assertEquals(55, trajectory.getTickCount());
+        // Averaged over ten ticks, as each tick is rounded to whole units
+        int start = trajectory.getTickCount() / 2 - 5;
+        double speed = (trajectory.position(start + 10, 0) - trajectory.position(start, 0)) *
+            TICK_RATE / 10.0;
+        assertEquals(MAX_VELOCITY, speed, 5);
+    }
+
+    @Test
+    public void motorsArriveTogether() {
+        Trajectory trajectory = plan(Trajectory.Profile.MINIMUM_JERK, FROM, TO);
+        // Mid-move, every motor has covered the same share of its own distance
+        int middle = trajectory.getTickCount() / 2;
+        double t = (middle + 1) / (double) trajectory.getTickCount();
+        double expected = t * t * t * (10 - 15 * t + 6 * t * t);
+        for (int motor = 0; motor < 3; motor++) {
+            double done = (trajectory.position(middle, motor) - FROM[motor]) /
+                (double) (TO[motor] - FROM[motor]);
+            assertEquals(expected, done, 0.02);
+        }
+    }
+
+    @Test
+    public void movesMonotonically() {
+        Trajectory trajectory = plan(Trajectory.Profile.MINIMUM_JERK, FROM, TO);
+        for (int tick = 1; tick < trajectory.getTickCount(); tick++) {
+            assertTrue(trajectory.position(tick, 0) >= trajectory.position(tick - 1, 0));
+            assertTrue(trajectory.position(tick, 1) <= trajectory.position(tick - 1, 1));
+        }
+    }
+
+    @Test
+    public void zeroDistanceIsOneTick() {
+        Trajectory trajectory = plan(Trajectory.Profile.TRAPEZOIDAL, TO, TO);
+        assertEquals(1, trajectory.getTickCount());
+        assertEquals(180, trajectory.position(0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedPoses() {
+        plan(Trajectory.Profile.TRAPEZOIDAL, new int[2], TO);
+    }
+
+    private static Trajectory plan(Trajectory.Profile profile, int[] from, int[] to) {
+        return Trajectory.plan(from, to, profile, MAX_VELOCITY, MAX_ACCELERATION, TICK_RATE);
+    }
+
+    // Finite differences of the table, allowing for rounding to whole units
+    private static void assertWithinLimits(Trajectory trajectory) {
+        double dt = 1.0 / TICK_RATE;
+        for (int motor = 0; motor < 3; motor++) {
+            double previousVelocity = 0;
+            int previous = FROM[motor];
+            for (int tick = 0; tick < trajectory.getTickCount(); tick++) {
+                int position = trajectory.position(tick, motor);
+                double velocity = (position - previous) / dt;
+                assertTrue(
+                    "velocity " + velocity,
+                    Math.abs(velocity) <= MAX_VELOCITY + 1 / dt
+                );
+                double acceleration = (velocity - previousVelocity) / dt;
+                assertTrue(
+                    "acceleration " + acceleration,
+                    Math.abs(acceleration) <= MAX_ACCELERATION + 2 / (dt * dt)
+                );
+                previous = position;
+                previousVelocity = velocity;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.handcontroller.dsp;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.utils.BenchmarkReport;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class EmgPipelineTest {
+
+    private static final float SAMPLE_RATE = 1000f;
+    private static final int CHANNELS = 2;
+
+    @Test
+    public void highPassRemovesDcOffset() {
+        EmgPipeline pipeline = EmgPipeline.withDefaults(CHANNELS, SAMPLE_RATE);
+        short[] samples = new short[2000 * CHANNELS];
+        Arrays.fill(samples, (short) 512);
+
+        pipeline.process(samples, 2000, null, null);
+
+        assertEquals(0, pipeline.getEnvelope(0), 1f);
+        assertEquals(0, pipeline.getEnvelope(1), 1f);
+    }
+
+    @Test
+    public void rmsEnvelopeTracksSineAmplitude() {
+        EmgPipeline pipeline = new EmgPipeline(
+            1,
+            SAMPLE_RATE,
+            20f,
+            0f,
+            200,
+            EnvelopeDetector.Mode.RMS
+        );
+
+        pipeline.process(sine(150, 1000, 512, 3000), 3000, null, null);
+
+        assertEquals(1000 / Math.sqrt(2), pipeline.getEnvelope(0), 25);
+    }
+
+    @Test
+    public void meanAbsoluteEnvelopeTracksSineAmplitude() {
+        EmgPipeline pipeline = new EmgPipeline(
+            1,
+            SAMPLE_RATE,
+            20f,
+            0f,
+            200,
+            EnvelopeDetector.Mode.MEAN_ABSOLUTE
+        );
+
+        pipeline.process(sine(150, 1000, 0, 3000), 3000, null, null);
+
+        assertEquals(2 * 1000 / Math.PI, pipeline.getEnvelope(0), 25);
+    }
+
+    @Test
+    public void notchRejectsMainsHum() {
+        EmgPipeline withNotch = new EmgPipeline(
+            1,
+            SAMPLE_RATE,
+            20f,
+            50f,
+            200,
+            EnvelopeDetector.Mode.RMS
+        );
+        EmgPipeline withoutNotch = new EmgPipeline(
+            1,
+            SAMPLE_RATE,
+            20f,
+            0f,
+            200,
+            EnvelopeDetector.Mode.RMS
+        );
+        short[] hum = sine(50, 1000, 0, 5000);
+
+        withNotch.process(hum, 5000, null, null);
+        withoutNotch.process(hum, 5000, null, null);
+
+        assertTrue(withoutNotch.getEnvelope(0) > 600);
+        assertTrue(withNotch.getEnvelope(0) < 50);
+    }
+
+    @Test
+    public void writesPerSampleOutputs() {
+        EmgPipeline pipeline = EmgPipeline.withDefaults(CHANNELS, SAMPLE_RATE);
+        short[] samples = new short[100 * CHANNELS];
+        samples[0] = 1000;
+        float[] filtered = new float[samples.length];
+        float[] envelope = new float[samples.length];
+
+        pipeline.process(samples, 100, filtered, envelope);
+
+        assertTrue(filtered[0] > 0);
+        assertEquals(0, filtered[1], 0);
+        assertTrue(envelope[0] > 0);
+        assertEquals(envelope[envelope.length - 2], pipeline.getEnvelope(0), 0);
+    }
+
+    @Test
+    public void resetClearsState() {
+        EmgPipeline pipeline = EmgPipeline.withDefaults(1, SAMPLE_RATE);
+        pipeline.process(sine(150, 1000, 0, 500), 500, null, null);
+        pipeline.reset();
+
+        assertEquals(0, pipeline.getEnvelope(0), 0);
+        pipeline.process(new short[1], 1, null, null);
+        assertEquals(0, pipeline.getEnvelope(0), 0);
+    }
+
+    @Test
+    public void processDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        EmgPipeline pipeline = EmgPipeline.withDefaults(CHANNELS, SAMPLE_RATE);
+        short[] samples = noise(64 * CHANNELS);
+        float[] filtered = new float[samples.length];
+        float[] envelope = new float[samples.length];
+        for (int i = 0; i < 1000; i++) {
+            pipeline.process(samples, 64, filtered, envelope);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            pipeline.process(samples, 64, filtered, envelope);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    // Benchmark: the pipeline must keep up with the sensor stream by a wide margin
+    @Test
+    public void sustainsFarAboveDeviceSampleRate() throws IOException {
+        EmgPipeline pipeline = EmgPipeline.withDefaults(CHANNELS, SAMPLE_RATE);
+        final int batch = 64;
+        short[] samples = noise(batch * CHANNELS);
+        float[] envelope = new float[samples.length];
+        for (int i = 0; i < 5_000; i++) {
+            pipeline.process(samples, batch, null, envelope);
+        }
+
+        final int iterations = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            pipeline.process(samples, batch, null, envelope);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double framesPerSecond = iterations * (double) batch / seconds;
+
+        new BenchmarkReport("EmgPipeline")
+            .put("frames_per_second", Math.round(framesPerSecond))
+            .put("real_time_factor", framesPerSecond / SAMPLE_RATE)
+            .put("channels", CHANNELS)
+            .write();
+        assertTrue(
+            Math.round(framesPerSecond) + " frames/s",
+            framesPerSecond > 50 * SAMPLE_RATE
+        );
+    }
+
+    private static short[] sine(double hz, double amplitude, int offset, int count) {
+        short[] samples = new short[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) Math.round(
+                offset + amplitude * Math.sin(2 * Math.PI * hz * i / SAMPLE_RATE)
+            );
+        }
+        return samples;
+    }
+
+    private static short[] noise(int count) {
+        Random random = new Random(7);
+        short[] samples = new short[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) (random.nextGaussian() * 300);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.handcontroller.dsp;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class FeatureExtractorTest {
+
+    private static final int CHANNELS = 2;
+    private static final int WINDOW = 50;
+    private static final int HOP = 10;
+    private static final float THRESHOLD = 5f;
+
+    @Test
+    public void emitsEveryHopOnceWindowIsFull() {
+        FeatureExtractor extractor = new FeatureExtractor(CHANNELS, WINDOW, HOP, THRESHOLD);
+        float[] frame = new float[CHANNELS];
+        int emitted = 0;
+        for (int i = 1; i <= 100; i++) {
+            boolean ready = extractor.addFrame(frame, 0);
+            if (ready) {
+                emitted++;
+                assertEquals(0, (i - WINDOW) % HOP);
+            }
+            assertEquals(i >= WINDOW && (i - WINDOW) % HOP == 0, ready);
+        }
+        assertEquals(6, emitted);
+    }
+
+    @Test
+    public void matchesBruteForceFeatures() {
+        FeatureExtractor extractor = new FeatureExtractor(CHANNELS, WINDOW, HOP, THRESHOLD);
+        Random random = new Random(3);
+        int frames = 2000;
+        float[] samples = new float[frames * CHANNELS];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (random.nextGaussian() * 100);
+        }
+
+        int checked = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            // The brute force needs two frames of history before the window
+            if (extractor.addFrame(samples, frame * CHANNELS) && frame > WINDOW) {
+                float[] expected = bruteForce(samples, frame);
+                assertArrayEquals(expected, extractor.getFeatures(), 1e-2f);
+                checked++;
+            }
+        }
+        assertTrue(checked > 100);
+    }
+
+    @Test
+    public void thresholdSuppressesNoiseCrossings() {
+        FeatureExtractor extractor = new FeatureExtractor(1, 20, 20, THRESHOLD);
+        float[] samples = new float[40];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = i % 2 == 0 ? 1 : -1;
+        }
+        boolean ready = false;
+        for (int i = 0; i < samples.length; i++) {
+            ready = extractor.addFrame(samples, i);
+        }
+        assertTrue(ready);
+        assertEquals(0, extractor.getFeatures()[FeatureExtractor.ZERO_CROSSINGS], 0);
+        assertEquals(0, extractor.getFeatures()[FeatureExtractor.SLOPE_SIGN_CHANGES], 0);
+        assertEquals(1, extractor.getFeatures()[FeatureExtractor.MAV], 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHopLongerThanWindow() {
+        new FeatureExtractor(1, 10, 11, 0);
+    }
+
+    // Features of the WINDOW frames ending at lastFrame
+    private static float[] bruteForce(float[] samples, int lastFrame) {
+        float[] out = new float[CHANNELS * FeatureExtractor.FEATURES_PER_CHANNEL];
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            double abs = 0;
+            double squares = 0;
+            double waveform = 0;
+            int zc = 0;
+            int ssc = 0;
+            for (int n = lastFrame - WINDOW + 1; n <= lastFrame; n++) {
+                float x = samples[n * CHANNELS + ch];
+                float x1 = samples[(n - 1) * CHANNELS + ch];
+                float x2 = samples[(n - 2) * CHANNELS + ch];
+                abs += Math.abs(x);
+                squares += (double) x * x;
+                waveform += Math.abs(x - x1);
+                if (x * x1 < 0 && Math.abs(x - x1) >= THRESHOLD) {
+                    zc++;
+                }
+                float rise = x1 - x2;
+                float fall = x1 - x;
+                if (rise * fall > 0 && Math.max(Math.abs(rise), Math.abs(fall)) >= THRESHOLD) {
+                    ssc++;
+                }
+            }
+            int base = ch * FeatureExtractor.FEATURES_PER_CHANNEL;
+            out[base + FeatureExtractor.MAV] = (float) (abs / WINDOW);
+            out[base + FeatureExtractor.RMS] = (float) Math.sqrt(squares / WINDOW);
+            out[base + FeatureExtractor.WAVEFORM_LENGTH] = (float) waveform;
+            out[base + FeatureExtractor.ZERO_CROSSINGS] = zc;
+            out[base + FeatureExtractor.SLOPE_SIGN_CHANGES] = ssc;
+        }
+        return out;
+    }
+}
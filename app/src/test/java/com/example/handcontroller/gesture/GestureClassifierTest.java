@@ -0,0 +1,130 @@
+package com.example.handcontroller.gesture;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.dsp.FeatureExtractor;
+import java.util.Random;
+import org.junit.Test;
+
+public class GestureClassifierTest {
+
+    private static final int FEATURES = 10;
+
+    // Class centres far apart in some features, with very different feature scales
+    private static final float[][] CENTRES = {
+        { 50, 60, 2000, 10, 12, 40, 50, 1500, 8, 10 },
+        { 300, 350, 9000, 25, 30, 60, 70, 2000, 9, 11 },
+        { 60, 70, 2500, 11, 13, 280, 320, 8000, 24, 28 },
+    };
+
+    @Test
+    public void separatesGaussianClusters() {
+        Random random = new Random(11);
+        LdaTrainer trainer = new LdaTrainer(FEATURES, Gesture.count());
+        for (int i = 0; i < 300; i++) {
+            for (int c = 0; c < CENTRES.length; c++) {
+                trainer.addSample(c, sample(random, c));
+            }
+        }
+        GestureClassifier classifier = trainer.train(LdaTrainer.DEFAULT_REGULARIZATION);
+
+        int correct = 0;
+        int total = 0;
+        for (int i = 0; i < 500; i++) {
+            for (int c = 0; c < CENTRES.length; c++) {
+                correct += classifier.classify(sample(random, c)) == c ? 1 : 0;
+                total++;
+            }
+        }
+        assertTrue("accuracy " + correct + "/" + total, correct > total * 0.97);
+    }
+
+    @Test
+    public void toleratesConstantFeatures() {
+        Random random = new Random(5);
+        LdaTrainer trainer = new LdaTrainer(FEATURES, Gesture.count());
+        for (int i = 0; i < 50; i++) {
+            for (int c = 0; c < CENTRES.length; c++) {
+                float[] features = sample(random, c);
+                features[3] = 0;
+                features[8] = 7;
+                trainer.addSample(c, features);
+            }
+        }
+        GestureClassifier classifier = trainer.train(0);
+        assertEquals(1, classifier.classify(CENTRES[1]));
+    }
+
+    @Test
+    public void refusesToTrainWithoutEveryClass() {
+        LdaTrainer trainer = new LdaTrainer(FEATURES, Gesture.count());
+        trainer.addSample(0, CENTRES[0]);
+        trainer.addSample(0, CENTRES[0]);
+        trainer.addSample(1, CENTRES[1]);
+        trainer.addSample(1, CENTRES[1]);
+        assertFalse(trainer.canTrain());
+        try {
+            trainer.train(LdaTrainer.DEFAULT_REGULARIZATION);
+            fail();
+        } catch (IllegalStateException expected) {
+            // Class 2 has no samples
+        }
+    }
+
+    // Benchmark: extraction plus classification must fit well inside the hop time
+    @Test
+    public void classifiesFarFasterThanHopTime() {
+        final int channels = 2;
+        final int window = 200;
+        final int hop = 50;
+        final double hopMillis = hop; // 1 kHz sensor stream
+        Random random = new Random(9);
+        LdaTrainer trainer = new LdaTrainer(
+            channels * FeatureExtractor.FEATURES_PER_CHANNEL,
+            Gesture.count()
+        );
+        for (int i = 0; i < 100; i++) {
+            for (int c = 0; c < CENTRES.length; c++) {
+                trainer.addSample(c, sample(random, c));
+            }
+        }
+        GestureClassifier classifier = trainer.train(LdaTrainer.DEFAULT_REGULARIZATION);
+        FeatureExtractor extractor = new FeatureExtractor(channels, window, hop, 5f);
+        float[] samples = new float[4096 * channels];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (random.nextGaussian() * 200);
+        }
+
+        int sink = 0;
+        long windows = 0;
+        long start = 0;
+        for (int pass = 0; pass < 200; pass++) {
+            if (pass == 50) {
+                start = System.nanoTime();
+                windows = 0;
+            }
+            for (int frame = 0; frame < 4096; frame++) {
+                if (extractor.addFrame(samples, frame * channels)) {
+                    sink += classifier.classify(extractor.getFeatures());
+                    windows++;
+                }
+            }
+        }
+        double millisPerWindow = (System.nanoTime() - start) / 1e6 / windows;
+
+        // The sink in the message keeps the classifications from being optimised away
+        assertTrue(
+            millisPerWindow + " ms per hop, sink " + sink,
+            millisPerWindow < hopMillis / 100
+        );
+    }
+
+    private static float[] sample(Random random, int label) {
+        float[] features = new float[FEATURES];
+        for (int i = 0; i < FEATURES; i++) {
+            float centre = CENTRES[label][i];
+            features[i] = centre + (float) random.nextGaussian() * centre * 0.15f;
+        }
+        return features;
+    }
+}
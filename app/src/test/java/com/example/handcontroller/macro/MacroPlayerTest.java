@@ -0,0 +1,127 @@
+package com.example.handcontroller.macro;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.protocol.FrameFormat;
+import com.example.handcontroller.protocol.MotorCommandCodec;
+import com.example.handcontroller.protocol.ProtocolMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class MacroPlayerTest {
+
+    private static final int[] OPEN = { 180, 0, 0 };
+    private static final int[] CLOSED = { 30, 110, 150 };
+
+    @Test
+    public void compilesOnePoseFramePerStepInBinaryMode() {
+        CompiledMacro compiled = new Macro("pinch", 3, 2)
+            .addStep(CLOSED, 500)
+            .addStep(OPEN, 250)
+            .compile(ProtocolMode.BINARY);
+
+        assertEquals(2, compiled.getFrameCount());
+        assertEquals(750_000_000L, compiled.getCycleNanos());
+        assertEquals(0, compiled.getTimeNanos(0));
+        assertEquals(500_000_000L, compiled.getTimeNanos(1));
+        byte[] frames = compiled.getFrames();
+        int second = compiled.getOffset(1);
+        assertEquals(MotorCommandCodec.poseFrameLength(3), compiled.getLength(1));
+        assertTrue(FrameFormat.isValid(frames, second, compiled.getLength(1)));
+        assertEquals(180, MotorCommandCodec.posePosition(frames, second, 0));
+    }
+
+    @Test
+    public void compilesOneCommandPerMotorInAsciiMode() {
+        CompiledMacro compiled = new Macro("open", 3, 1)
+            .addStep(OPEN, 100)
+            .compile(ProtocolMode.ASCII);
+
+        assertEquals(3, compiled.getFrameCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, compiled.getTimeNanos(i));
+            String command = new String(
+                compiled.getFrames(),
+                compiled.getOffset(i),
+                compiled.getLength(i),
+                StandardCharsets.US_ASCII
+            );
+            assertEquals("M" + (i + 1) + ":" + OPEN[i], command);
+        }
+    }
+
+    @Test
+    public void playsEveryCycleOnSchedule() throws Exception {
+        CompiledMacro compiled = new Macro("exercise", 3, 3)
+            .addStep(OPEN, 20)
+            .addStep(CLOSED, 20)
+            .compile(ProtocolMode.BINARY);
+        List<Integer> firstPositions = new ArrayList<>();
+        List<Long> sentAt = new ArrayList<>();
+        boolean[] completed = new boolean[1];
+        long start = System.nanoTime();
+        MacroPlayer player = new MacroPlayer(
+            compiled,
+            (frames, offset, length) -> {
+                sentAt.add(System.nanoTime() - start);
+                firstPositions.add(MotorCommandCodec.posePosition(frames, offset, 0));
+            },
+            (p, done) -> completed[0] = done,
+            MacroPlayer.SYSTEM_CLOCK
+        );
+        player.start();
+        player.join();
+
+        assertTrue(completed[0]);
+        assertFalse(player.isRunning());
+        assertEquals(6, firstPositions.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i % 2 == 0 ? 180 : 30, (int) firstPositions.get(i));
+            // Never early; the 20 ms steps would overlap if lateness accumulated
+            assertTrue(sentAt.get(i) >= i * 20_000_000L);
+            assertTrue(sentAt.get(i) < (i + 1) * 20_000_000L);
+        }
+        assertEquals(6, player.getJitter().getCount());
+    }
+
+    @Test
+    public void cancelStopsBeforeTheNextFrame() throws Exception {
+        CompiledMacro compiled = new Macro("forever", 3, Macro.REPEAT_FOREVER)
+            .addStep(OPEN, 60_000)
+            .addStep(CLOSED, 60_000)
+            .compile(ProtocolMode.BINARY);
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        int[] sent = new int[1];
+        boolean[] completed = { true };
+        MacroPlayer player = new MacroPlayer(
+            compiled,
+            (frames, offset, length) -> {
+                sent[0]++;
+                firstFrame.countDown();
+            },
+            (p, done) -> completed[0] = done,
+            MacroPlayer.SYSTEM_CLOCK
+        );
+        player.start();
+        assertTrue(firstFrame.await(2, TimeUnit.SECONDS));
+        player.cancel();
+        player.join();
+
+        assertEquals(1, sent[0]);
+        assertFalse(completed[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsEmptyMacro() {
+        new Macro("empty", 3, 1).compile(ProtocolMode.BINARY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongPoseLength() {
+        new Macro("bad", 3, 1).addStep(new int[] { 1, 2 }, 10);
+    }
+}
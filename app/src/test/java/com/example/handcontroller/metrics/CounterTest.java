@@ -0,0 +1,36 @@
+package com.example.handcontroller.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CounterTest {
+
+    @Test
+    public void sumsIncrementsFromManyThreads() throws InterruptedException {
+        Counter counter = new Counter();
+        Thread[] threads = new Thread[6];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    counter.increment();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(600_000, counter.get());
+    }
+
+    @Test
+    public void resetZeroesEveryStripe() {
+        Counter counter = new Counter();
+        counter.add(40);
+        counter.reset();
+
+        assertEquals(0, counter.get());
+    }
+}
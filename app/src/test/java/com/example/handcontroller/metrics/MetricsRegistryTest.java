@@ -0,0 +1,74 @@
+package com.example.handcontroller.metrics;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.utils.Histogram;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void returnsTheSameMetricForTheSameName() {
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        assertSame(metrics.counter("commands.sent"), metrics.counter("commands.sent"));
+        assertSame(
+            metrics.histogram("write.rtt_ms", 1000),
+            metrics.histogram("write.rtt_ms", 1000)
+        );
+    }
+
+    @Test
+    public void exportsEveryMetricAsJson() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("bytes.sent").add(42);
+        metrics.counter("bytes.received").add(7);
+        metrics.gauge("write.queue_depth", () -> 3);
+        Histogram rtt = metrics.histogram("write.rtt_ms", 1000);
+        rtt.record(10);
+        rtt.record(20);
+
+        assertEquals(
+            "{\"counters\":{\"bytes.received\":7,\"bytes.sent\":42}," +
+            "\"gauges\":{\"write.queue_depth\":3}," +
+            "\"histograms\":{\"write.rtt_ms\":{\"count\":2,\"min\":10,\"mean\":15," +
+            "\"p50\":10,\"p95\":20,\"p99\":20,\"max\":20}}}",
+            metrics.toJson()
+        );
+    }
+
+    @Test
+    public void exportsOneTextLinePerMetric() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("commands.sent").increment();
+        metrics.histogram("stop.latency_ms", 1000).record(12);
+
+        assertEquals(
+            "commands.sent 1\nstop.latency_ms count=1 p50=12 p95=12 p99=12 max=12\n",
+            metrics.toText()
+        );
+    }
+
+    @Test
+    public void resetKeepsRegistrations() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        Counter sent = metrics.counter("commands.sent");
+        sent.add(5);
+        metrics.reset();
+
+        assertEquals(0, sent.get());
+        assertSame(sent, metrics.counter("commands.sent"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDuplicateGauges() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.gauge("write.queue_depth", () -> 0);
+        metrics.gauge("write.queue_depth", () -> 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNamesThatNeedEscaping() {
+        new MetricsRegistry().counter("bad \"name\"");
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.handcontroller.poses;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.gesture.Gesture;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PoseLibraryTest {
+
+    private File directory;
+    private File file;
+    private final List<PoseLibrary> libraries = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("poses").toFile();
+        file = new File(directory, "poses.bin");
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        // Let pending saves finish before the directory goes away
+        for (PoseLibrary library : libraries) {
+            library.close();
+            library.awaitSaved(2000);
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private PoseLibrary open(
+        int motorCount,
+        long saveDelayMs,
+        PoseLibrary.ErrorListener listener
+    ) {
+        PoseLibrary library = new PoseLibrary(file, motorCount, saveDelayMs, listener);
+        libraries.add(library);
+        return library;
+    }
+
+    @Test
+    public void savedPosesSurviveReopening() throws Exception {
+        PoseLibrary library = open(3, 5, null);
+        library.put("saved", new int[] { 180, 0, 0 });
+        library.put(PoseLibrary.nameOf(Gesture.PEACE), new int[] { 30, 0, 150 });
+        assertTrue(library.awaitSaved(2000));
+        library.close();
+
+        PoseLibrary reopened = open(3, 5, null);
+        assertArrayEquals(new int[] { 180, 0, 0 }, reopened.get("saved"));
+        assertArrayEquals(new int[] { 30, 0, 150 }, reopened.get("peace"));
+        assertEquals(Arrays.asList("peace", "saved"), reopened.getNames());
+        assertNull(reopened.get("missing"));
+    }
+
+    @Test
+    public void batchesEditsIntoOneWriteAfterTheDelay() throws Exception {
+        PoseLibrary library = open(2, 200, null);
+        for (int i = 0; i < 50; i++) {
+            library.put("drag", new int[] { i, i });
+        }
+        // Nothing reaches the disk while edits are still arriving
+        assertFalse(file.exists());
+        assertTrue(library.awaitSaved(2000));
+        assertArrayEquals(new int[] { 49, 49 }, open(2, 0, null).get("drag"));
+    }
+
+    @Test
+    public void closeWritesPendingChangesWithoutWaiting() throws Exception {
+        PoseLibrary library = open(1, 60_000, null);
+        library.put("a", new int[] { 7 });
+        library.close();
+        assertTrue(library.awaitSaved(2000));
+        assertArrayEquals(new int[] { 7 }, open(1, 0, null).get("a"));
+    }
+
+    @Test
+    public void removeIsPersisted() throws Exception {
+        PoseLibrary library = open(1, 0, null);
+        library.put("a", new int[] { 1 });
+        library.put("b", new int[] { 2 });
+        library.remove("a");
+        assertTrue(library.awaitSaved(2000));
+        PoseLibrary reopened = open(1, 0, null);
+        assertFalse(reopened.contains("a"));
+        assertTrue(reopened.contains("b"));
+    }
+
+    @Test
+    public void returnedPosesAreCopies() {
+        PoseLibrary library = open(2, 0, null);
+        int[] pose = { 1, 2 };
+        library.put("p", pose);
+        pose[0] = 99;
+        library.get("p")[1] = 99;
+        assertArrayEquals(new int[] { 1, 2 }, library.get("p"));
+        library.close();
+    }
+
+    @Test
+    public void unreadableFileStartsEmptyAndReportsError() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        }
+        IOException[] reported = new IOException[1];
+        PoseLibrary library = open(3, 0, e -> reported[0] = e);
+        assertTrue(library.getNames().isEmpty());
+        assertNotNull(reported[0]);
+    }
+
+    @Test
+    public void posesForAnotherMotorCountAreSkipped() throws Exception {
+        PoseLibrary two = open(2, 0, null);
+        two.put("p", new int[] { 1, 2 });
+        assertTrue(two.awaitSaved(2000));
+        assertNull(open(3, 0, null).get("p"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongPoseLength() {
+        open(3, 0, null).put("p", new int[] { 1, 2 });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsChangesAfterClose() {
+        PoseLibrary library = open(1, 0, null);
+        library.close();
+        library.put("p", new int[] { 1 });
+    }
+}
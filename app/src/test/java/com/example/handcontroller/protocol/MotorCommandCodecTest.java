@@ -0,0 +1,244 @@
+package com.example.handcontroller.protocol;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class MotorCommandCodecTest {
+
+    @Test
+    public void binaryFrame_roundTrips() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[MotorCommandCodec.MOTOR_FRAME_LENGTH];
+
+        for (int motor = 0; motor <= 3; motor++) {
+            for (int position = 0; position <= 180; position++) {
+                int length = codec.encodeMotor(motor, position, out, 0);
+                assertEquals(MotorCommandCodec.MOTOR_FRAME_LENGTH, length);
+                assertTrue(FrameFormat.isValid(out, 0, length));
+                assertEquals(FrameFormat.OP_MOTOR, FrameFormat.opcode(out, 0));
+                assertEquals(motor, MotorCommandCodec.motorId(out, 0));
+                assertEquals(position, MotorCommandCodec.position(out, 0));
+            }
+        }
+        assertEquals(
+            MotorCommandCodec.MAX_POSITION,
+            decodePosition(codec, 1, MotorCommandCodec.MAX_POSITION)
+        );
+    }
+
+    @Test
+    public void restamp_takesOverSequenceAndKeepsFrameValid() {
+        MotorCommandCodec compiler = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] frame = new byte[MotorCommandCodec.poseFrameLength(3)];
+        int length = compiler.encodePose(new int[] { 180, 0, 90 }, frame, 0);
+
+        MotorCommandCodec live = new MotorCommandCodec(ProtocolMode.BINARY);
+        live.encodeMotor(1, 0, new byte[MotorCommandCodec.MOTOR_FRAME_LENGTH], 0);
+        live.restamp(frame, 0);
+        assertEquals(1, FrameFormat.sequence(frame, 0));
+        assertTrue(FrameFormat.isValid(frame, 0, length));
+        assertEquals(90, MotorCommandCodec.posePosition(frame, 0, 2));
+
+        byte[] ascii = "M1:90".getBytes(StandardCharsets.US_ASCII);
+        live.restamp(ascii, 0);
+        assertEquals("M1:90", new String(ascii, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void decodePositions_readsBackEveryCommandForm() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[MotorCommandCodec.MAX_COMMAND_LENGTH];
+        int[] positions = new int[3];
+
+        int length = codec.encodePose(new int[] { 10, 20, 30 }, out, 0);
+        assertEquals(3, MotorCommandCodec.decodePositions(out, 0, length, positions));
+        assertArrayEquals(new int[] { 10, 20, 30 }, positions);
+
+        length = codec.encodeMotor(2, 250, out, 0);
+        assertEquals(2, MotorCommandCodec.decodePositions(out, 0, length, positions));
+        codec.setMode(ProtocolMode.ASCII);
+        length = codec.encodeMotor(3, 1234, out, 0);
+        assertEquals(3, MotorCommandCodec.decodePositions(out, 0, length, positions));
+        assertArrayEquals(new int[] { 10, 250, 1234 }, positions);
+
+        byte[] stop = "STOP".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0, MotorCommandCodec.decodePositions(stop, 0, stop.length, positions));
+    }
+
+    @Test
+    public void pingFrame_carriesId() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[MotorCommandCodec.PING_FRAME_LENGTH];
+
+        int length = codec.encodePing(0xBEEF, out, 0);
+
+        assertEquals(MotorCommandCodec.PING_FRAME_LENGTH, length);
+        assertTrue(FrameFormat.isValid(out, 0, length));
+        assertEquals(FrameFormat.OP_PING, FrameFormat.opcode(out, 0));
+        assertEquals(0xBEEF, MotorCommandCodec.pingId(out, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pingFrame_requiresBinaryMode() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.ASCII);
+        codec.encodePing(1, new byte[MotorCommandCodec.PING_FRAME_LENGTH], 0);
+    }
+
+    @Test
+    public void binaryFrame_incrementsAndWrapsSequence() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[MotorCommandCodec.MOTOR_FRAME_LENGTH];
+
+        for (int i = 0; i < 300; i++) {
+            codec.encodeMotor(1, 90, out, 0);
+            assertEquals(i & 0xFF, FrameFormat.sequence(out, 0));
+        }
+    }
+
+    @Test
+    public void binaryFrame_rejectsCorruption() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[MotorCommandCodec.MOTOR_FRAME_LENGTH];
+        int length = codec.encodeMotor(2, 150, out, 0);
+
+        for (int i = 1; i < length; i++) {
+            out[i] ^= 0x10;
+            assertFalse(FrameFormat.isValid(out, 0, length));
+            out[i] ^= 0x10;
+        }
+        assertFalse(FrameFormat.isValid(out, 0, length - 1));
+    }
+
+    @Test
+    public void binaryFrame_encodesAtOffset() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[32];
+        int length = codec.encodeMotor(3, 42, out, 11);
+
+        assertTrue(FrameFormat.isValid(out, 11, length));
+        assertEquals(3, MotorCommandCodec.motorId(out, 11));
+        assertEquals(42, MotorCommandCodec.position(out, 11));
+    }
+
+    @Test
+    public void newCodec_speaksLegacyAscii() {
+        MotorCommandCodec codec = new MotorCommandCodec();
+        byte[] out = new byte[MotorCommandCodec.MAX_ASCII_MOTOR_LENGTH];
+        int length = codec.encodeMotor(1, 90, out, 0);
+
+        assertEquals(ProtocolMode.ASCII, codec.getMode());
+        assertEquals("M1:90", new String(out, 0, length, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void asciiMode_matchesLegacyFormat() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.ASCII);
+        byte[] out = new byte[MotorCommandCodec.MAX_ASCII_MOTOR_LENGTH];
+
+        int[][] cases = {
+            { 1, 0 },
+            { 2, 9 },
+            { 3, 90 },
+            { 1, 180 },
+            { 255, 65535 },
+        };
+        for (int[] c : cases) {
+            int length = codec.encodeMotor(c[0], c[1], out, 0);
+            String expected = String.format("M%d:%d", c[0], c[1]);
+            assertEquals(
+                expected,
+                new String(out, 0, length, StandardCharsets.US_ASCII)
+            );
+        }
+    }
+
+    @Test
+    public void poseFrame_roundTrips() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        int[] pose = { 0, 110, 150 };
+        byte[] out = new byte[MotorCommandCodec.MAX_COMMAND_LENGTH];
+
+        int length = codec.encodePose(pose, out, 0);
+
+        assertEquals(MotorCommandCodec.poseFrameLength(pose.length), length);
+        assertTrue(FrameFormat.isValid(out, 0, length));
+        assertEquals(FrameFormat.OP_POSE, FrameFormat.opcode(out, 0));
+        assertEquals(pose.length, MotorCommandCodec.poseMotorCount(out, 0));
+        for (int i = 0; i < pose.length; i++) {
+            assertEquals(pose[i], MotorCommandCodec.posePosition(out, 0, i));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void poseFrame_requiresBinaryMode() {
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.ASCII);
+        codec.encodePose(new int[] { 1, 2, 3 }, new byte[64], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void poseFrame_rejectsTooManyMotors() {
+        new MotorCommandCodec(ProtocolMode.BINARY)
+            .encodePose(
+                new int[MotorCommandCodec.MAX_POSE_MOTORS + 1],
+                new byte[256],
+                0
+            );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsOutOfRangePosition() {
+        new MotorCommandCodec(ProtocolMode.BINARY)
+            .encodeMotor(1, MotorCommandCodec.MAX_POSITION + 1, new byte[16], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsNegativeMotorId() {
+        new MotorCommandCodec(ProtocolMode.BINARY).encodeMotor(-1, 0, new byte[16], 0);
+    }
+
+    @Test
+    public void encode_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] out = new byte[MotorCommandCodec.MAX_MOTOR_COMMAND_LENGTH];
+        for (int i = 0; i < 20_000; i++) {
+            encodeBoth(codec, out, i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            encodeBoth(codec, out, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // A single boxed object per call would already be megabytes here
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    private static void encodeBoth(MotorCommandCodec codec, byte[] out, int i) {
+        codec.setMode(ProtocolMode.BINARY);
+        codec.encodeMotor(i % 3 + 1, i % 181, out, 0);
+        codec.setMode(ProtocolMode.ASCII);
+        codec.encodeMotor(i % 3 + 1, i % 181, out, 0);
+    }
+
+    private static int decodePosition(
+        MotorCommandCodec codec,
+        int motorId,
+        int position
+    ) {
+        byte[] out = new byte[MotorCommandCodec.MOTOR_FRAME_LENGTH];
+        codec.encodeMotor(motorId, position, out, 0);
+        return MotorCommandCodec.position(out, 0);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.handcontroller.protocol;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SensorFrameParserTest {
+
+    private final List<short[]> received = new ArrayList<>();
+    private final List<Integer> channelCounts = new ArrayList<>();
+    private SensorFrameParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new SensorFrameParser((samples, frameCount, channelCount) -> {
+            received.add(Arrays.copyOf(samples, frameCount * channelCount));
+            channelCounts.add(channelCount);
+        });
+    }
+
+    @Test
+    public void decodesBinaryFrame() {
+        byte[] frame = sensorFrame(2, 0, 512, -3, 1023, 7);
+
+        parser.feed(frame, 0, frame.length);
+
+        assertEquals(1, received.size());
+        assertArrayEquals(new short[] { 512, -3, 1023, 7 }, received.get(0));
+        assertEquals(2, (int) channelCounts.get(0));
+    }
+
+    @Test
+    public void reassemblesFramesSplitAtEveryBoundary() {
+        byte[] stream = concat(
+            sensorFrame(2, 0, 1, 2, 3, 4),
+            sensorFrame(2, 1, 5, 6),
+            sensorFrame(1, 2, 7, 8, 9)
+        );
+
+        for (int split = 1; split < stream.length; split++) {
+            received.clear();
+            parser.feed(stream, 0, split);
+            parser.feed(stream, split, stream.length - split);
+
+            assertEquals("split at " + split, 3, received.size());
+            assertArrayEquals(new short[] { 7, 8, 9 }, received.get(2));
+        }
+    }
+
+    @Test
+    public void decodesStreamDeliveredInMtuSizedChunks() {
+        Random random = new Random(42);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        List<short[]> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int[] values = new int[2 * (1 + random.nextInt(20))];
+            short[] samples = new short[values.length];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = random.nextInt(4096) - 2048;
+                samples[j] = (short) values[j];
+            }
+            byte[] frame = sensorFrame(2, i, values);
+            stream.write(frame, 0, frame.length);
+            expected.add(samples);
+        }
+
+        feedInChunks(stream.toByteArray(), 20);
+
+        assertEquals(expected.size(), received.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), received.get(i));
+        }
+        assertEquals(0, parser.getChecksumErrors());
+    }
+
+    @Test
+    public void resyncsAfterCorruptFrameAndGarbage() {
+        byte[] corrupt = sensorFrame(1, 0, 100, 200);
+        corrupt[corrupt.length - 2] ^= 0x01;
+        byte[] stream = concat(
+            new byte[] { 0x00, 0x7F },
+            corrupt,
+            sensorFrame(1, 1, 300)
+        );
+
+        feedInChunks(stream, 5);
+
+        assertEquals(1, received.size());
+        assertArrayEquals(new short[] { 300 }, received.get(0));
+        assertEquals(1, parser.getChecksumErrors());
+    }
+
+    @Test
+    public void rejectsFrameWithInconsistentSampleCount() {
+        byte[] frame = new byte[16];
+        int p = FrameFormat.writeHeader(frame, 0, FrameFormat.OP_SENSOR, 4);
+        frame[p] = 2;
+        frame[p + 1] = 2;
+        int length = FrameFormat.writeTrailer(frame, 0, 4, 0);
+
+        parser.feed(frame, 0, length);
+
+        assertTrue(received.isEmpty());
+        assertEquals(1, parser.getMalformedFrames());
+    }
+
+    @Test
+    public void ignoresOtherOpcodes() {
+        byte[] frame = new byte[MotorCommandCodec.MOTOR_FRAME_LENGTH];
+        new MotorCommandCodec(ProtocolMode.BINARY).encodeMotor(1, 90, frame, 0);
+
+        parser.feed(frame, 0, frame.length);
+
+        assertTrue(received.isEmpty());
+        assertEquals(0, parser.getMalformedFrames());
+    }
+
+    @Test
+    public void decodesAsciiLinesSplitAcrossNotifications() {
+        byte[] stream = ascii("S:512,498\nS:-20,7\r\nS:1\n");
+
+        feedInChunks(stream, 3);
+
+        assertEquals(3, received.size());
+        assertArrayEquals(new short[] { 512, 498 }, received.get(0));
+        assertArrayEquals(new short[] { -20, 7 }, received.get(1));
+        assertArrayEquals(new short[] { 1 }, received.get(2));
+    }
+
+    @Test
+    public void rejectsMalformedAsciiLines() {
+        byte[] stream = ascii("S:\nS:12a\nS512\nS:99999\nS:5\n");
+
+        parser.feed(stream, 0, stream.length);
+
+        assertEquals(1, received.size());
+        assertArrayEquals(new short[] { 5 }, received.get(0));
+        assertEquals(4, parser.getMalformedFrames());
+    }
+
+    @Test
+    public void mixesBinaryAndAscii() {
+        byte[] stream = concat(
+            ascii("S:1,2\n"),
+            sensorFrame(2, 0, 3, 4),
+            ascii("S:5,6\n")
+        );
+
+        feedInChunks(stream, 4);
+
+        assertEquals(3, received.size());
+        assertArrayEquals(new short[] { 3, 4 }, received.get(1));
+    }
+
+    @Test
+    public void resetDropsPartialFrame() {
+        byte[] frame = sensorFrame(1, 0, 42);
+        parser.feed(frame, 0, 4);
+        parser.reset();
+        parser.feed(frame, 0, frame.length);
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void deliversPongsBetweenSensorFrames() {
+        List<Integer> pongs = new ArrayList<>();
+        parser.setPongListener(pongs::add);
+        MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        byte[] pong = new byte[MotorCommandCodec.PING_FRAME_LENGTH];
+        codec.encodePing(0x1234, pong, 0);
+        pong[1] = (byte) FrameFormat.OP_PONG;
+        FrameFormat.writeTrailer(pong, 0, MotorCommandCodec.PING_PAYLOAD_LENGTH, 0);
+        byte[] sensor = sensorFrame(1, 1, 42);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(sensor, 0, sensor.length);
+        stream.write(pong, 0, pong.length);
+        stream.write(sensor, 0, sensor.length);
+        byte[] bytes = stream.toByteArray();
+        parser.feed(bytes, 0, bytes.length);
+
+        assertEquals(Arrays.asList(0x1234), pongs);
+        assertEquals(1, parser.getPongCount());
+        assertEquals(2, received.size());
+        assertEquals(0, parser.getMalformedFrames());
+    }
+
+    private void feedInChunks(byte[] stream, int chunk) {
+        for (int offset = 0; offset < stream.length; offset += chunk) {
+            parser.feed(stream, offset, Math.min(chunk, stream.length - offset));
+        }
+    }
+
+    public static byte[] sensorFrame(int channels, int sequence, int... values) {
+        int payloadLength = 2 + values.length * 2;
+        byte[] frame = new byte[FrameFormat.frameLength(payloadLength)];
+        int p = FrameFormat.writeHeader(
+            frame,
+            0,
+            FrameFormat.OP_SENSOR,
+            payloadLength
+        );
+        frame[p++] = (byte) channels;
+        frame[p++] = (byte) (values.length / channels);
+        for (int value : values) {
+            frame[p++] = (byte) (value >> 8);
+            frame[p++] = (byte) value;
+        }
+        FrameFormat.writeTrailer(frame, 0, payloadLength, sequence);
+        return frame;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
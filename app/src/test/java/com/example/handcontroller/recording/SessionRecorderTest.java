@@ -0,0 +1,180 @@
+package com.example.handcontroller.recording;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionRecorderTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("session").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void roundTripsEveryRecordType() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(writer(1 << 20), 4096, 5, null);
+        recorder.recordConnectionState(3, 100);
+        recorder.recordSensorData(new byte[] { 9, 1, 2, 3 }, 1, 3, 200);
+        recorder.recordCommand(new byte[] { 'S', 'T', 'O', 'P' }, 0, 4, 300);
+        recorder.stop();
+
+        SessionLogReader reader = new SessionLogReader(directory);
+        assertEquals(42, reader.getStartNanos());
+        assertEquals(1234, reader.getStartWallMillis());
+
+        assertTrue(reader.next());
+        assertEquals(SessionLogFormat.TYPE_CONNECTION_STATE, reader.getType());
+        assertEquals(100, reader.getTimestampNanos());
+        assertEquals(1, reader.getPayloadLength());
+        assertEquals(3, reader.getPayload()[0]);
+
+        assertTrue(reader.next());
+        assertEquals(SessionLogFormat.TYPE_SENSOR_DATA, reader.getType());
+        assertEquals(200, reader.getTimestampNanos());
+        assertEquals(3, reader.getPayloadLength());
+        assertEquals(1, reader.getPayload()[0]);
+        assertEquals(3, reader.getPayload()[2]);
+
+        assertTrue(reader.next());
+        assertEquals(SessionLogFormat.TYPE_COMMAND, reader.getType());
+        assertEquals("STOP", new String(reader.getPayload(), 0, 4, "US-ASCII"));
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void rollsOverToNewSegments() throws Exception {
+        SessionLogWriter writer = writer(1024);
+        SessionRecorder recorder = new SessionRecorder(writer, 512, 1, null);
+        byte[] payload = new byte[20];
+        for (int i = 0; i < 200; i++) {
+            payload[0] = (byte) i;
+            recorder.recordSensorData(payload, 0, payload.length, i);
+            if (i % 10 == 0) {
+                Thread.sleep(2);
+            }
+        }
+        recorder.stop();
+
+        assertTrue(writer.getSegmentCount() > 3);
+        for (File file : directory.listFiles()) {
+            assertTrue(file.length() <= 1024);
+        }
+        long expected = 200 - recorder.getDroppedCount();
+        long read = 0;
+        long lastTimestamp = -1;
+        SessionLogReader reader = new SessionLogReader(directory);
+        while (reader.next()) {
+            assertTrue(reader.getTimestampNanos() > lastTimestamp);
+            lastTimestamp = reader.getTimestampNanos();
+            assertEquals((byte) lastTimestamp, reader.getPayload()[0]);
+            read++;
+        }
+        assertEquals(expected, read);
+    }
+
+    @Test
+    public void recordsFromManyThreads() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(writer(1 << 20), 1 << 16, 2, null);
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final byte id = (byte) t;
+            producers[t] = new Thread(() -> {
+                byte[] data = { id, id, id };
+                for (int i = 0; i < 2000; i++) {
+                    recorder.recordSensorData(data, 0, data.length, i);
+                    if (i % 50 == 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        recorder.stop();
+
+        int[] perThread = new int[producers.length];
+        SessionLogReader reader = new SessionLogReader(directory);
+        while (reader.next()) {
+            byte[] payload = reader.getPayload();
+            assertEquals(payload[0], payload[1]);
+            assertEquals(payload[0], payload[2]);
+            perThread[payload[0]]++;
+        }
+        long total = 0;
+        for (int count : perThread) {
+            total += count;
+        }
+        assertEquals(recorder.getRecordCount(), total);
+        assertEquals(8000, total + recorder.getDroppedCount());
+    }
+
+    @Test
+    public void dropsRecordsAfterStop() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(writer(1 << 20), 4096, 5, null);
+        recorder.stop();
+        recorder.recordCommand(new byte[1], 0, 1, 0);
+        assertEquals(1, recorder.getDroppedCount());
+        assertFalse(new SessionLogReader(directory).next());
+    }
+
+    @Test
+    public void truncatedTailEndsTheSegment() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(writer(1 << 20), 4096, 5, null);
+        recorder.recordCommand(new byte[8], 0, 8, 1);
+        recorder.recordCommand(new byte[8], 0, 8, 2);
+        recorder.stop();
+        File segment = new File(directory, SessionLogFormat.segmentName(0));
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        SessionLogReader reader = new SessionLogReader(directory);
+        assertTrue(reader.next());
+        assertFalse(reader.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownVersion() throws Exception {
+        SessionRecorder recorder = new SessionRecorder(writer(1 << 20), 4096, 5, null);
+        recorder.stop();
+        File segment = new File(directory, SessionLogFormat.segmentName(0));
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(4);
+            file.writeShort(SessionLogFormat.VERSION + 1);
+        }
+        new SessionLogReader(directory);
+    }
+
+    private SessionLogWriter writer(long segmentBytes) throws IOException {
+        return new SessionLogWriter(
+            directory,
+            segmentBytes,
+            (int) Math.min(segmentBytes / 2, 1 << 16),
+            42,
+            1234
+        );
+    }
+}
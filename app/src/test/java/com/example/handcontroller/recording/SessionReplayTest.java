@@ -0,0 +1,337 @@
+package com.example.handcontroller.recording;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.control.ProportionalMapper;
+import com.example.handcontroller.dsp.EmgPipeline;
+import com.example.handcontroller.dsp.FeatureExtractor;
+import com.example.handcontroller.protocol.MotorCommandCodec;
+import com.example.handcontroller.protocol.ProtocolMode;
+import com.example.handcontroller.protocol.SensorFrameParser;
+import com.example.handcontroller.protocol.SensorFrameParserTest;
+import com.example.handcontroller.transport.LoopbackTransport;
+import com.example.handcontroller.transport.WriteQueue;
+import com.example.handcontroller.utils.BenchmarkReport;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Replays synthetic sessions through the same pure-JVM pipeline the
+ * service runs: frame parser, EMG filtering, features, proportional
+ * mapping and the write queue, with a loopback transport in place of the
+ * hand.
+ */
+public class SessionReplayTest {
+
+    private static final int CHANNELS = 2;
+    private static final int SAMPLE_RATE = 1000;
+    private static final int FRAMES_PER_NOTIFICATION = 20;
+    private static final long NOTIFICATION_NANOS =
+        FRAMES_PER_NOTIFICATION * 1_000_000_000L / SAMPLE_RATE;
+    private static final int[] OPEN = { 0, 0, 180 };
+    private static final int[] CLOSED = { 150, 110, 30 };
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("replay").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void gripBurstsCloseAndReleaseTheHand() throws Exception {
+        // Grip bursts from 3 to 5 s and 7 to 9 s
+        writeSession(10, new double[][] { { 3, 5 }, { 7, 9 } });
+        Pipeline pipeline = new Pipeline();
+
+        long records = new SessionReplayer(
+            new SessionLogReader(directory),
+            pipeline,
+            SessionReplayer.AS_FAST_AS_POSSIBLE,
+            SessionReplayer.SYSTEM_CLOCK
+        ).run();
+
+        assertEquals(1 + 10 * SAMPLE_RATE / FRAMES_PER_NOTIFICATION, records);
+        assertEquals(10 * SAMPLE_RATE, pipeline.frames);
+        assertEquals(0, pipeline.levelAt(2.5), 0);
+        assertEquals(1, pipeline.levelAt(4.5), 0);
+        assertEquals(0, pipeline.levelAt(6.5), 0);
+        assertEquals(1, pipeline.levelAt(8.5), 0);
+        // Hysteresis keeps the hand still between the transitions
+        assertTrue("level changes " + pipeline.levelChanges, pipeline.levelChanges < 60);
+        assertEquals(pipeline.levelChanges, pipeline.transport.getWriteCount());
+        assertEquals(0, pipeline.queue.getDroppedCount());
+    }
+
+    @Test
+    public void pacesAtTheRequestedSpeed() throws Exception {
+        writeSession(2, new double[0][]);
+        FakeClock clock = new FakeClock();
+        Pipeline pipeline = new Pipeline();
+
+        new SessionReplayer(new SessionLogReader(directory), pipeline, 4f, clock).run();
+
+        // The last notification is recorded 2 s minus one interval after the first
+        double expectedSeconds = (2e9 - NOTIFICATION_NANOS) / 4 / 1e9;
+        assertEquals(expectedSeconds, clock.now / 1e9, 1e-3);
+    }
+
+    @Test
+    public void cancelStopsBeforeTheNextRecord() throws Exception {
+        writeSession(1, new double[0][]);
+        SessionReplayer[] replayer = new SessionReplayer[1];
+        Pipeline pipeline = new Pipeline() {
+            @Override
+            public void onSensorData(byte[] data, int length, long timestampNanos) {
+                super.onSensorData(data, length, timestampNanos);
+                replayer[0].cancel();
+            }
+        };
+        replayer[0] = new SessionReplayer(
+            new SessionLogReader(directory),
+            pipeline,
+            SessionReplayer.AS_FAST_AS_POSSIBLE,
+            SessionReplayer.SYSTEM_CLOCK
+        );
+        assertEquals(2, replayer[0].run());
+    }
+
+    @Test
+    public void replaysPackedCommandsOnASlowLink() throws Exception {
+        writeSession(10, new double[][] { { 3, 5 }, { 7, 9 } });
+        // 247-byte MTU; confirmations only every 200 ms so commands queue up
+        Pipeline pipeline = new Pipeline(244, 10);
+
+        new SessionReplayer(
+            new SessionLogReader(directory),
+            pipeline,
+            SessionReplayer.AS_FAST_AS_POSSIBLE,
+            SessionReplayer.SYSTEM_CLOCK
+        ).run();
+
+        int frameLength = MotorCommandCodec.poseFrameLength(OPEN.length);
+        assertEquals(1, pipeline.levelAt(8.5), 0);
+        assertEquals(0, pipeline.queue.getDroppedCount());
+        assertEquals(
+            pipeline.commands * (long) frameLength,
+            pipeline.transport.getByteCount() +
+            pipeline.queue.getPendingCount() * (long) frameLength
+        );
+        // Most writes carry several commands, more than one command buffer holds
+        assertTrue(
+            "writes " + pipeline.transport.getWriteCount() + " for " + pipeline.commands,
+            pipeline.transport.getWriteCount() * 3 < pipeline.commands
+        );
+    }
+
+    // Benchmark: how far beyond the device rate the whole inbound pipeline can go
+    @Test
+    public void measuresMaximumPipelineThroughput() throws Exception {
+        writeSession(60, new double[][] { { 10, 20 }, { 30, 40 } });
+        Pipeline warmup = new Pipeline();
+        new SessionReplayer(
+            new SessionLogReader(directory),
+            warmup,
+            SessionReplayer.AS_FAST_AS_POSSIBLE,
+            SessionReplayer.SYSTEM_CLOCK
+        ).run();
+
+        Pipeline pipeline = new Pipeline();
+        SessionLogReader reader = new SessionLogReader(directory);
+        long start = System.nanoTime();
+        new SessionReplayer(
+            reader,
+            pipeline,
+            SessionReplayer.AS_FAST_AS_POSSIBLE,
+            SessionReplayer.SYSTEM_CLOCK
+        ).run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double framesPerSecond = pipeline.frames / seconds;
+
+        new BenchmarkReport("SessionReplay")
+            .put("frames_per_second", Math.round(framesPerSecond))
+            .put("real_time_factor", framesPerSecond / SAMPLE_RATE)
+            .put("feature_windows", pipeline.windows)
+            .put("max_notification_us", pipeline.maxNotificationNanos / 1000)
+            .write();
+        assertTrue(
+            Math.round(framesPerSecond) + " frames/s, " + pipeline.windows + " windows",
+            framesPerSecond > 20 * SAMPLE_RATE
+        );
+    }
+
+    // Session of 2-channel EMG: channel 1 bursts inside the given [start, end) seconds
+    private void writeSession(int seconds, double[][] bursts) throws IOException {
+        int notifications = seconds * SAMPLE_RATE / FRAMES_PER_NOTIFICATION;
+        SessionLogWriter writer = new SessionLogWriter(directory, 1 << 20, 4096, 0, 0);
+        Random random = new Random(17);
+        byte[] record = new byte[4096];
+
+        int length = SessionLogFormat.writeRecordHeader(
+            record,
+            0,
+            SessionLogFormat.TYPE_CONNECTION_STATE,
+            1,
+            0
+        );
+        record[length++] = 3;
+        writer.write(record, 0, length);
+
+        int[] samples = new int[FRAMES_PER_NOTIFICATION * CHANNELS];
+        for (int n = 0; n < notifications; n++) {
+            for (int f = 0; f < FRAMES_PER_NOTIFICATION; f++) {
+                double t = (n * FRAMES_PER_NOTIFICATION + f) / (double) SAMPLE_RATE;
+                double grip = 20;
+                for (double[] burst : bursts) {
+                    if (t >= burst[0] && t < burst[1]) {
+                        grip = 1200;
+                    }
+                }
+                samples[f * CHANNELS] = (int) (random.nextGaussian() * 20);
+                samples[f * CHANNELS + 1] = (int) (random.nextGaussian() * grip);
+            }
+            byte[] frame = SensorFrameParserTest.sensorFrame(CHANNELS, n, samples);
+            int payload = SessionLogFormat.writeRecordHeader(
+                record,
+                0,
+                SessionLogFormat.TYPE_SENSOR_DATA,
+                frame.length,
+                n * NOTIFICATION_NANOS
+            );
+            System.arraycopy(frame, 0, record, payload, frame.length);
+            writer.write(record, 0, payload + frame.length);
+        }
+        writer.close();
+    }
+
+    private static class Pipeline implements SessionReplayer.Sink {
+
+        final EmgPipeline emg = EmgPipeline.withDefaults(CHANNELS, SAMPLE_RATE);
+        final FeatureExtractor features = new FeatureExtractor(CHANNELS, 200, 50, 10f);
+        final ProportionalMapper mapper = new ProportionalMapper(OPEN, CLOSED, CHANNELS, 1, 0);
+        final MotorCommandCodec codec = new MotorCommandCodec(ProtocolMode.BINARY);
+        final byte[] command = new byte[MotorCommandCodec.MAX_COMMAND_LENGTH];
+        int pendingAcks;
+        // Packing makes packets up to the queue's limit, not just single commands
+        final LoopbackTransport transport = new LoopbackTransport(
+            WriteQueue.MAX_PACKET_LENGTH,
+            () -> pendingAcks++
+        );
+        final WriteQueue queue = new WriteQueue(
+            transport,
+            () -> 0,
+            32,
+            MotorCommandCodec.MAX_COMMAND_LENGTH,
+            250,
+            2
+        );
+        final SensorFrameParser parser = new SensorFrameParser(this::onSamples);
+        final float[] filtered = new float[256 * CHANNELS];
+        final float[] envelope = new float[CHANNELS];
+        final int[] pose = new int[OPEN.length];
+        // Closure level at the end of each notification
+        final float[] levels = new float[100_000];
+        int notifications;
+        // Longest a single notification took end to end, the lag it adds in real time
+        long maxNotificationNanos;
+        long frames;
+        long windows;
+        int levelChanges;
+        int commands;
+        final int commandFlags;
+        // Writes are confirmed after every this many notifications
+        final int ackInterval;
+
+        Pipeline() {
+            this(0, 1);
+        }
+
+        /**
+         * A maxPacketLength above 0 streams the pose on every notification,
+         * as live tracking does, and packs the commands as on a link with
+         * that MTU - 3.
+         */
+        Pipeline(int maxPacketLength, int ackInterval) {
+            mapper.setChannelRange(0, 40, 600);
+            mapper.setChannelRange(1, 40, 600);
+            queue.setMaxPacketLength(maxPacketLength);
+            commandFlags = maxPacketLength > 0 ? WriteQueue.FLAG_PACKABLE : 0;
+            this.ackInterval = ackInterval;
+        }
+
+        @Override
+        public void onSensorData(byte[] data, int length, long timestampNanos) {
+            long start = System.nanoTime();
+            parser.feed(data, 0, length);
+            levels[notifications++] = mapper.getLevel();
+            // The service confirms loopback writes from its handler, after write() returns
+            while (pendingAcks > 0 && notifications % ackInterval == 0) {
+                pendingAcks--;
+                queue.onWriteComplete(true);
+            }
+            maxNotificationNanos = Math.max(maxNotificationNanos, System.nanoTime() - start);
+        }
+
+        @Override
+        public void onCommand(byte[] data, int length, long timestampNanos) {}
+
+        @Override
+        public void onConnectionState(int state, long timestampNanos) {}
+
+        private void onSamples(short[] samples, int frameCount, int channelCount) {
+            frames += frameCount;
+            emg.process(samples, frameCount, filtered, null);
+            for (int f = 0; f < frameCount; f++) {
+                if (features.addFrame(filtered, f * CHANNELS)) {
+                    windows++;
+                }
+            }
+            emg.getEnvelope(envelope);
+            boolean changed = mapper.update(envelope);
+            if (changed) {
+                levelChanges++;
+            }
+            if (changed || commandFlags != 0) {
+                mapper.getPose(pose);
+                int n = codec.encodePose(pose, command, 0);
+                queue.offer(command, 0, n, commandFlags);
+                commands++;
+            }
+        }
+
+        float levelAt(double seconds) {
+            return levels[(int) (seconds * SAMPLE_RATE / FRAMES_PER_NOTIFICATION)];
+        }
+    }
+
+    private static class FakeClock implements SessionReplayer.Clock {
+
+        long now;
+
+        @Override
+        public long nanos() {
+            return now;
+        }
+
+        @Override
+        public void sleepNanos(long nanos) {
+            now += nanos;
+        }
+    }
+}
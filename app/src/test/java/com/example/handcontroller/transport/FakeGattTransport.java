@@ -0,0 +1,27 @@
+package com.example.handcontroller.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Records every write attempt; accepts or refuses writes on demand
+class FakeGattTransport implements GattTransport {
+
+    final List<byte[]> writes = new ArrayList<>();
+    final List<Boolean> acknowledged = new ArrayList<>();
+    boolean accept = true;
+
+    @Override
+    public boolean write(byte[] data, int length, boolean acknowledged) {
+        if (!accept) {
+            return false;
+        }
+        writes.add(Arrays.copyOf(data, length));
+        this.acknowledged.add(acknowledged);
+        return true;
+    }
+
+    byte lastFirstByte() {
+        return writes.get(writes.size() - 1)[0];
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.handcontroller.transport;
+
+import static org.junit.Assert.*;
+
+import com.example.handcontroller.transport.LinkPolicy.Mode;
+import org.junit.Test;
+
+public class LinkPolicyTest {
+
+    @Test
+    public void activityRaisesTheLinkToHighPerformance() {
+        LinkPolicy policy = new LinkPolicy(30_000);
+        policy.reset(1000);
+        assertEquals(Mode.BALANCED, policy.getMode(1000));
+
+        policy.setActive(true, 2000);
+        assertEquals(Mode.HIGH_PERFORMANCE, policy.getMode(100_000));
+        assertEquals(-1, policy.getNextChangeMs(100_000));
+    }
+
+    @Test
+    public void idleLinkDropsToLowPowerAfterTheDelay() {
+        LinkPolicy policy = new LinkPolicy(30_000);
+        policy.reset(0);
+        policy.setActive(true, 0);
+        policy.setActive(false, 10_000);
+
+        assertEquals(Mode.BALANCED, policy.getMode(39_999));
+        assertEquals(40_000, policy.getNextChangeMs(39_999));
+        assertEquals(Mode.LOW_POWER, policy.getMode(40_000));
+        assertEquals(-1, policy.getNextChangeMs(40_000));
+    }
+
+    @Test
+    public void repeatedIdleReportsKeepTheIdleStart() {
+        LinkPolicy policy = new LinkPolicy(100);
+        policy.reset(0);
+        policy.setActive(false, 90);
+        assertEquals(Mode.LOW_POWER, policy.getMode(100));
+    }
+}
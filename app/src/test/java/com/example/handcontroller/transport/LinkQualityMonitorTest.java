@@ -0,0 +1,108 @@
+package com.example.handcontroller.transport;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LinkQualityMonitorTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void matchesPongsToPings() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor(3000 * MS);
+        monitor.reset(0);
+
+        int first = monitor.nextPing(0);
+        int second = monitor.nextPing(1000 * MS);
+        monitor.onPong(second, 1020 * MS);
+        monitor.onPong(first, 1040 * MS);
+        // Duplicates are ignored
+        monitor.onPong(first, 1050 * MS);
+
+        assertEquals(2, monitor.getPingsSent());
+        assertEquals(2, monitor.getPongsReceived());
+        assertEquals(0, monitor.getLossRatio(), 0);
+        assertEquals(2, monitor.getRoundTrip().getCount());
+        assertEquals(20_000, monitor.getRoundTrip().getMin());
+        assertEquals(1_040_000, monitor.getRoundTrip().getMax());
+    }
+
+    @Test
+    public void countsUnansweredPingsAsLostAfterTheTimeout() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor(3000 * MS);
+        monitor.reset(0);
+
+        int lost = monitor.nextPing(0);
+        monitor.nextPing(2999 * MS);
+        assertEquals(0, monitor.getPingsLost());
+        monitor.nextPing(3000 * MS);
+        assertEquals(1, monitor.getPingsLost());
+
+        // Too late to count
+        monitor.onPong(lost, 3100 * MS);
+        assertEquals(0, monitor.getPongsReceived());
+    }
+
+    @Test
+    public void measuresInboundThroughput() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor(3000 * MS);
+        monitor.reset(0);
+
+        monitor.onBytesReceived(1500);
+        monitor.onBytesReceived(500);
+        monitor.sampleThroughput(500 * MS);
+
+        assertEquals(4000, monitor.getThroughput().getMax());
+    }
+
+    @Test
+    public void healthyLinkKeepsTheRequestedStreamInterval() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor(3000 * MS);
+        monitor.reset(0);
+        probe(monitor, 8 * MS, LinkQualityMonitor.WINDOW_PINGS, 0);
+
+        assertEquals(10, monitor.suggestStreamIntervalMs(10));
+    }
+
+    @Test
+    public void slowOrLossyLinkStreamsLessOften() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor(3000 * MS);
+        monitor.reset(0);
+        probe(monitor, 120 * MS, LinkQualityMonitor.WINDOW_PINGS, 0);
+        assertEquals(60, monitor.suggestStreamIntervalMs(10));
+
+        monitor.reset(0);
+        probe(monitor, 8 * MS, LinkQualityMonitor.WINDOW_PINGS, 3);
+        assertEquals(20, monitor.suggestStreamIntervalMs(10));
+    }
+
+    @Test
+    public void peerWithoutEchoReportsNoLossAndKeepsTheInterval() {
+        LinkQualityMonitor monitor = new LinkQualityMonitor(3000 * MS);
+        monitor.reset(0);
+        probe(monitor, 8 * MS, LinkQualityMonitor.WINDOW_PINGS * 3, 1);
+
+        assertTrue(monitor.getPingsLost() > 0);
+        assertFalse(monitor.hasEcho());
+        assertEquals(0, monitor.getLossRatio(), 0);
+        assertEquals(10, monitor.suggestStreamIntervalMs(10));
+    }
+
+    // Sends count pings one second apart, answering all but every lossEvery-th
+    private static void probe(
+        LinkQualityMonitor monitor,
+        long rttNanos,
+        int count,
+        int lossEvery
+    ) {
+        long now = 0;
+        for (int i = 1; i <= count + 4; i++) {
+            int id = monitor.nextPing(now);
+            if (lossEvery == 0 || i % lossEvery != 0) {
+                monitor.onPong(id, now + rttNanos);
+            }
+            now += 1000 * MS;
+        }
+    }
+}
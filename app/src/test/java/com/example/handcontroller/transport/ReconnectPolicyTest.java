@@ -0,0 +1,52 @@
+package com.example.handcontroller.transport;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ReconnectPolicyTest {
+
+    @Test
+    public void backsOffExponentiallyWithinJitterBounds() {
+        ReconnectPolicy policy = new ReconnectPolicy(100, 1000, 10, new Random(1));
+        long[] backoff = { 100, 200, 400, 800, 1000, 1000 };
+        for (long expected : backoff) {
+            long delay = policy.nextDelayMs();
+            assertTrue(delay + " < " + expected / 2, delay >= expected / 2);
+            assertTrue(delay + " > " + expected, delay <= expected);
+        }
+        assertEquals(6, policy.getAttempt());
+    }
+
+    @Test
+    public void jitterSpreadsDelays() {
+        ReconnectPolicy policy = new ReconnectPolicy(1000, 1000, 100, new Random(7));
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.nextDelayMs();
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(max - min > 250);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttemptsUntilReset() {
+        ReconnectPolicy policy = new ReconnectPolicy(10, 100, 3, new Random(3));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(policy.nextDelayMs() >= 0);
+        }
+        assertEquals(-1, policy.nextDelayMs());
+
+        policy.reset();
+        long delay = policy.nextDelayMs();
+        assertTrue(delay >= 5 && delay <= 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaxBelowInitial() {
+        new ReconnectPolicy(100, 50, 3, new Random());
+    }
+}
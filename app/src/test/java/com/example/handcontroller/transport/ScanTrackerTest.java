@@ -0,0 +1,49 @@
+package com.example.handcontroller.transport;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ScanTrackerTest {
+
+    @Test
+    public void reportsEachAddressOnceInDiscoveryOrder() {
+        ScanTracker<String> tracker = new ScanTracker<>();
+
+        assertEquals(1, tracker.onResult("AA", "hand", -60, 0).getSightings());
+        assertEquals(1, tracker.onResult("BB", "other", -80, 5).getSightings());
+        ScanTracker.Entry<String> again = tracker.onResult("AA", "hand", -60, 10);
+
+        assertEquals(2, again.getSightings());
+        assertEquals(10, again.getLastSeenMs());
+        assertEquals(2, tracker.size());
+        assertEquals("AA", tracker.get(0).address);
+        assertEquals("BB", tracker.get(1).address);
+        assertSame(again, tracker.get("AA"));
+    }
+
+    @Test
+    public void smoothsRssi() {
+        ScanTracker<String> tracker = new ScanTracker<>();
+        tracker.onResult("AA", "hand", -60, 0);
+        // One faded packet moves the estimate by a quarter of the difference
+        ScanTracker.Entry<String> entry = tracker.onResult("AA", "hand", -100, 1);
+        assertEquals(-70, entry.getRssi());
+
+        for (int i = 0; i < 50; i++) {
+            tracker.onResult("AA", "hand", -50, 2 + i);
+        }
+        assertEquals(-50, entry.getRssi());
+    }
+
+    @Test
+    public void clearForgetsDevices() {
+        ScanTracker<String> tracker = new ScanTracker<>();
+        tracker.onResult("AA", "hand", -60, 0);
+        tracker.clear();
+
+        assertEquals(0, tracker.size());
+        assertNull(tracker.get("AA"));
+        assertEquals(1, tracker.onResult("AA", "hand", -60, 1).getSightings());
+    }
+}
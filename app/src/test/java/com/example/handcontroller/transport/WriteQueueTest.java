@@ -0,0 +1,402 @@
+package com.example.handcontroller.transport;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteQueueTest {
+
+    private static final int CAPACITY = 4;
+    private static final long TIMEOUT_MS = 100;
+    private static final int MAX_RETRIES = 2;
+
+    private FakeGattTransport transport;
+    private long now;
+    private WriteQueue queue;
+
+    @Before
+    public void setUp() {
+        transport = new FakeGattTransport();
+        now = 0;
+        queue = new WriteQueue(
+            transport,
+            () -> now,
+            CAPACITY,
+            8,
+            TIMEOUT_MS,
+            MAX_RETRIES
+        );
+    }
+
+    @Test
+    public void keepsOneWriteInFlight() {
+        offer(1);
+        offer(2);
+        offer(3);
+
+        assertEquals(1, transport.writes.size());
+        assertEquals(1, queue.getInFlightCount());
+        assertEquals(2, queue.getPendingCount());
+    }
+
+    @Test
+    public void completionAdvancesInOrder() {
+        offer(1);
+        offer(2);
+        offer(3);
+
+        queue.onWriteComplete(true);
+        assertEquals(2, transport.lastFirstByte());
+        queue.onWriteComplete(true);
+        assertEquals(3, transport.lastFirstByte());
+        queue.onWriteComplete(true);
+
+        assertEquals(3, transport.writes.size());
+        assertFalse(queue.hasWork());
+        assertEquals(3, queue.getCompletedCount());
+    }
+
+    @Test
+    public void dropsWhenFull() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(offer(i));
+        }
+
+        assertFalse(offer(99));
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(CAPACITY - 1, queue.getPendingCount());
+    }
+
+    @Test
+    public void offerCopiesFrame() {
+        byte[] frame = { 7 };
+        queue.offer(frame, 0, 1);
+        offer(8);
+        frame[0] = 42;
+
+        queue.onWriteComplete(true);
+        assertEquals(8, transport.lastFirstByte());
+        assertEquals(7, transport.writes.get(0)[0]);
+    }
+
+    @Test
+    public void timedOutWriteIsRetriedThenDropped() {
+        offer(1);
+        offer(2);
+
+        for (int retry = 0; retry < MAX_RETRIES; retry++) {
+            now += TIMEOUT_MS;
+            queue.poll();
+            assertEquals(1, transport.lastFirstByte());
+        }
+        now += TIMEOUT_MS;
+        queue.poll();
+
+        assertEquals(2, transport.lastFirstByte());
+        assertEquals(MAX_RETRIES + 1, queue.getTimeoutCount());
+        assertEquals(MAX_RETRIES, queue.getRetryCount());
+        assertEquals(1, queue.getFailedCount());
+    }
+
+    @Test
+    public void pollBeforeTimeoutKeepsWriteInFlight() {
+        offer(1);
+        now += TIMEOUT_MS - 1;
+        queue.poll();
+
+        assertEquals(1, transport.writes.size());
+        assertEquals(0, queue.getTimeoutCount());
+    }
+
+    @Test
+    public void failedWriteIsRetried() {
+        offer(1);
+        queue.onWriteComplete(false);
+
+        assertEquals(2, transport.writes.size());
+        assertEquals(1, transport.lastFirstByte());
+        queue.onWriteComplete(true);
+        assertEquals(1, queue.getCompletedCount());
+        assertEquals(0, queue.getFailedCount());
+    }
+
+    @Test
+    public void refusedWriteIsRetriedOnPoll() {
+        transport.accept = false;
+        offer(1);
+        assertEquals(0, queue.getInFlightCount());
+
+        transport.accept = true;
+        queue.poll();
+
+        assertEquals(1, queue.getInFlightCount());
+        assertEquals(1, transport.lastFirstByte());
+    }
+
+    @Test
+    public void clearDiscardsPendingWrites() {
+        offer(1);
+        offer(2);
+        queue.clear();
+
+        assertFalse(queue.hasWork());
+        queue.onWriteComplete(true);
+        assertEquals(0, queue.getCompletedCount());
+        offer(3);
+        assertEquals(3, transport.lastFirstByte());
+    }
+
+    @Test
+    public void urgentFrameFlushesPendingAndFollowsInFlight() {
+        offer(1);
+        offer(2);
+        offer(3);
+
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(2, queue.getFlushedCount());
+        queue.onWriteComplete(true);
+        assertEquals(9, transport.lastFirstByte());
+        queue.onWriteComplete(true);
+        assertFalse(queue.hasWork());
+    }
+
+    @Test
+    public void urgentFrameIsSentImmediatelyWhenIdle() {
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+
+        assertEquals(1, transport.writes.size());
+        assertEquals(9, transport.lastFirstByte());
+    }
+
+    @Test
+    public void urgentFrameIsAcceptedWhenQueueIsFull() {
+        for (int i = 0; i < CAPACITY; i++) {
+            offer(i);
+        }
+
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+        queue.onWriteComplete(true);
+
+        assertEquals(9, transport.lastFirstByte());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void reportsUrgentLatencyOnConfirmation() {
+        long[] latency = { -1 };
+        boolean[] failed = { false };
+        queue.setUrgentWriteListener(listener(latency, failed));
+        offer(1);
+
+        now = 1000;
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+        now = 1012;
+        queue.onWriteComplete(true);
+        assertEquals(-1, latency[0]);
+        now = 1030;
+        queue.onWriteComplete(true);
+
+        assertEquals(30, latency[0]);
+        assertFalse(failed[0]);
+    }
+
+    @Test
+    public void reportsUrgentFailure() {
+        long[] latency = { -1 };
+        boolean[] failed = { false };
+        queue.setUrgentWriteListener(listener(latency, failed));
+
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+        for (int i = 0; i <= MAX_RETRIES; i++) {
+            queue.onWriteComplete(false);
+        }
+
+        assertTrue(failed[0]);
+        assertEquals(-1, latency[0]);
+    }
+
+    @Test
+    public void reportsRoundTripOfEachConfirmedWrite() {
+        long[] rtt = { -1 };
+        boolean[] acknowledged = new boolean[1];
+        queue.setWriteListener((rttMs, acked) -> {
+            rtt[0] = rttMs;
+            acknowledged[0] = acked;
+        });
+        now = 10;
+        offer(1);
+        now = 25;
+        queue.onWriteComplete(true);
+        assertEquals(15, rtt[0]);
+        assertTrue(acknowledged[0]);
+
+        offer(2, WriteQueue.FLAG_UNACKNOWLEDGED);
+        now = 27;
+        queue.onWriteComplete(true);
+        assertEquals(2, rtt[0]);
+        assertFalse(acknowledged[0]);
+    }
+
+    @Test
+    public void strayCompletionIsIgnored() {
+        queue.onWriteComplete(true);
+        assertEquals(0, queue.getCompletedCount());
+    }
+
+    @Test
+    public void packsPendingFramesUpToThePacketLength() {
+        queue.setMaxPacketLength(7);
+        offer(1);
+        offer(2, WriteQueue.FLAG_PACKABLE);
+        offer(3, WriteQueue.FLAG_PACKABLE);
+        offer(4, WriteQueue.FLAG_PACKABLE);
+
+        // 1 went out alone; 2 and 3 fill 6 of 7 bytes, 4 no longer fits
+        queue.onWriteComplete(true);
+        byte[] packed = transport.writes.get(1);
+        assertEquals(6, packed.length);
+        assertEquals(2, packed[0]);
+        assertEquals(3, packed[3]);
+        assertEquals(2, queue.getInFlightCount());
+        assertEquals(1, queue.getPendingCount());
+
+        queue.onWriteComplete(true);
+        assertEquals(4, transport.lastFirstByte());
+        queue.onWriteComplete(true);
+        assertEquals(4, queue.getCompletedCount());
+        assertFalse(queue.hasWork());
+    }
+
+    @Test
+    public void packsOnlyFramesWithTheSameFlags() {
+        queue.setMaxPacketLength(64);
+        offer(1);
+        int streaming = WriteQueue.FLAG_PACKABLE | WriteQueue.FLAG_UNACKNOWLEDGED;
+        offer(2, streaming);
+        offer(3, WriteQueue.FLAG_PACKABLE);
+
+        queue.onWriteComplete(true);
+        assertEquals(3, transport.writes.get(1).length);
+        assertFalse(transport.acknowledged.get(1));
+        queue.onWriteComplete(true);
+        assertEquals(3, transport.lastFirstByte());
+        assertTrue(transport.acknowledged.get(2));
+    }
+
+    @Test
+    public void urgentFrameFollowsWholePackedWrite() {
+        queue.setMaxPacketLength(64);
+        offer(1, WriteQueue.FLAG_PACKABLE);
+        queue.onWriteComplete(true);
+        transport.accept = false;
+        offer(2, WriteQueue.FLAG_PACKABLE);
+        offer(3, WriteQueue.FLAG_PACKABLE);
+        transport.accept = true;
+        queue.poll();
+        assertEquals(2, queue.getInFlightCount());
+
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+        assertEquals(0, queue.getFlushedCount());
+        queue.onWriteComplete(true);
+        assertEquals(9, transport.lastFirstByte());
+    }
+
+    @Test
+    public void failedPackedWriteDropsEveryFrameInIt() {
+        queue.setMaxPacketLength(64);
+        transport.accept = false;
+        offer(1, WriteQueue.FLAG_PACKABLE);
+        offer(2, WriteQueue.FLAG_PACKABLE);
+        transport.accept = true;
+        queue.poll();
+        for (int i = 0; i <= MAX_RETRIES; i++) {
+            queue.onWriteComplete(false);
+        }
+        assertEquals(2, queue.getFailedCount());
+        assertFalse(queue.hasWork());
+    }
+
+    @Test
+    public void urgentFlushAfterTimedOutPackedWriteFailsOnlyTheUrgentFrame() {
+        boolean[] failed = new boolean[1];
+        queue.setUrgentWriteListener(listener(new long[1], failed));
+        queue.setMaxPacketLength(64);
+        offer(0);
+        offer(1, WriteQueue.FLAG_PACKABLE);
+        offer(2, WriteQueue.FLAG_PACKABLE);
+        offer(3, WriteQueue.FLAG_PACKABLE);
+        queue.onWriteComplete(true);
+        assertEquals(3, queue.getInFlightCount());
+
+        // Timeout, then the stack refuses the retry and STOP flushes the queue
+        transport.accept = false;
+        now += TIMEOUT_MS;
+        queue.poll();
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+        assertEquals(3, queue.getFlushedCount());
+        for (int i = 0; i <= MAX_RETRIES; i++) {
+            queue.poll();
+        }
+
+        assertTrue(failed[0]);
+        assertEquals(1, queue.getFailedCount());
+        assertEquals(0, queue.getPendingCount());
+        assertFalse(queue.hasWork());
+
+        transport.accept = true;
+        assertTrue(offer(4));
+        assertEquals(4, transport.lastFirstByte());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void packedWriteLeavesASlotForAnUrgentFrame() {
+        // Enough retries to fill the queue while the stack refuses writes
+        queue = new WriteQueue(transport, () -> now, CAPACITY, 8, TIMEOUT_MS, CAPACITY);
+        queue.setMaxPacketLength(64);
+        transport.accept = false;
+        for (int i = 1; i <= CAPACITY; i++) {
+            offer(i, WriteQueue.FLAG_PACKABLE);
+        }
+        transport.accept = true;
+        queue.poll();
+        assertEquals(CAPACITY - 1, queue.getInFlightCount());
+
+        queue.offerUrgent(new byte[] { 9 }, 0, 1);
+        assertEquals(1, queue.getFlushedCount());
+        assertEquals(1, queue.getPendingCount());
+        queue.onWriteComplete(true);
+        assertEquals(CAPACITY - 1, queue.getCompletedCount());
+        assertEquals(9, transport.lastFirstByte());
+        queue.onWriteComplete(true);
+        assertFalse(queue.hasWork());
+    }
+
+    private static WriteQueue.UrgentWriteListener listener(
+        long[] latency,
+        boolean[] failed
+    ) {
+        return new WriteQueue.UrgentWriteListener() {
+            @Override
+            public void onUrgentWriteConfirmed(long latencyMs) {
+                latency[0] = latencyMs;
+            }
+
+            @Override
+            public void onUrgentWriteFailed() {
+                failed[0] = true;
+            }
+        };
+    }
+
+    private boolean offer(int marker) {
+        return offer(marker, 0);
+    }
+
+    private boolean offer(int marker, int flags) {
+        return queue.offer(new byte[] { (byte) marker, 0, 0 }, 0, 3, flags);
+    }
+}
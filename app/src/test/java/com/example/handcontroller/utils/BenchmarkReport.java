@@ -0,0 +1,57 @@
+package com.example.handcontroller.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Benchmark results written as "key=value" lines to NAME.txt in the
+ * benchmark.reportDir directory, build/benchmarks by default (relative to
+ * the module Gradle runs unit tests in). Every run replaces the file, so
+ * the latest numbers are there whether the benchmark passed or not.
+ */
+public final class BenchmarkReport {
+
+    private final String name;
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    public BenchmarkReport(String name) {
+        this.name = name;
+    }
+
+    public BenchmarkReport put(String key, long value) {
+        values.put(key, Long.toString(value));
+        return this;
+    }
+
+    public BenchmarkReport put(String key, double value) {
+        values.put(key, String.format(Locale.US, "%.3f", value));
+        return this;
+    }
+
+    // Returns the file written
+    public File write() throws IOException {
+        File directory = new File(System.getProperty("benchmark.reportDir", "build/benchmarks"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = new File(directory, name + ".txt");
+        try (
+            Writer out = new OutputStreamWriter(
+                new FileOutputStream(file),
+                StandardCharsets.UTF_8
+            )
+        ) {
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                out.write(value.getKey() + "=" + value.getValue() + "\n");
+            }
+        }
+        return file;
+    }
+}
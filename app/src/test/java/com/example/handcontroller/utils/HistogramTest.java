@@ -0,0 +1,74 @@
+package com.example.handcontroller.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        Histogram histogram = new Histogram(1000, 5);
+        for (int v = 1; v <= 10; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(10, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10, histogram.getMax());
+        assertEquals(5.5, histogram.getMean(), 1e-12);
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        Histogram histogram = new Histogram(10_000_000, 5);
+        Random random = new Random(7);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + random.nextInt(5_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[] { 50, 95, 99 }) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.getPercentile(p);
+            assertTrue(p + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(p + ": " + reported + " vs " + exact, reported <= exact * 17 / 16);
+        }
+    }
+
+    @Test
+    public void clampsValuesAboveTheMaximum() {
+        Histogram histogram = new Histogram(1000, 4);
+        histogram.record(5000);
+
+        assertEquals(5000, histogram.getMax());
+        assertEquals(5000, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void resetEmptiesTheHistogram() {
+        Histogram histogram = new Histogram(1000, 4);
+        histogram.record(300);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void recordsNegativeValuesAsZero() {
+        Histogram histogram = new Histogram(1000, 4);
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(100));
+    }
+}
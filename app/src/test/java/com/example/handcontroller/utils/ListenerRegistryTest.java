@@ -0,0 +1,100 @@
+package com.example.handcontroller.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class ListenerRegistryTest {
+
+    @Test
+    public void addAndRemoveKeepOrder() {
+        ListenerRegistry<String, Integer> registry = new ListenerRegistry<>();
+        ListenerRegistry.Entry<String, Integer> a = registry.add("a", 1);
+        registry.add("b", 2);
+        registry.add("c", 3);
+
+        assertTrue(registry.remove(a));
+        assertFalse(registry.remove(a));
+
+        ListenerRegistry.Entry<String, Integer>[] entries = registry.snapshot();
+        assertEquals(2, entries.length);
+        assertEquals("b", entries[0].listener);
+        assertEquals(3, (int) entries[1].tag);
+    }
+
+    @Test
+    public void removeListenerDropsEveryRegistration() {
+        ListenerRegistry<String, Integer> registry = new ListenerRegistry<>();
+        String listener = "x";
+        registry.add(listener, 1);
+        registry.add("y", 1);
+        registry.add(listener, 2);
+
+        assertTrue(registry.removeListener(listener));
+        assertEquals(1, registry.size());
+        assertEquals("y", registry.snapshot()[0].listener);
+    }
+
+    @Test
+    public void snapshotIsStableWhileModified() {
+        ListenerRegistry<String, Integer> registry = new ListenerRegistry<>();
+        registry.add("a", 0);
+        ListenerRegistry.Entry<String, Integer>[] snapshot = registry.snapshot();
+
+        registry.add("b", 0);
+
+        assertEquals(1, snapshot.length);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void concurrentAddAndRemoveLoseNothing() throws Exception {
+        ListenerRegistry<Integer, Integer> registry = new ListenerRegistry<>();
+        final int threads = 4;
+        final int perThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    ListenerRegistry.Entry<Integer, Integer> entry =
+                        registry.add(base + i, 0);
+                    // Keep every other registration
+                    if (i % 2 == 1) {
+                        assertTrue(registry.remove(entry));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        start.countDown();
+        while (anyAlive(workers)) {
+            // Readers see consistent arrays without locking
+            for (ListenerRegistry.Entry<Integer, Integer> entry : registry.snapshot()) {
+                assertNotNull(entry);
+            }
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, registry.size());
+    }
+
+    private static boolean anyAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.handcontroller.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RunningStatsTest {
+
+    @Test
+    public void matchesTwoPassStatistics() {
+        double[] values = { 2, 4, 4, 4, 5, 5, 7, 9 };
+        RunningStats stats = new RunningStats();
+        for (double value : values) {
+            stats.add(value);
+        }
+
+        assertEquals(8, stats.getCount());
+        assertEquals(5, stats.getMean(), 1e-12);
+        // Sample variance: sum of squared deviations 32 over n - 1
+        assertEquals(32.0 / 7, stats.getVariance(), 1e-12);
+        assertEquals(2, stats.getMin(), 0);
+        assertEquals(9, stats.getMax(), 0);
+    }
+
+    @Test
+    public void staysAccurateWithLargeOffset() {
+        RunningStats stats = new RunningStats();
+        for (int i = 0; i < 100_000; i++) {
+            stats.add(1e9 + (i % 2 == 0 ? 1 : -1));
+        }
+        assertEquals(1e9, stats.getMean(), 1e-6);
+        assertEquals(1, stats.getVariance(), 1e-3);
+    }
+
+    @Test
+    public void emptyAndResetState() {
+        RunningStats stats = new RunningStats();
+        assertEquals(0, stats.getVariance(), 0);
+        assertTrue(Double.isNaN(stats.getMax()));
+
+        stats.add(3);
+        stats.reset();
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMean(), 0);
+        assertTrue(Double.isNaN(stats.getMin()));
+    }
+}
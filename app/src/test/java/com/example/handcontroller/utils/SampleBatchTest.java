@@ -0,0 +1,58 @@
+package com.example.handcontroller.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class SampleBatchTest {
+
+    @Test
+    public void takeReturnsEverythingAppendedSinceLastTake() {
+        SampleBatch batch = new SampleBatch(8, 2);
+        batch.append(new short[] { 1, 2 }, 1, 2);
+        batch.append(new short[] { 3, 4, 5, 6 }, 2, 2);
+
+        assertEquals(3, batch.take());
+        assertArrayEquals(
+            new short[] { 1, 2, 3, 4, 5, 6 },
+            Arrays.copyOf(batch.front(), 6)
+        );
+        assertEquals(0, batch.take());
+    }
+
+    @Test
+    public void frontSurvivesAppendsUntilNextTake() {
+        SampleBatch batch = new SampleBatch(4, 1);
+        batch.append(new short[] { 9 }, 1, 1);
+        batch.take();
+
+        batch.append(new short[] { 7 }, 1, 1);
+
+        assertEquals(9, batch.front()[0]);
+        assertEquals(1, batch.take());
+        assertEquals(7, batch.front()[0]);
+    }
+
+    @Test
+    public void dropsFramesBeyondCapacity() {
+        SampleBatch batch = new SampleBatch(2, 1);
+        batch.append(new short[] { 1, 2, 3 }, 3, 1);
+
+        assertEquals(2, batch.take());
+        assertEquals(1, batch.getDroppedFrames());
+    }
+
+    @Test
+    public void normalizesChannelCount() {
+        SampleBatch batch = new SampleBatch(4, 2);
+        batch.append(new short[] { 5 }, 1, 1);
+        batch.append(new short[] { 1, 2, 3 }, 1, 3);
+
+        assertEquals(2, batch.take());
+        assertArrayEquals(
+            new short[] { 5, 0, 1, 2 },
+            Arrays.copyOf(batch.front(), 4)
+        );
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.handcontroller.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SampleRingBufferTest {
+
+    @Test
+    public void drainsFramesInOrderWithTimestamps() {
+        SampleRingBuffer ring = new SampleRingBuffer(8, 2);
+        ring.write(new short[] { 1, 2, 3, 4 }, 2, 2, 100);
+        ring.write(new short[] { 5, 6 }, 1, 2, 200);
+
+        short[] samples = new short[16];
+        long[] timestamps = new long[8];
+        int count = ring.drain(samples, timestamps, 8);
+
+        assertEquals(3, count);
+        assertArrayEquals(
+            new short[] { 1, 2, 3, 4, 5, 6 },
+            java.util.Arrays.copyOf(samples, 6)
+        );
+        assertArrayEquals(
+            new long[] { 100, 100, 200 },
+            java.util.Arrays.copyOf(timestamps, 3)
+        );
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void countsOverflowWhenFull() {
+        SampleRingBuffer ring = new SampleRingBuffer(4, 1);
+
+        int stored = ring.write(new short[] { 1, 2, 3, 4, 5, 6 }, 6, 1, 0);
+
+        assertEquals(4, stored);
+        assertEquals(2, ring.getOverflowCount());
+        short[] out = new short[4];
+        assertEquals(4, ring.drain(out, null, 4));
+        assertArrayEquals(new short[] { 1, 2, 3, 4 }, out);
+    }
+
+    @Test
+    public void wrapsAround() {
+        SampleRingBuffer ring = new SampleRingBuffer(4, 1);
+        short[] out = new short[4];
+        for (int i = 0; i < 10; i++) {
+            ring.write(new short[] { (short) i, (short) (i + 100) }, 2, 1, i);
+            assertEquals(2, ring.drain(out, null, 4));
+            assertEquals(i, out[0]);
+            assertEquals(i + 100, out[1]);
+        }
+        assertEquals(0, ring.getOverflowCount());
+    }
+
+    @Test
+    public void adaptsChannelCount() {
+        SampleRingBuffer ring = new SampleRingBuffer(4, 2);
+        ring.write(new short[] { 7 }, 1, 1, 0);
+        ring.write(new short[] { 1, 2, 3 }, 1, 3, 0);
+
+        short[] out = new short[4];
+        ring.drain(out, null, 4);
+
+        assertArrayEquals(new short[] { 7, 0, 1, 2 }, out);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPowerOfTwoCapacity() {
+        new SampleRingBuffer(100, 1);
+    }
+
+    @Test
+    public void concurrentProducerLosesNothingBelowCapacity() throws Exception {
+        final int capacity = 256;
+        final int channels = 2;
+        final int totalFrames = 500_000;
+        final SampleRingBuffer ring = new SampleRingBuffer(capacity, channels);
+
+        Thread producer = new Thread(() -> {
+            short[] batch = new short[8 * channels];
+            int next = 0;
+            while (next < totalFrames) {
+                int frames = Math.min(1 + next % 8, totalFrames - next);
+                // Stay below capacity: wait for the consumer instead of overflowing
+                while (ring.remainingCapacity() < frames) {
+                    Thread.yield();
+                }
+                for (int f = 0; f < frames; f++) {
+                    batch[f * channels] = (short) (next + f);
+                    batch[f * channels + 1] = (short) ~(next + f);
+                }
+                assertEquals(frames, ring.write(batch, frames, channels, next));
+                next += frames;
+            }
+        });
+
+        short[] out = new short[64 * channels];
+        long[] timestamps = new long[64];
+        int expected = 0;
+        producer.start();
+        while (expected < totalFrames) {
+            // Sample liveness before draining so the final frames are never missed
+            boolean producerDone = !producer.isAlive();
+            int count = ring.drain(out, timestamps, 64);
+            for (int f = 0; f < count; f++, expected++) {
+                assertEquals((short) expected, out[f * channels]);
+                assertEquals((short) ~expected, out[f * channels + 1]);
+                assertTrue(timestamps[f] <= expected);
+            }
+            if (count == 0) {
+                if (producerDone) {
+                    break;
+                }
+                Thread.yield();
+            }
+        }
+        producer.join();
+
+        assertEquals(totalFrames, expected);
+        assertEquals(0, ring.getOverflowCount());
+    }
+}